@@ -0,0 +1,57 @@
+package com.jaestrada.multimedia.config;
+
+import com.jaestrada.multimedia.exceptions.MultimediaException;
+import com.jaestrada.multimedia.services.AzureBlobStorageService;
+import com.jaestrada.multimedia.services.BlobStore;
+import com.jaestrada.multimedia.services.InMemoryBlobStore;
+import com.jaestrada.multimedia.services.LocalDiskBlobStore;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Produces;
+import jakarta.inject.Inject;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.logging.Logger;
+
+/**
+ * Elige el almacenamiento de archivos según STORAGE_BACKEND: azure (por defecto), local o memory
+ */
+@ApplicationScoped
+public class BlobStoreProducer {
+
+    private static final Logger LOGGER = Logger.getLogger(BlobStoreProducer.class.getName());
+
+    @Inject
+    private AzureBlobStorageService azureBlobStorageService;
+
+    @Produces
+    @ApplicationScoped
+    public BlobStore createBlobStore() throws MultimediaException {
+        String backend = System.getProperty("STORAGE_BACKEND", "azure").trim().toLowerCase(Locale.ROOT);
+        LOGGER.info("Almacenamiento de archivos: " + backend);
+
+        switch (backend) {
+            case "local":
+                return new LocalDiskBlobStore(localStorageRoot(),
+                        System.getProperty("LOCAL_STORAGE_BASE_URL", "multimedia/"));
+            case "memory":
+                return new InMemoryBlobStore();
+            case "azure":
+                return azureBlobStorageService;
+            default:
+                throw new IllegalStateException("STORAGE_BACKEND no soportado: " + backend);
+        }
+    }
+
+    /**
+     * Directorio del almacenamiento local (LOCAL_STORAGE_DIR); por defecto el que ya usa MultimediaFileServlet
+     */
+    public static Path localStorageRoot() {
+        String configured = System.getProperty("LOCAL_STORAGE_DIR");
+        if (configured != null && !configured.isEmpty()) {
+            return Paths.get(configured);
+        }
+        return Paths.get(System.getProperty("jboss.server.data.dir", "/tmp"), "multimedia");
+    }
+}
\ No newline at end of file
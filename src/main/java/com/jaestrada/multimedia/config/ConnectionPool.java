@@ -0,0 +1,211 @@
+package com.jaestrada.multimedia.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+
+import javax.sql.DataSource;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * Pool de conexiones JDBC (HikariCP) para el EntityManagerFactory.
+ * Se configura con las mismas claves del .env que carga EnvListener.
+ */
+@ApplicationScoped
+public class ConnectionPool {
+
+    private static final Logger LOGGER = Logger.getLogger(ConnectionPool.class.getName());
+
+    private static final String POOL_NAME = "multimediaPool";
+
+    private final AcquireMetrics acquireMetrics = new AcquireMetrics();
+
+    private HikariDataSource dataSource;
+
+    /**
+     * Indica si se debe usar el pool (DB_POOL_ENABLED, activo por defecto)
+     */
+    public boolean isEnabled() {
+        return !"false".equalsIgnoreCase(System.getProperty("DB_POOL_ENABLED"));
+    }
+
+    /**
+     * Devuelve el DataSource del pool, creándolo en el primer uso
+     */
+    public synchronized DataSource getDataSource() {
+        if (dataSource == null) {
+            dataSource = new HikariDataSource(buildConfig());
+            LOGGER.info("Pool de conexiones inicializado: máximo " + dataSource.getMaximumPoolSize() + " conexiones");
+        }
+        return dataSource;
+    }
+
+    private HikariConfig buildConfig() {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName(POOL_NAME);
+        config.setDriverClassName(System.getProperty("DB_DRIVER"));
+        config.setJdbcUrl(System.getProperty("DB_URL"));
+        config.setUsername(System.getProperty("DB_USER"));
+        config.setPassword(System.getProperty("DB_PASSWORD"));
+
+        // Tamaño y tiempos de espera
+        config.setMaximumPoolSize(intProperty("DB_POOL_MAX_SIZE", 10));
+        config.setMinimumIdle(intProperty("DB_POOL_MIN_IDLE", 2));
+        config.setConnectionTimeout(longProperty("DB_POOL_CONNECTION_TIMEOUT_MS", 30_000));
+
+        // Validación (Connection.isValid) y desalojo de conexiones ociosas o viejas
+        config.setValidationTimeout(longProperty("DB_POOL_VALIDATION_TIMEOUT_MS", 5_000));
+        config.setKeepaliveTime(longProperty("DB_POOL_KEEPALIVE_MS", 300_000));
+        config.setIdleTimeout(longProperty("DB_POOL_IDLE_TIMEOUT_MS", 600_000));
+        config.setMaxLifetime(longProperty("DB_POOL_MAX_LIFETIME_MS", 1_800_000));
+
+        // Conexiones retenidas más de este tiempo se reportan como posible fuga (0 = desactivado)
+        config.setLeakDetectionThreshold(longProperty("DB_POOL_LEAK_DETECTION_MS", 60_000));
+
+        // Caché de sentencias preparadas del driver de PostgreSQL
+        config.addDataSourceProperty("prepareThreshold", intProperty("DB_PREPARE_THRESHOLD", 5));
+        config.addDataSourceProperty("preparedStatementCacheQueries", intProperty("DB_PREPARED_STATEMENT_CACHE_QUERIES", 256));
+        config.addDataSourceProperty("preparedStatementCacheSizeMiB", intProperty("DB_PREPARED_STATEMENT_CACHE_SIZE_MIB", 5));
+
+        config.setRegisterMbeans(true);
+        config.setMetricsTrackerFactory(acquireMetrics);
+        return config;
+    }
+
+    /**
+     * Estadísticas actuales del pool (conexiones activas, ociosas, hilos en espera y latencia de obtención)
+     */
+    public synchronized ConnectionPoolStats getStats() {
+        if (dataSource == null || dataSource.isClosed()) {
+            return null;
+        }
+        HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+        if (pool == null) {
+            return null;
+        }
+        return new ConnectionPoolStats(
+            pool.getActiveConnections(),
+            pool.getIdleConnections(),
+            pool.getThreadsAwaitingConnection(),
+            pool.getTotalConnections(),
+            dataSource.getMaximumPoolSize(),
+            acquireMetrics.acquisitions.sum(),
+            acquireMetrics.averageAcquireMillis(),
+            TimeUnit.NANOSECONDS.toMillis(acquireMetrics.maxAcquireNanos.get()),
+            acquireMetrics.timeouts.sum()
+        );
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (dataSource != null) {
+            dataSource.close();
+            LOGGER.info("Pool de conexiones cerrado");
+        }
+    }
+
+    private static int intProperty(String key, int defaultValue) {
+        return (int) longProperty(key, defaultValue);
+    }
+
+    private static long longProperty(String key, long defaultValue) {
+        String value = System.getProperty(key);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            LOGGER.warning(key + " inválido, se usa " + defaultValue + ": " + value);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Registra la latencia de obtención de conexiones reportada por Hikari
+     */
+    private static class AcquireMetrics implements MetricsTrackerFactory {
+        private final LongAdder acquisitions = new LongAdder();
+        private final LongAdder totalAcquireNanos = new LongAdder();
+        private final AtomicLong maxAcquireNanos = new AtomicLong();
+        private final LongAdder timeouts = new LongAdder();
+
+        @Override
+        public IMetricsTracker create(String poolName, PoolStats poolStats) {
+            return new IMetricsTracker() {
+                @Override
+                public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                    acquisitions.increment();
+                    totalAcquireNanos.add(elapsedAcquiredNanos);
+                    maxAcquireNanos.accumulateAndGet(elapsedAcquiredNanos, Math::max);
+                }
+
+                @Override
+                public void recordConnectionTimeout() {
+                    timeouts.increment();
+                }
+            };
+        }
+
+        double averageAcquireMillis() {
+            long count = acquisitions.sum();
+            return count == 0 ? 0.0 : totalAcquireNanos.sum() / (count * 1_000_000.0);
+        }
+    }
+
+    /**
+     * Valores del pool en un instante dado
+     */
+    public static class ConnectionPoolStats {
+        private final int active;
+        private final int idle;
+        private final int waiting;
+        private final int total;
+        private final int max;
+        private final long acquisitions;
+        private final double averageAcquireMillis;
+        private final long maxAcquireMillis;
+        private final long timeouts;
+
+        public ConnectionPoolStats(int active, int idle, int waiting, int total, int max, long acquisitions,
+                                   double averageAcquireMillis, long maxAcquireMillis, long timeouts) {
+            this.active = active;
+            this.idle = idle;
+            this.waiting = waiting;
+            this.total = total;
+            this.max = max;
+            this.acquisitions = acquisitions;
+            this.averageAcquireMillis = averageAcquireMillis;
+            this.maxAcquireMillis = maxAcquireMillis;
+            this.timeouts = timeouts;
+        }
+
+        public int getActive() { return active; }
+        public int getIdle() { return idle; }
+        public int getWaiting() { return waiting; }
+        public int getTotal() { return total; }
+        public int getMax() { return max; }
+        public long getAcquisitions() { return acquisitions; }
+        public double getAverageAcquireMillis() { return averageAcquireMillis; }
+        public long getMaxAcquireMillis() { return maxAcquireMillis; }
+        public long getTimeouts() { return timeouts; }
+
+        public String getAcquireTimeSummary() {
+            return String.format("%.2f ms / %d ms", averageAcquireMillis, maxAcquireMillis);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d activas / %d ociosas / %d en espera (%d de %d) - obtención prom. %.2f ms, máx. %d ms, %d timeouts",
+                active, idle, waiting, total, max, averageAcquireMillis, maxAcquireMillis, timeouts);
+        }
+    }
+}
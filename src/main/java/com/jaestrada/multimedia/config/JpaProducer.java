@@ -3,6 +3,7 @@ package com.jaestrada.multimedia.config;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.enterprise.context.RequestScoped;
 import jakarta.enterprise.inject.Produces;
+import jakarta.inject.Inject;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityManagerFactory;
@@ -18,6 +19,9 @@ import java.util.Set;
 @ApplicationScoped
 public class JpaProducer {
 
+    @Inject
+    private ConnectionPool connectionPool;
+
     @Produces
     @ApplicationScoped
     public EntityManagerFactory createEntityManagerFactory() {
@@ -27,12 +31,27 @@ public class JpaProducer {
         props.put("jakarta.persistence.jdbc.user", System.getProperty("DB_USER"));
         props.put("jakarta.persistence.jdbc.password", System.getProperty("DB_PASSWORD"));
 
+        // conexiones desde el pool (HikariCP) en lugar del pool interno de Hibernate
+        if (connectionPool.isEnabled()) {
+            props.put(AvailableSettings.DATASOURCE, connectionPool.getDataSource());
+        }
+
         props.put("hibernate.dialect", System.getProperty("HIBERNATE_DIALECT"));
         props.put("hibernate.hbm2ddl.auto", System.getProperty("HIBERNATE_DDL"));
         props.put("hibernate.show_sql", System.getProperty("HIBERNATE_SHOW_SQL"));
         props.put("hibernate.format_sql", System.getProperty("HIBERNATE_FORMAT_SQL"));
         props.put("hibernate.archive.autodetection", "class");
 
+        // caché de segundo nivel en proceso (solo para entidades marcadas con @Cacheable)
+        if (!"false".equalsIgnoreCase(System.getProperty("HIBERNATE_SECOND_LEVEL_CACHE"))) {
+            props.put("jakarta.persistence.sharedCache.mode", "ENABLE_SELECTIVE");
+            props.put("hibernate.cache.use_second_level_cache", "true");
+            props.put("hibernate.cache.use_query_cache", "true");
+            props.put("hibernate.cache.region.factory_class", "jcache");
+            props.put("hibernate.javax.cache.provider", "com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider");
+            props.put("hibernate.javax.cache.missing_cache_strategy", "create");
+        }
+
         // escanea el/los paquetes donde se encuetran los @Entity
         Set<Class<?>> entities = new Reflections("com.jaestrada.multimedia.models")
                 .getTypesAnnotatedWith(Entity.class);
@@ -1,5 +1,7 @@
 package com.jaestrada.multimedia.controllers;
 
+import com.jaestrada.multimedia.config.ConnectionPool;
+import com.jaestrada.multimedia.services.BlobCache;
 import com.jaestrada.multimedia.services.DashboardMultimediaService;
 import jakarta.faces.view.ViewScoped;
 import jakarta.inject.Inject;
@@ -14,6 +16,12 @@ public class DashboardBean implements Serializable {
     @Inject
     private DashboardMultimediaService multimediaService;
     
+    @Inject
+    private ConnectionPool connectionPool;
+    
+    @Inject
+    private BlobCache blobCache;
+    
     // ==================== Multimedia Metrics ====================
     
     public Long getTotalMultimediaTitles() {
@@ -105,4 +113,17 @@ public class DashboardBean implements Serializable {
     public String getAzureBlobStorageStats() {
         return multimediaService.getAzureBlobStorageStats();
     }
+    
+    // ==================== Connection Pool ====================
+    
+    /**
+     * Estado del pool de conexiones (null si el pool está desactivado)
+     */
+    public ConnectionPool.ConnectionPoolStats getConnectionPoolStats() {
+        return connectionPool.getStats();
+    }
+    
+    public BlobCache.BlobCacheStats getBlobCacheStats() {
+        return blobCache.getStats();
+    }
 }
\ No newline at end of file
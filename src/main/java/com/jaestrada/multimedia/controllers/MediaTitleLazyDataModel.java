@@ -0,0 +1,114 @@
+package com.jaestrada.multimedia.controllers;
+
+import com.jaestrada.multimedia.models.MediaTitle;
+import com.jaestrada.multimedia.services.MultimediaService;
+import org.primefaces.model.FilterMeta;
+import org.primefaces.model.LazyDataModel;
+import org.primefaces.model.SortMeta;
+import org.primefaces.model.SortOrder;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Modelo perezoso para la tabla de títulos: carga solo la página visible
+ * delegando orden, filtros y conteo a la base de datos.
+ */
+public class MediaTitleLazyDataModel extends LazyDataModel<MediaTitle> {
+    
+    private static final Logger LOGGER = Logger.getLogger(MediaTitleLazyDataModel.class.getName());
+    
+    private final MultimediaService multimediaService;
+    
+    // Página cargada actualmente (para resolver filas por clave)
+    private List<MediaTitle> currentPage = new ArrayList<>();
+    
+    // Posters y fichas técnicas de la página visible, cargados en una sola consulta. No es serializable:
+    // no viaja con la vista y, tras restaurarla, se vuelve a consultar para la página actual
+    private transient MultimediaService.TitleFilesIndex fileIndex;
+    
+    public MediaTitleLazyDataModel(MultimediaService multimediaService) {
+        this.multimediaService = multimediaService;
+    }
+    
+    @Override
+    public List<MediaTitle> load(int first, int pageSize, Map<String, SortMeta> sortBy, Map<String, FilterMeta> filterBy) {
+        try {
+            Map<String, Object> filters = toFilterValues(filterBy);
+            
+            String sortField = null;
+            boolean ascending = false;
+            if (sortBy != null) {
+                for (SortMeta meta : sortBy.values()) {
+                    if (meta.getOrder() != null && meta.getOrder() != SortOrder.UNSORTED) {
+                        sortField = meta.getField();
+                        ascending = meta.getOrder() == SortOrder.ASCENDING;
+                        break;
+                    }
+                }
+            }
+            
+            setRowCount((int) multimediaService.countTitles(filters));
+            currentPage = multimediaService.getTitlesPage(first, pageSize, sortField, ascending, filters);
+            fileIndex = loadFileIndex();
+            return currentPage;
+        
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Error al cargar página de títulos", e);
+            setRowCount(0);
+            currentPage = new ArrayList<>();
+            fileIndex = new MultimediaService.TitleFilesIndex(null);
+            return currentPage;
+        }
+    }
+    
+    @Override
+    public String getRowKey(MediaTitle title) {
+        return title.getId() != null ? title.getId().toString() : null;
+    }
+    
+    @Override
+    public MediaTitle getRowData(String rowKey) {
+        for (MediaTitle title : currentPage) {
+            if (title.getId() != null && title.getId().toString().equals(rowKey)) {
+                return title;
+            }
+        }
+        return null;
+    }
+    
+    public List<MediaTitle> getCurrentPage() {
+        return currentPage;
+    }
+    
+    public MultimediaService.TitleFilesIndex getFileIndex() {
+        if (fileIndex == null) {
+            fileIndex = loadFileIndex();
+        }
+        return fileIndex;
+    }
+    
+    private MultimediaService.TitleFilesIndex loadFileIndex() {
+        List<Long> ids = new ArrayList<>(currentPage.size());
+        for (MediaTitle title : currentPage) {
+            ids.add(title.getId());
+        }
+        return multimediaService.getFilesForTitles(ids);
+    }
+    
+    private Map<String, Object> toFilterValues(Map<String, FilterMeta> filterBy) {
+        Map<String, Object> filters = new HashMap<>();
+        if (filterBy != null) {
+            for (FilterMeta meta : filterBy.values()) {
+                if (meta.getField() != null && meta.getFilterValue() != null) {
+                    filters.put(meta.getField(), meta.getFilterValue());
+                }
+            }
+        }
+        return filters;
+    }
+}
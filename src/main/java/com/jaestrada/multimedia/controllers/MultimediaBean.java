@@ -4,8 +4,12 @@ import com.jaestrada.multimedia.enums.FileType;
 import com.jaestrada.multimedia.enums.TitleType;
 import com.jaestrada.multimedia.exceptions.MultimediaException;
 import com.jaestrada.multimedia.models.MediaFile;
+import com.jaestrada.multimedia.models.MediaFileVariant;
 import com.jaestrada.multimedia.models.MediaTitle;
 import com.jaestrada.multimedia.models.MovieGenre;
+import com.jaestrada.multimedia.services.BulkImportReport;
+import com.jaestrada.multimedia.services.BulkPosterImportService;
+import com.jaestrada.multimedia.services.FileStorageService;
 import com.jaestrada.multimedia.services.MultimediaService;
 import jakarta.annotation.PostConstruct;
 import jakarta.faces.application.FacesMessage;
@@ -20,6 +24,8 @@ import org.primefaces.event.FileUploadEvent;
 import org.primefaces.model.file.UploadedFile;
 
 import java.io.Serializable;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -30,28 +36,44 @@ public class MultimediaBean implements Serializable {
     
     private static final Logger LOGGER = Logger.getLogger(MultimediaBean.class.getName());
     
+    // Ancho con el que titlesTable muestra el poster; se pide la miniatura más pequeña que lo cubra
+    private static final int POSTER_DISPLAY_WIDTH = 60;
+    
     @Inject
     private MultimediaService multimediaService;
     
     @Inject
     private Validator validator;
     
+    @Inject
+    private BulkPosterImportService bulkPosterImportService;
+    
     // UI State
     private boolean dialogVisible;
     private boolean genreDialogVisible;
     private MediaTitle selectedTitle;
     private MovieGenre selectedGenre;
     private List<MovieGenre> selectedGenres;
+    private MediaTitleLazyDataModel lazyTitles;
+    
+    // Conteo de títulos por género, calculado una vez por vista
+    private Map<Long, Long> titleCountsByGenre;
     
     // File upload usando Jakarta Servlet Part
     private Part uploadedPosterFile;
     private UploadedFile technicalFile;
     
+    // Carga masiva de posters: ZIP subido o ruta dentro de BULK_IMPORT_DIR, y la carga que sigue la vista
+    private Part bulkZipFile;
+    private String bulkServerPath;
+    private String bulkJobId;
+    
     @PostConstruct
     public void init() {
         selectedTitle = new MediaTitle();
         selectedGenre = new MovieGenre();
         selectedGenres = new ArrayList<>();
+        lazyTitles = new MediaTitleLazyDataModel(multimediaService);
         dialogVisible = false;
         genreDialogVisible = false;
     }
@@ -93,6 +115,7 @@ public class MultimediaBean implements Serializable {
             // Guardar título primero
             multimediaService.saveMediaTitle(selectedTitle);
             LOGGER.info("Título guardado con ID: " + selectedTitle.getId());
+            titleCountsByGenre = null;
             
             // Debug: verificar estado del archivo
             LOGGER.info("🔍 uploadedPosterFile es null? " + (uploadedPosterFile == null));
@@ -101,25 +124,23 @@ public class MultimediaBean implements Serializable {
                 LOGGER.info("🔍 uploadedPosterFile.getSubmittedFileName(): " + uploadedPosterFile.getSubmittedFileName());
             }
             
-            // Subir archivos si están presentes
-            boolean fileUploaded = false;
+            // Subir archivos si están presentes; poster y ficha se transfieren en paralelo
+            Map<FileType, UploadedFile> files = new EnumMap<>(FileType.class);
+            if (uploadedPosterFile != null && uploadedPosterFile.getSize() > 0) {
+                LOGGER.info("Subiendo poster de tamaño: " + uploadedPosterFile.getSize() + " bytes");
+                // Convertir Part a UploadedFile
+                files.put(FileType.POSTER, new PartUploadedFile(uploadedPosterFile));
+            }
+            if (technicalFile != null && technicalFile.getSize() > 0) {
+                LOGGER.info("Subiendo ficha técnica de tamaño: " + technicalFile.getSize() + " bytes");
+                files.put(FileType.TECHNICAL_SHEET, technicalFile);
+            }
+            
+            boolean fileUploaded = !files.isEmpty();
             try {
-                if (uploadedPosterFile != null && uploadedPosterFile.getSize() > 0) {
-                    LOGGER.info("Subiendo poster de tamaño: " + uploadedPosterFile.getSize() + " bytes");
-                    
-                    // Convertir Part a UploadedFile
-                    UploadedFile posterFile = new PartUploadedFile(uploadedPosterFile);
-                    
-                    multimediaService.uploadFile(selectedTitle, posterFile, FileType.POSTER, getCurrentUser());
-                    fileUploaded = true;
-                    LOGGER.info("Poster subido exitosamente");
-                }
-                
-                if (technicalFile != null && technicalFile.getSize() > 0) {
-                    LOGGER.info("Subiendo ficha técnica de tamaño: " + technicalFile.getSize() + " bytes");
-                    multimediaService.uploadFile(selectedTitle, technicalFile, FileType.TECHNICAL_SHEET, getCurrentUser());
-                    fileUploaded = true;
-                    LOGGER.info("Ficha técnica subida exitosamente");
+                if (fileUploaded) {
+                    multimediaService.uploadFiles(selectedTitle, files, getCurrentUser());
+                    LOGGER.info("Archivos subidos exitosamente: " + files.keySet());
                 }
             } catch (Exception e) {
                 LOGGER.log(Level.SEVERE, "Error al subir archivos", e);
@@ -167,6 +188,7 @@ public class MultimediaBean implements Serializable {
     public void delete(MediaTitle title) {
         try {
             multimediaService.deleteMediaTitle(title.getId());
+            titleCountsByGenre = null;
             addInfoMessage("Título multimedia eliminado exitosamente");
         } catch (MultimediaException e) {
             addErrorMessage("Error al eliminar: " + e.getMessage());
@@ -182,6 +204,7 @@ public class MultimediaBean implements Serializable {
     public void newGenre() {
         clearFacesMessages();
         this.selectedGenre = new MovieGenre();
+        this.titleCountsByGenre = null;
         this.genreDialogVisible = true;
     }
     
@@ -206,6 +229,7 @@ public class MultimediaBean implements Serializable {
             }
             
             multimediaService.saveGenre(selectedGenre);
+            titleCountsByGenre = null;
             this.genreDialogVisible = false;
             addInfoMessage("Género guardado exitosamente");
             this.selectedGenre = new MovieGenre();
@@ -228,6 +252,7 @@ public class MultimediaBean implements Serializable {
     public void deleteGenre(MovieGenre genre) {
         try {
             multimediaService.deleteGenre(genre.getId());
+            titleCountsByGenre = null;
             addInfoMessage("Género eliminado exitosamente");
         } catch (MultimediaException e) {
             addErrorMessage("Error al eliminar género: " + e.getMessage());
@@ -255,6 +280,59 @@ public class MultimediaBean implements Serializable {
     
 
     
+    // ==================== Bulk Poster Import ====================
+    
+    public void startBulkZipImport() {
+        if (bulkZipFile == null || bulkZipFile.getSize() == 0) {
+            addBulkMessage(FacesMessage.SEVERITY_WARN, "Selecciona un archivo ZIP");
+            return;
+        }
+        try (java.io.InputStream in = bulkZipFile.getInputStream()) {
+            BulkImportReport report = bulkPosterImportService.startUploadedZip(
+                    in, bulkZipFile.getSubmittedFileName(), getCurrentUser());
+            bulkJobId = report.getJobId();
+            bulkZipFile = null;
+            addBulkMessage(FacesMessage.SEVERITY_INFO, "Carga masiva iniciada: " + report.getSource());
+        } catch (MultimediaException e) {
+            addBulkMessage(FacesMessage.SEVERITY_ERROR, e.getMessage());
+        } catch (java.io.IOException e) {
+            LOGGER.log(Level.WARNING, "Error al leer el ZIP de la carga masiva", e);
+            addBulkMessage(FacesMessage.SEVERITY_ERROR, "No se pudo leer el archivo ZIP");
+        }
+    }
+    
+    public void startBulkServerImport() {
+        try {
+            BulkImportReport report = bulkPosterImportService.startFromServer(bulkServerPath, getCurrentUser());
+            bulkJobId = report.getJobId();
+            addBulkMessage(FacesMessage.SEVERITY_INFO, "Carga masiva iniciada: " + report.getSource());
+        } catch (MultimediaException e) {
+            addBulkMessage(FacesMessage.SEVERITY_ERROR, e.getMessage());
+        }
+    }
+    
+    public BulkImportReport getBulkReport() {
+        return bulkJobId != null ? bulkPosterImportService.getReport(bulkJobId) : null;
+    }
+    
+    public boolean isBulkImportRunning() {
+        BulkImportReport report = getBulkReport();
+        return report != null && !report.isFinished();
+    }
+    
+    public String getBulkImportRoot() {
+        return bulkPosterImportService.getImportRoot().toString();
+    }
+    
+    // Límite que muestra el formulario de subida por partes de fichas técnicas
+    public long getMaxTechnicalSheetSizeMb() {
+        return FileStorageService.getMaxTechnicalSheetSizeMb();
+    }
+    
+    private void addBulkMessage(FacesMessage.Severity severity, String message) {
+        FacesContext.getCurrentInstance().addMessage("frmBulk:msgBulk", new FacesMessage(severity, message, null));
+    }
+    
     public void deleteFile(MediaFile file) {
         try {
             multimediaService.deleteFile(file.getId());
@@ -276,6 +354,13 @@ public class MultimediaBean implements Serializable {
         }
     }
     
+    /**
+     * Modelo paginado en servidor para la tabla de títulos
+     */
+    public MediaTitleLazyDataModel getLazyTitles() {
+        return lazyTitles;
+    }
+    
     public List<MovieGenre> getGenres() {
         try {
             return multimediaService.getAllGenres();
@@ -291,6 +376,10 @@ public class MultimediaBean implements Serializable {
     
     public MediaFile getPosterForTitle(MediaTitle title) {
         try {
+            MultimediaService.TitleFilesIndex index = lazyTitles.getFileIndex();
+            if (index.covers(title.getId())) {
+                return index.getPoster(title.getId());
+            }
             return multimediaService.getPosterForTitle(title.getId());
         } catch (Exception e) {
             LOGGER.log(Level.WARNING, "Error al obtener poster para título: " + title.getId(), e);
@@ -298,8 +387,45 @@ public class MultimediaBean implements Serializable {
         }
     }
     
+    /**
+     * URL del poster a través de MultimediaFileServlet (caché local de blobs), versionada con el ETag.
+     * Usa la miniatura más pequeña que cubra el ancho mostrado; si aún no existe, el original.
+     */
+    public String getPosterUrl(MediaTitle title) {
+        MediaFile poster = getPosterForTitle(title);
+        if (poster == null || poster.getLocalUrl() == null) {
+            return null;
+        }
+        for (MediaFileVariant variant : getPosterVariants(title, poster)) {
+            if (variant.getWidth() >= POSTER_DISPLAY_WIDTH) {
+                return fileUrl(variant.getBlobName(), variant.getEtag());
+            }
+        }
+        return fileUrl(poster.getLocalUrl(), poster.getEtag());
+    }
+    
+    private List<MediaFileVariant> getPosterVariants(MediaTitle title, MediaFile poster) {
+        MultimediaService.TitleFilesIndex index = lazyTitles.getFileIndex();
+        if (index.covers(title.getId())) {
+            return index.getPosterVariants(title.getId());
+        }
+        return multimediaService.getVariantsForFile(poster.getId());
+    }
+    
+    private static String fileUrl(String blobName, String etag) {
+        String url = "/multimedia/" + blobName;
+        if (etag != null) {
+            url += "?v=" + URLEncoder.encode(etag.replace("\"", ""), StandardCharsets.UTF_8);
+        }
+        return url;
+    }
+    
     public List<MediaFile> getTechnicalSheetsForTitle(MediaTitle title) {
         try {
+            MultimediaService.TitleFilesIndex index = lazyTitles.getFileIndex();
+            if (index.covers(title.getId())) {
+                return index.getTechnicalSheets(title.getId());
+            }
             return multimediaService.getTechnicalSheetsForTitle(title.getId());
         } catch (Exception e) {
             LOGGER.log(Level.WARNING, "Error al obtener fichas técnicas para título: " + title.getId(), e);
@@ -309,7 +435,10 @@ public class MultimediaBean implements Serializable {
     
     public int getTitleCountForGenre(MovieGenre genre) {
         try {
-            return multimediaService.getTitleCountForGenre(genre.getId());
+            if (titleCountsByGenre == null) {
+                titleCountsByGenre = multimediaService.getTitleCountsByGenre();
+            }
+            return titleCountsByGenre.getOrDefault(genre.getId(), 0L).intValue();
         } catch (Exception e) {
             LOGGER.log(Level.WARNING, "Error al obtener conteo de títulos para género: " + genre.getId(), e);
             return 0;
@@ -519,6 +648,22 @@ public class MultimediaBean implements Serializable {
         this.technicalFile = technicalFile;
     }
     
+    public Part getBulkZipFile() {
+        return bulkZipFile;
+    }
+    
+    public void setBulkZipFile(Part bulkZipFile) {
+        this.bulkZipFile = bulkZipFile;
+    }
+    
+    public String getBulkServerPath() {
+        return bulkServerPath;
+    }
+    
+    public void setBulkServerPath(String bulkServerPath) {
+        this.bulkServerPath = bulkServerPath;
+    }
+    
     // ==================== Inner Classes ====================
     
     /**
@@ -0,0 +1,6 @@
+package com.jaestrada.multimedia.enums;
+
+public enum BlobDeletionStatus {
+    PENDING,
+    FAILED
+}
\ No newline at end of file
@@ -0,0 +1,11 @@
+package com.jaestrada.multimedia.enums;
+
+public enum BulkImportStatus {
+    UPLOADED,
+    DEDUPLICATED,
+    NO_MATCH,
+    AMBIGUOUS,
+    DUPLICATE,
+    REJECTED,
+    FAILED
+}
\ No newline at end of file
@@ -0,0 +1,118 @@
+package com.jaestrada.multimedia.models;
+
+import com.jaestrada.multimedia.enums.BlobDeletionStatus;
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.time.LocalDateTime;
+
+/**
+ * Blob pendiente de eliminar en Azure. Se inserta en la misma transacción que borra
+ * el registro y un proceso en segundo plano lo elimina (por lotes) del almacenamiento.
+ */
+@Entity
+@Table(name = "blob_deletion_queue", indexes = {
+    @Index(name = "idx_blob_deletion_next_attempt", columnList = "status, next_attempt_at")
+})
+public class BlobDeletion {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "blob_deletion_id")
+    private Long id;
+
+    @NotNull(message = "El nombre del blob es obligatorio")
+    @Size(max = 500, message = "El nombre del blob no puede exceder 500 caracteres")
+    @Column(name = "blob_name", nullable = false, length = 500)
+    private String blobName;
+
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 20)
+    private BlobDeletionStatus status = BlobDeletionStatus.PENDING;
+
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Size(max = 1000)
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    public void prePersist() {
+        this.createdAt = LocalDateTime.now();
+        if (this.nextAttemptAt == null) {
+            this.nextAttemptAt = this.createdAt;
+        }
+    }
+
+    // Constructors
+    public BlobDeletion() {}
+
+    public BlobDeletion(String blobName) {
+        this.blobName = blobName;
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getBlobName() {
+        return blobName;
+    }
+
+    public void setBlobName(String blobName) {
+        this.blobName = blobName;
+    }
+
+    public BlobDeletionStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(BlobDeletionStatus status) {
+        this.status = status;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public LocalDateTime getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+
+    public void setNextAttemptAt(LocalDateTime nextAttemptAt) {
+        this.nextAttemptAt = nextAttemptAt;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
\ No newline at end of file
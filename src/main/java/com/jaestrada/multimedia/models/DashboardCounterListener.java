@@ -0,0 +1,106 @@
+package com.jaestrada.multimedia.models;
+
+import com.jaestrada.multimedia.services.DashboardCounters;
+import jakarta.enterprise.inject.spi.CDI;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Listener JPA que mantiene los contadores del dashboard al insertar, actualizar o eliminar
+ * títulos y archivos. El estado contado se guarda en campos transitorios de la entidad
+ * para poder calcular la diferencia en @PostUpdate y @PostRemove.
+ */
+public class DashboardCounterListener {
+
+    private static final Logger LOGGER = Logger.getLogger(DashboardCounterListener.class.getName());
+
+    // El EntityManagerFactory se crea fuera de CDI, así que el bean se busca manualmente
+    private volatile DashboardCounters counters;
+
+    @PostLoad
+    public void postLoad(Object entity) {
+        if (entity instanceof MediaTitle) {
+            ((MediaTitle) entity).rememberCountedState();
+        } else if (entity instanceof MediaFile) {
+            ((MediaFile) entity).rememberCountedState();
+        }
+    }
+
+    @PostPersist
+    public void postPersist(Object entity) {
+        DashboardCounters c = counters();
+        if (entity instanceof MediaTitle) {
+            MediaTitle title = (MediaTitle) entity;
+            if (c != null) {
+                c.titleAdded(title.getTitleType());
+            }
+            title.rememberCountedState();
+        } else if (entity instanceof MediaFile) {
+            MediaFile file = (MediaFile) entity;
+            if (c != null) {
+                c.fileAdded(file.getFileType(), sizeOf(file.getSizeBytes()), file.getBlobUrl() != null);
+            }
+            file.rememberCountedState();
+        }
+    }
+
+    @PostUpdate
+    public void postUpdate(Object entity) {
+        DashboardCounters c = counters();
+        if (entity instanceof MediaTitle) {
+            MediaTitle title = (MediaTitle) entity;
+            if (c != null && title.getCountedTitleType() != null) {
+                c.titleTypeChanged(title.getCountedTitleType(), title.getTitleType());
+            }
+            title.rememberCountedState();
+        } else if (entity instanceof MediaFile) {
+            MediaFile file = (MediaFile) entity;
+            if (c != null && file.getCountedFileType() != null) {
+                c.fileRemoved(file.getCountedFileType(), file.getCountedSizeBytes(), file.isCountedInAzureBlob());
+                c.fileAdded(file.getFileType(), sizeOf(file.getSizeBytes()), file.getBlobUrl() != null);
+            }
+            file.rememberCountedState();
+        }
+    }
+
+    @PostRemove
+    public void postRemove(Object entity) {
+        DashboardCounters c = counters();
+        if (c == null) {
+            return;
+        }
+        if (entity instanceof MediaTitle) {
+            MediaTitle title = (MediaTitle) entity;
+            c.titleRemoved(title.getCountedTitleType() != null ? title.getCountedTitleType() : title.getTitleType());
+        } else if (entity instanceof MediaFile) {
+            MediaFile file = (MediaFile) entity;
+            if (file.getCountedFileType() != null) {
+                c.fileRemoved(file.getCountedFileType(), file.getCountedSizeBytes(), file.isCountedInAzureBlob());
+            } else {
+                c.fileRemoved(file.getFileType(), sizeOf(file.getSizeBytes()), file.getBlobUrl() != null);
+            }
+        }
+    }
+
+    private DashboardCounters counters() {
+        DashboardCounters c = counters;
+        if (c == null) {
+            try {
+                c = CDI.current().select(DashboardCounters.class).get();
+                counters = c;
+            } catch (Exception e) {
+                LOGGER.log(Level.FINE, "Contadores del dashboard no disponibles", e);
+            }
+        }
+        return c;
+    }
+
+    private static long sizeOf(Long sizeBytes) {
+        return sizeBytes != null ? sizeBytes : 0L;
+    }
+}
@@ -6,9 +6,12 @@ import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 
 @Entity
 @Table(name = "media_files")
+@EntityListeners(DashboardCounterListener.class)
 public class MediaFile {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -52,11 +55,44 @@ public class MediaFile {
     @Column(name = "uploaded_by", length = 50)
     private String uploadedBy;
 
+    // Miniaturas del poster, de menor a mayor ancho; se eliminan junto con el archivo
+    @OneToMany(mappedBy = "mediaFile", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
+    @OrderBy("width ASC")
+    private List<MediaFileVariant> variants = new ArrayList<>();
+
+    // Estado con el que el archivo está contabilizado en el dashboard
+    @Transient
+    private FileType countedFileType;
+
+    @Transient
+    private long countedSizeBytes;
+
+    @Transient
+    private boolean countedInAzureBlob;
+
     @PrePersist
     public void prePersist() {
         this.uploadedAt = LocalDateTime.now();
     }
 
+    void rememberCountedState() {
+        this.countedFileType = this.fileType;
+        this.countedSizeBytes = this.sizeBytes != null ? this.sizeBytes : 0L;
+        this.countedInAzureBlob = this.blobUrl != null;
+    }
+
+    FileType getCountedFileType() {
+        return countedFileType;
+    }
+
+    long getCountedSizeBytes() {
+        return countedSizeBytes;
+    }
+
+    boolean isCountedInAzureBlob() {
+        return countedInAzureBlob;
+    }
+
     // Constructors
     public MediaFile() {}
 
@@ -149,6 +185,14 @@ public class MediaFile {
         this.uploadedBy = uploadedBy;
     }
 
+    public List<MediaFileVariant> getVariants() {
+        return variants;
+    }
+
+    public void setVariants(List<MediaFileVariant> variants) {
+        this.variants = variants;
+    }
+
     @Override
     public String toString() {
         return "MediaFile{" +
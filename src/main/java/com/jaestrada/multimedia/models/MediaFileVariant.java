@@ -0,0 +1,140 @@
+package com.jaestrada.multimedia.models;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.time.LocalDateTime;
+
+/**
+ * Versión reducida (miniatura) de un poster, guardada como blob hermano del original.
+ * Se generan en segundo plano después de subir el poster.
+ */
+@Entity
+@Table(name = "media_file_variants", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_media_file_variant_width", columnNames = {"media_file_id", "width"})
+})
+public class MediaFileVariant {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "media_file_variant_id")
+    private Long id;
+
+    @NotNull(message = "El archivo original es obligatorio")
+    @ManyToOne(optional = false, fetch = FetchType.LAZY)
+    @JoinColumn(name = "media_file_id", nullable = false)
+    private MediaFile mediaFile;
+
+    @Column(name = "width", nullable = false)
+    private int width;
+
+    @Column(name = "height", nullable = false)
+    private int height;
+
+    @NotNull(message = "El nombre del blob es obligatorio")
+    @Size(max = 500, message = "El nombre del blob no puede exceder 500 caracteres")
+    @Column(name = "blob_name", nullable = false, length = 500)
+    private String blobName;
+
+    @Size(max = 100, message = "El etag no puede exceder 100 caracteres")
+    @Column(name = "etag", length = 100)
+    private String etag;
+
+    @Size(max = 50, message = "El tipo de contenido no puede exceder 50 caracteres")
+    @Column(name = "content_type", length = 50)
+    private String contentType;
+
+    @Column(name = "size_bytes")
+    private Long sizeBytes;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    public void prePersist() {
+        this.createdAt = LocalDateTime.now();
+    }
+
+    // Constructors
+    public MediaFileVariant() {}
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public MediaFile getMediaFile() {
+        return mediaFile;
+    }
+
+    public void setMediaFile(MediaFile mediaFile) {
+        this.mediaFile = mediaFile;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public void setWidth(int width) {
+        this.width = width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public void setHeight(int height) {
+        this.height = height;
+    }
+
+    public String getBlobName() {
+        return blobName;
+    }
+
+    public void setBlobName(String blobName) {
+        this.blobName = blobName;
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+
+    public void setEtag(String etag) {
+        this.etag = etag;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public Long getSizeBytes() {
+        return sizeBytes;
+    }
+
+    public void setSizeBytes(Long sizeBytes) {
+        this.sizeBytes = sizeBytes;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    @Override
+    public String toString() {
+        return "MediaFileVariant{" +
+                "id=" + id +
+                ", width=" + width +
+                ", height=" + height +
+                ", blobName='" + blobName + '\'' +
+                ", sizeBytes=" + sizeBytes +
+                '}';
+    }
+}
\ No newline at end of file
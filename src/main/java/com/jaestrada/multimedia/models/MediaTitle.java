@@ -10,6 +10,7 @@ import java.util.List;
 
 @Entity
 @Table(name = "media_titles")
+@EntityListeners(DashboardCounterListener.class)
 public class MediaTitle {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -54,11 +55,23 @@ public class MediaTitle {
     )
     private List<MovieGenre> genres = new ArrayList<>();
 
+    // Tipo con el que el título está contabilizado en el dashboard
+    @Transient
+    private TitleType countedTitleType;
+
     @PrePersist
     public void prePersist() {
         this.createdAt = LocalDateTime.now();
     }
 
+    void rememberCountedState() {
+        this.countedTitleType = this.titleType;
+    }
+
+    TitleType getCountedTitleType() {
+        return countedTitleType;
+    }
+
     // Getters and Setters
     public Long getId() {
         return id;
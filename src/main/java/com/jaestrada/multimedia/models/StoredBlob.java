@@ -0,0 +1,138 @@
+package com.jaestrada.multimedia.models;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.time.LocalDateTime;
+
+/**
+ * Blob direccionado por contenido (nombre derivado del SHA-256). Varios MediaFile pueden
+ * apuntar al mismo blob por su localUrl; refCount cuenta esas referencias y el blob solo
+ * se encola para eliminar cuando llega a cero.
+ */
+@Entity
+@Table(name = "stored_blobs", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_stored_blob_hash", columnNames = "content_hash"),
+    @UniqueConstraint(name = "uk_stored_blob_name", columnNames = "blob_name")
+})
+public class StoredBlob {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "stored_blob_id")
+    private Long id;
+
+    @NotNull
+    @Size(max = 64)
+    @Column(name = "content_hash", nullable = false, length = 64)
+    private String contentHash;
+
+    @NotNull
+    @Size(max = 500)
+    @Column(name = "blob_name", nullable = false, length = 500)
+    private String blobName;
+
+    @Size(max = 500)
+    @Column(name = "blob_url", length = 500)
+    private String blobUrl;
+
+    @Size(max = 100)
+    @Column(name = "etag", length = 100)
+    private String etag;
+
+    @Size(max = 50)
+    @Column(name = "content_type", length = 50)
+    private String contentType;
+
+    @Column(name = "size_bytes")
+    private Long sizeBytes;
+
+    @Column(name = "ref_count", nullable = false)
+    private int refCount;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    public void prePersist() {
+        this.createdAt = LocalDateTime.now();
+    }
+
+    // Constructors
+    public StoredBlob() {}
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    public String getBlobName() {
+        return blobName;
+    }
+
+    public void setBlobName(String blobName) {
+        this.blobName = blobName;
+    }
+
+    public String getBlobUrl() {
+        return blobUrl;
+    }
+
+    public void setBlobUrl(String blobUrl) {
+        this.blobUrl = blobUrl;
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+
+    public void setEtag(String etag) {
+        this.etag = etag;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public Long getSizeBytes() {
+        return sizeBytes;
+    }
+
+    public void setSizeBytes(Long sizeBytes) {
+        this.sizeBytes = sizeBytes;
+    }
+
+    public int getRefCount() {
+        return refCount;
+    }
+
+    public void setRefCount(int refCount) {
+        this.refCount = refCount;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    @Override
+    public String toString() {
+        return "StoredBlob{" +
+                "id=" + id +
+                ", contentHash='" + contentHash + '\'' +
+                ", blobName='" + blobName + '\'' +
+                ", refCount=" + refCount +
+                '}';
+    }
+}
\ No newline at end of file
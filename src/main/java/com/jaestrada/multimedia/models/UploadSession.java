@@ -0,0 +1,208 @@
+package com.jaestrada.multimedia.models;
+
+import com.jaestrada.multimedia.enums.FileType;
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Subida por partes en curso. Cada parte se guarda en el almacenamiento como bloque sin publicar
+ * y su índice queda en completedChunks, así el navegador puede retomar la subida tras un corte
+ * enviando solo las que faltan. Mientras se confirma queda marcada (completing), así dos confirmaciones
+ * simultáneas no registran el archivo dos veces; la fila se elimina al terminar de confirmar, descartar
+ * o expirar la subida.
+ */
+@Entity
+@Table(name = "upload_sessions")
+public class UploadSession {
+    @Id
+    @Column(name = "upload_id", length = 36)
+    private String id;
+
+    @NotNull
+    @Column(name = "media_title_id", nullable = false)
+    private Long mediaTitleId;
+
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    @Column(name = "file_type", nullable = false)
+    private FileType fileType;
+
+    @Size(max = 255)
+    @Column(name = "file_name", length = 255)
+    private String fileName;
+
+    @NotNull
+    @Size(max = 500)
+    @Column(name = "blob_name", nullable = false, length = 500)
+    private String blobName;
+
+    @Size(max = 50)
+    @Column(name = "content_type", length = 50)
+    private String contentType;
+
+    @Column(name = "total_size", nullable = false)
+    private long totalSize;
+
+    @Column(name = "chunk_size", nullable = false)
+    private int chunkSize;
+
+    @Size(max = 100)
+    @Column(name = "uploaded_by", length = 100)
+    private String uploadedBy;
+
+    // Con default para que la columna se pueda agregar a una tabla con filas
+    @Column(name = "completing", nullable = false, columnDefinition = "boolean not null default false")
+    private boolean completing;
+
+    @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "upload_session_chunks", joinColumns = @JoinColumn(name = "upload_id"))
+    @Column(name = "chunk_index", nullable = false)
+    private Set<Integer> completedChunks = new HashSet<>();
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    public void prePersist() {
+        this.createdAt = LocalDateTime.now();
+        this.updatedAt = this.createdAt;
+    }
+
+    @PreUpdate
+    public void preUpdate() {
+        this.updatedAt = LocalDateTime.now();
+    }
+
+    // Constructors
+    public UploadSession() {}
+
+    // Cantidad de partes en que se divide el archivo
+    public int getChunkCount() {
+        return (int) ((totalSize + chunkSize - 1) / chunkSize);
+    }
+
+    // Tamaño esperado de una parte: todas miden chunkSize salvo la última
+    public long getExpectedChunkSize(int chunkIndex) {
+        return Math.min(chunkSize, totalSize - (long) chunkIndex * chunkSize);
+    }
+
+    public boolean isComplete() {
+        return completedChunks.size() == getChunkCount();
+    }
+
+    // Getters and Setters
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public Long getMediaTitleId() {
+        return mediaTitleId;
+    }
+
+    public void setMediaTitleId(Long mediaTitleId) {
+        this.mediaTitleId = mediaTitleId;
+    }
+
+    public FileType getFileType() {
+        return fileType;
+    }
+
+    public void setFileType(FileType fileType) {
+        this.fileType = fileType;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public String getBlobName() {
+        return blobName;
+    }
+
+    public void setBlobName(String blobName) {
+        this.blobName = blobName;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public long getTotalSize() {
+        return totalSize;
+    }
+
+    public void setTotalSize(long totalSize) {
+        this.totalSize = totalSize;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    public String getUploadedBy() {
+        return uploadedBy;
+    }
+
+    public void setUploadedBy(String uploadedBy) {
+        this.uploadedBy = uploadedBy;
+    }
+
+    public boolean isCompleting() {
+        return completing;
+    }
+
+    public void setCompleting(boolean completing) {
+        this.completing = completing;
+    }
+
+    public Set<Integer> getCompletedChunks() {
+        return completedChunks;
+    }
+
+    public void setCompletedChunks(Set<Integer> completedChunks) {
+        this.completedChunks = completedChunks;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    @Override
+    public String toString() {
+        return "UploadSession{" +
+                "id='" + id + '\'' +
+                ", mediaTitleId=" + mediaTitleId +
+                ", fileType=" + fileType +
+                ", blobName='" + blobName + '\'' +
+                ", completedChunks=" + completedChunks.size() + "/" + getChunkCount() +
+                '}';
+    }
+}
\ No newline at end of file
@@ -1,34 +1,88 @@
 package com.jaestrada.multimedia.services;
 
+import com.azure.core.http.rest.Response;
+import com.azure.core.util.BinaryData;
+import com.azure.core.util.Context;
+import com.azure.core.util.FluxUtil;
+import com.azure.storage.blob.BlobAsyncClient;
 import com.azure.storage.blob.BlobClient;
+import com.azure.storage.blob.BlobContainerAsyncClient;
 import com.azure.storage.blob.BlobContainerClient;
 import com.azure.storage.blob.BlobServiceClient;
 import com.azure.storage.blob.BlobServiceClientBuilder;
+import com.azure.storage.blob.batch.BlobBatch;
+import com.azure.storage.blob.batch.BlobBatchClient;
+import com.azure.storage.blob.batch.BlobBatchClientBuilder;
+import com.azure.storage.blob.models.BlobErrorCode;
+import com.azure.storage.blob.models.BlobHttpHeaders;
+import com.azure.storage.blob.models.BlobItem;
 import com.azure.storage.blob.models.BlobProperties;
+import com.azure.storage.blob.models.BlobStorageException;
+import com.azure.storage.blob.models.BlockBlobItem;
+import com.azure.storage.blob.models.ListBlobsOptions;
+import com.azure.storage.blob.models.ParallelTransferOptions;
+import com.azure.storage.blob.options.BlobParallelUploadOptions;
+import com.azure.storage.blob.options.BlockBlobCommitBlockListOptions;
 import com.azure.storage.blob.sas.BlobSasPermission;
 import com.azure.storage.blob.sas.BlobServiceSasSignatureValues;
-import com.jaestrada.multimedia.enums.FileType;
+import com.azure.storage.blob.specialized.BlockBlobClient;
 import com.jaestrada.multimedia.exceptions.MultimediaException;
-import jakarta.annotation.PostConstruct;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Typed;
+import reactor.core.scheduler.Schedulers;
 
-import java.io.ByteArrayInputStream;
-import java.time.LocalDateTime;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.OffsetDateTime;
-import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+/**
+ * BlobStore sobre Azure Blob Storage. Los clientes se crean en el primer uso, así la aplicación
+ * arranca aunque Azure no esté configurado (p. ej. con STORAGE_BACKEND=local).
+ * Se expone solo con su propio tipo para no competir con el BlobStore que produce BlobStoreProducer.
+ */
 @ApplicationScoped
-public class AzureBlobStorageService {
+@Typed(AzureBlobStorageService.class)
+public class AzureBlobStorageService implements BlobStore {
     
     private static final Logger LOGGER = Logger.getLogger(AzureBlobStorageService.class.getName());
     
+    private static final String DEFAULT_CACHE_CONTROL = "public, max-age=3600";
+    private static final long DEFAULT_UPLOAD_BLOCK_SIZE_MB = 4;
+    private static final int DEFAULT_UPLOAD_MAX_CONCURRENCY = 4;
+    // Tamaño de cada lectura del stream en la subida asíncrona
+    private static final int STREAM_CHUNK_SIZE = 64 * 1024;
+    
+    private volatile boolean initialized;
+    
     private BlobServiceClient blobServiceClient;
     private BlobContainerClient containerClient;
+    private BlobContainerAsyncClient containerAsyncClient;
+    private BlobBatchClient batchClient;
+    
+    // Subida por bloques: la memoria usada por subida queda acotada a bloque x concurrencia
+    private ParallelTransferOptions transferOptions;
+    private String cacheControl;
     
-    @PostConstruct
-    public void init() {
+    private void ensureInitialized() throws MultimediaException {
+        if (!initialized) {
+            synchronized (this) {
+                if (!initialized) {
+                    init();
+                    initialized = true;
+                }
+            }
+        }
+    }
+    
+    private void init() throws MultimediaException {
         try {
             String connectionString = System.getProperty("AZURE_STORAGE_CONNECTION_STRING");
             String containerName = System.getProperty("AZURE_STORAGE_CONTAINER_NAME");
@@ -46,6 +100,16 @@ public class AzureBlobStorageService {
                     .buildClient();
             
             this.containerClient = blobServiceClient.getBlobContainerClient(containerName);
+            this.containerAsyncClient = new BlobServiceClientBuilder()
+                    .connectionString(connectionString)
+                    .buildAsyncClient()
+                    .getBlobContainerAsyncClient(containerName);
+            this.batchClient = new BlobBatchClientBuilder(containerClient).buildClient();
+            this.transferOptions = buildTransferOptions();
+            
+            String configuredCacheControl = System.getProperty("AZURE_BLOB_CACHE_CONTROL");
+            this.cacheControl = configuredCacheControl != null && !configuredCacheControl.isEmpty()
+                ? configuredCacheControl : DEFAULT_CACHE_CONTROL;
             
             // Crear el contenedor si no existe con acceso público a blobs
             if (!containerClient.exists()) {
@@ -55,12 +119,12 @@ public class AzureBlobStorageService {
             
             // Configurar acceso público para que las imágenes sean accesibles
             try {
-                com.azure.storage.blob.models.PublicAccessType currentAccess = 
+                com.azure.storage.blob.models.PublicAccessType currentAccess =
                     containerClient.getProperties().getBlobPublicAccess();
                 
                 if (currentAccess != com.azure.storage.blob.models.PublicAccessType.BLOB) {
                     containerClient.setAccessPolicy(
-                        com.azure.storage.blob.models.PublicAccessType.BLOB, 
+                        com.azure.storage.blob.models.PublicAccessType.BLOB,
                         null
                     );
                     LOGGER.info("Acceso público configurado para el contenedor: " + containerName);
@@ -74,46 +138,42 @@ public class AzureBlobStorageService {
             
         } catch (Exception e) {
             LOGGER.log(Level.SEVERE, "Error al inicializar Azure Blob Storage", e);
-            throw new RuntimeException("No se pudo inicializar Azure Blob Storage", e);
+            throw new MultimediaException(
+                MultimediaException.Type.STORAGE_ERROR,
+                "No se pudo inicializar Azure Blob Storage: " + e.getMessage(),
+                e
+            );
         }
     }
     
+    @Override
+    public String getName() {
+        return "azure";
+    }
+    
     /**
-     * Sube un archivo a Azure Blob Storage
+     * Sube un archivo a Azure Blob Storage leyendo del stream por bloques, sin cargarlo completo en memoria
      */
-    public BlobUploadResult uploadFile(String titleName, FileType fileType, byte[] fileContent, 
-                                     String contentType, String originalFileName) throws MultimediaException {
+    @Override
+    public BlobUploadResult put(String blobName, InputStream data, long length, String contentType,
+                                Map<String, String> metadata) throws MultimediaException {
+        ensureInitialized();
         try {
-            LOGGER.info("🔵 Iniciando subida a Azure Blob Storage...");
-            LOGGER.info("🔵 Título: " + titleName + ", Tipo: " + fileType + ", Tamaño: " + fileContent.length + " bytes");
-            
-            String blobName = generateBlobName(titleName, fileType, originalFileName);
-            LOGGER.info("🔵 Nombre del blob generado: " + blobName);
+            LOGGER.info("🔵 Iniciando subida a Azure Blob Storage: " + blobName + " (" + length + " bytes)");
             
             BlobClient blobClient = containerClient.getBlobClient(blobName);
-            LOGGER.info("🔵 BlobClient creado, iniciando upload...");
             
-            // Subir el archivo
-            blobClient.upload(new ByteArrayInputStream(fileContent), fileContent.length, true);
-            LOGGER.info("🔵 Upload completado, estableciendo headers...");
+            // Headers y metadatos viajan con la subida; el ETag sale de la misma respuesta
+            BlobParallelUploadOptions options = applyUploadOptions(
+                new BlobParallelUploadOptions(BinaryData.fromStream(data, length)), blobName, contentType, metadata);
             
-            // Establecer el content type
-            blobClient.setHttpHeaders(new com.azure.storage.blob.models.BlobHttpHeaders()
-                    .setContentType(contentType));
-            LOGGER.info("🔵 Headers establecidos, obteniendo propiedades...");
+            long start = System.nanoTime();
+            Response<BlockBlobItem> response = blobClient.uploadWithResponse(options, null, Context.NONE);
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
             
-            // Obtener propiedades del blob
-            BlobProperties properties = blobClient.getProperties();
-            LOGGER.info("🔵 Propiedades obtenidas");
+            BlobUploadResult result = toUploadResult(blobName, blobClient.getBlobUrl(), response.getValue(), contentType, length);
             
-            BlobUploadResult result = new BlobUploadResult();
-            result.setBlobUrl(blobClient.getBlobUrl());
-            result.setEtag(properties.getETag());
-            result.setContentType(contentType);
-            result.setSizeBytes((long) fileContent.length);
-            result.setBlobName(blobName);
-            
-            LOGGER.info("✅ Archivo subido exitosamente a Azure Blob: " + blobName);
+            LOGGER.info("✅ Archivo subido exitosamente a Azure Blob: " + blobName + " en " + elapsedMillis + " ms");
             LOGGER.info("✅ URL: " + result.getBlobUrl());
             return result;
             
@@ -128,24 +188,258 @@ public class AzureBlobStorageService {
     }
     
     /**
-     * Genera una URL SAS temporal para descargar un archivo
+     * Sube un archivo con el cliente asíncrono: la E/S de red corre en el event loop del SDK y las
+     * lecturas del stream, que sí bloquean, en boundedElastic para no detener ese event loop.
+     * El stream lo cierra quien lo abrió, al completarse.
      */
-    public String generateSasUrl(String blobName, int hoursValid) throws MultimediaException {
+    @Override
+    public CompletableFuture<BlobUploadResult> putAsync(String blobName, InputStream data, long length,
+                                                        String contentType, Map<String, String> metadata) {
         try {
-            BlobClient blobClient = containerClient.getBlobClient(blobName);
+            ensureInitialized();
+        } catch (MultimediaException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        
+        BlobAsyncClient blobClient = containerAsyncClient.getBlobAsyncClient(blobName);
+        BlobParallelUploadOptions options = applyUploadOptions(
+            new BlobParallelUploadOptions(FluxUtil.toFluxByteBuffer(data, STREAM_CHUNK_SIZE)
+                .subscribeOn(Schedulers.boundedElastic())), blobName, contentType, metadata);
+        
+        long start = System.nanoTime();
+        return blobClient.uploadWithResponse(options)
+            .map(response -> {
+                long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+                LOGGER.info("✅ Archivo subido (asíncrono) a Azure Blob: " + blobName + " en " + elapsedMillis + " ms");
+                return toUploadResult(blobName, blobClient.getBlobUrl(), response.getValue(), contentType, length);
+            })
+            .toFuture();
+    }
+    
+    private BlobParallelUploadOptions applyUploadOptions(BlobParallelUploadOptions options, String blobName,
+                                                         String contentType, Map<String, String> metadata) {
+        return options
+            .setParallelTransferOptions(transferOptions)
+            .setHeaders(new BlobHttpHeaders()
+                .setContentType(contentType)
+                .setCacheControl(FileStorageService.isFingerprinted(blobName)
+                    ? FileStorageService.IMMUTABLE_CACHE_CONTROL : cacheControl))
+            .setMetadata(metadata);
+    }
+    
+    private BlobUploadResult toUploadResult(String blobName, String blobUrl, BlockBlobItem item,
+                                            String contentType, long length) {
+        BlobUploadResult result = new BlobUploadResult();
+        result.setBlobUrl(blobUrl);
+        result.setEtag(item.getETag());
+        result.setLastModified(item.getLastModified());
+        result.setContentType(contentType);
+        result.setSizeBytes(length);
+        result.setBlobName(blobName);
+        return result;
+    }
+    
+    /**
+     * Sube una parte como bloque sin confirmar; Azure descarta por sí mismo los bloques que
+     * no se confirman en una semana
+     */
+    @Override
+    public void stageBlock(String blobName, int blockIndex, InputStream data, long length) throws MultimediaException {
+        ensureInitialized();
+        try {
+            blockBlobClient(blobName).stageBlock(blockId(blockIndex), data, length);
+        } catch (Exception e) {
+            throw new MultimediaException(
+                MultimediaException.Type.STORAGE_ERROR,
+                "Error al subir la parte " + blockIndex + " a Azure Blob Storage: " + e.getMessage(),
+                e
+            );
+        }
+    }
+    
+    @Override
+    public BlobUploadResult commitBlocks(String blobName, int blockCount, String contentType,
+                                         Map<String, String> metadata) throws MultimediaException {
+        ensureInitialized();
+        List<String> blockIds = new ArrayList<>(blockCount);
+        for (int i = 0; i < blockCount; i++) {
+            blockIds.add(blockId(i));
+        }
+        
+        BlockBlobClient blockClient = blockBlobClient(blobName);
+        try {
+            BlockBlobCommitBlockListOptions options = new BlockBlobCommitBlockListOptions(blockIds)
+                .setHeaders(new BlobHttpHeaders()
+                    .setContentType(contentType)
+                    .setCacheControl(FileStorageService.isFingerprinted(blobName)
+                        ? FileStorageService.IMMUTABLE_CACHE_CONTROL : cacheControl))
+                .setMetadata(metadata);
+            BlockBlobItem item = blockClient.commitBlockListWithResponse(options, null, Context.NONE).getValue();
+            long size = blockClient.getProperties().getBlobSize();
             
-            if (!blobClient.exists()) {
+            LOGGER.info("✅ Archivo confirmado en Azure Blob (" + blockCount + " partes): " + blobName);
+            return toUploadResult(blobName, blockClient.getBlobUrl(), item, contentType, size);
+        } catch (BlobStorageException e) {
+            throw new MultimediaException(
+                MultimediaException.Type.STORAGE_ERROR,
+                "Error al confirmar las partes en Azure Blob Storage: " + e.getMessage(),
+                e
+            );
+        }
+    }
+    
+    /**
+     * Azure no permite borrar bloques sin confirmar; expiran solos si el blob nunca se confirma
+     */
+    @Override
+    public void abortBlocks(String blobName) {
+        LOGGER.fine("Subida por partes descartada, Azure expirará sus bloques: " + blobName);
+    }
+    
+    private BlockBlobClient blockBlobClient(String blobName) {
+        return containerClient.getBlobClient(blobName).getBlockBlobClient();
+    }
+    
+    // Los IDs de bloque de un blob deben tener todos la misma longitud
+    private static String blockId(int blockIndex) {
+        return Base64.getEncoder().encodeToString(
+            String.format("block-%06d", blockIndex).getBytes(StandardCharsets.US_ASCII));
+    }
+    
+    @Override
+    public InputStream get(String blobName) throws MultimediaException {
+        ensureInitialized();
+        try {
+            return containerClient.getBlobClient(blobName).openInputStream();
+        } catch (BlobStorageException e) {
+            if (e.getErrorCode() == BlobErrorCode.BLOB_NOT_FOUND) {
                 throw new MultimediaException(
                     MultimediaException.Type.FILE_NOT_FOUND,
                     "El archivo no existe en Azure Blob Storage: " + blobName
                 );
             }
+            throw new MultimediaException(
+                MultimediaException.Type.STORAGE_ERROR,
+                "Error al leer archivo de Azure Blob Storage: " + e.getMessage(),
+                e
+            );
+        }
+    }
+    
+    @Override
+    public String getEtag(String blobName) throws MultimediaException {
+        ensureInitialized();
+        try {
+            return containerClient.getBlobClient(blobName).getProperties().getETag();
+        } catch (BlobStorageException e) {
+            if (e.getErrorCode() == BlobErrorCode.BLOB_NOT_FOUND) {
+                throw new MultimediaException(
+                    MultimediaException.Type.FILE_NOT_FOUND,
+                    "El archivo no existe en Azure Blob Storage: " + blobName
+                );
+            }
+            throw new MultimediaException(
+                MultimediaException.Type.STORAGE_ERROR,
+                "Error al leer propiedades del blob: " + e.getMessage(),
+                e
+            );
+        }
+    }
+    
+    @Override
+    public BlobUploadResult describe(String blobName) throws MultimediaException {
+        ensureInitialized();
+        try {
+            BlobClient blobClient = containerClient.getBlobClient(blobName);
+            BlobProperties properties = blobClient.getProperties();
             
-            // Configurar permisos SAS
-            BlobSasPermission sasPermission = new BlobSasPermission().setReadPermission(true);
-            
-            // Configurar tiempo de expiración
-            OffsetDateTime expiryTime = OffsetDateTime.now().plusHours(hoursValid);
+            BlobUploadResult result = new BlobUploadResult();
+            result.setBlobName(blobName);
+            result.setBlobUrl(blobClient.getBlobUrl());
+            result.setEtag(properties.getETag());
+            result.setLastModified(properties.getLastModified());
+            result.setContentType(properties.getContentType());
+            result.setSizeBytes(properties.getBlobSize());
+            return result;
+        } catch (BlobStorageException e) {
+            if (e.getErrorCode() == BlobErrorCode.BLOB_NOT_FOUND) {
+                throw new MultimediaException(
+                    MultimediaException.Type.FILE_NOT_FOUND,
+                    "El archivo no existe en Azure Blob Storage: " + blobName
+                );
+            }
+            throw new MultimediaException(
+                MultimediaException.Type.STORAGE_ERROR,
+                "Error al leer propiedades del blob: " + e.getMessage(),
+                e
+            );
+        }
+    }
+    
+    @Override
+    public boolean exists(String blobName) throws MultimediaException {
+        ensureInitialized();
+        try {
+            return containerClient.getBlobClient(blobName).exists();
+        } catch (Exception e) {
+            throw new MultimediaException(
+                MultimediaException.Type.STORAGE_ERROR,
+                "Error al consultar archivo en Azure Blob Storage: " + e.getMessage(),
+                e
+            );
+        }
+    }
+    
+    @Override
+    public List<String> list(String prefix) throws MultimediaException {
+        ensureInitialized();
+        try {
+            List<String> names = new ArrayList<>();
+            for (BlobItem item : containerClient.listBlobs(new ListBlobsOptions().setPrefix(prefix), null)) {
+                names.add(item.getName());
+            }
+            return names;
+        } catch (Exception e) {
+            throw new MultimediaException(
+                MultimediaException.Type.STORAGE_ERROR,
+                "Error al listar archivos de Azure Blob Storage: " + e.getMessage(),
+                e
+            );
+        }
+    }
+    
+    /**
+     * Genera una URL SAS temporal para descargar un archivo
+     */
+    public String generateSasUrl(String blobName, int hoursValid) throws MultimediaException {
+        return sign(blobName, OffsetDateTime.now().plusHours(hoursValid));
+    }
+    
+    /**
+     * Firma una URL SAS de solo lectura. La firma es un HMAC local con la clave de la cuenta:
+     * no hace ninguna llamada a Azure (tampoco verifica que el blob exista).
+     */
+    @Override
+    public String sign(String blobName, OffsetDateTime expiryTime) throws MultimediaException {
+        return signWith(blobName, expiryTime, new BlobSasPermission().setReadPermission(true), "descarga");
+    }
+    
+    /**
+     * SAS de solo creación para ese blob: el navegador lo sube con un PUT (x-ms-blob-type: BlockBlob) y,
+     * sin permiso de escritura, la misma URL no puede sobrescribirlo después de confirmada la subida.
+     * La cuenta de almacenamiento debe permitir PUT por CORS desde el sitio y exponer el encabezado ETag.
+     */
+    @Override
+    public String signUpload(String blobName, long size, String contentType, OffsetDateTime expiresAt)
+            throws MultimediaException {
+        return signWith(blobName, expiresAt, new BlobSasPermission().setCreatePermission(true), "subida");
+    }
+    
+    private String signWith(String blobName, OffsetDateTime expiryTime, BlobSasPermission sasPermission,
+                            String purpose) throws MultimediaException {
+        ensureInitialized();
+        try {
+            BlobClient blobClient = containerClient.getBlobClient(blobName);
             
             // Generar SAS
             BlobServiceSasSignatureValues sasValues = new BlobServiceSasSignatureValues(expiryTime, sasPermission);
@@ -153,29 +447,24 @@ public class AzureBlobStorageService {
             String sasUrl = blobClient.generateSas(sasValues);
             return blobClient.getBlobUrl() + "?" + sasUrl;
             
-        } catch (MultimediaException e) {
-            throw e;
         } catch (Exception e) {
             LOGGER.log(Level.SEVERE, "Error al generar SAS URL", e);
             throw new MultimediaException(
                 MultimediaException.Type.STORAGE_ERROR,
-                "Error al generar URL de descarga: " + e.getMessage(),
+                "Error al generar URL de " + purpose + ": " + e.getMessage(),
                 e
             );
         }
     }
     
     /**
-     * Elimina un archivo de Azure Blob Storage (eliminación lógica)
+     * Elimina un archivo de Azure Blob Storage (una sola solicitud; si no existe no hace nada)
      */
-    public void deleteFile(String blobName) throws MultimediaException {
+    @Override
+    public void delete(String blobName) throws MultimediaException {
+        ensureInitialized();
         try {
-            BlobClient blobClient = containerClient.getBlobClient(blobName);
-            
-            if (blobClient.exists()) {
-                // En lugar de eliminar físicamente, podríamos marcar como eliminado
-                // Por ahora, eliminación física para simplificar
-                blobClient.delete();
+            if (containerClient.getBlobClient(blobName).deleteIfExists()) {
                 LOGGER.info("Archivo eliminado de Azure Blob: " + blobName);
             }
             
@@ -190,49 +479,78 @@ public class AzureBlobStorageService {
     }
     
     /**
-     * Genera el nombre del blob basado en la estructura requerida
+     * Elimina varios blobs en una sola solicitud de la Blob Batch API (máximo DELETE_BATCH_SIZE).
+     * Devuelve los blobs que no se pudieron eliminar junto con el error; los que ya no existen
+     * se consideran eliminados.
      */
-    private String generateBlobName(String titleName, FileType fileType, String originalFileName) {
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
-        String sanitizedTitleName = titleName.replaceAll("[^a-zA-Z0-9]", "_");
+    @Override
+    public Map<String, String> deleteAll(List<String> blobNames) throws MultimediaException {
+        if (blobNames.size() > DELETE_BATCH_SIZE) {
+            throw new IllegalArgumentException("Un lote admite como máximo " + DELETE_BATCH_SIZE + " blobs");
+        }
         
-        String folder = (fileType == FileType.POSTER) ? "posters" : "fichas";
-        String extension = getFileExtension(originalFileName);
+        Map<String, String> failures = new HashMap<>();
+        if (blobNames.isEmpty()) {
+            return failures;
+        }
         
-        return String.format("%s/%s/%s%s", folder, sanitizedTitleName, timestamp, extension);
-    }
-    
-    private String getFileExtension(String fileName) {
-        if (fileName == null || !fileName.contains(".")) {
-            return "";
+        ensureInitialized();
+        try {
+            BlobBatch batch = batchClient.getBlobBatch();
+            Map<String, Response<Void>> responses = new HashMap<>();
+            for (String blobName : blobNames) {
+                responses.put(blobName, batch.deleteBlob(containerClient.getBlobContainerName(), blobName));
+            }
+            
+            // Sin lanzar excepción por fallos individuales: se revisa cada respuesta
+            batchClient.submitBatchWithResponse(batch, false, null, Context.NONE);
+            
+            for (Map.Entry<String, Response<Void>> entry : responses.entrySet()) {
+                try {
+                    entry.getValue().getStatusCode();
+                } catch (BlobStorageException e) {
+                    if (e.getErrorCode() != BlobErrorCode.BLOB_NOT_FOUND) {
+                        failures.put(entry.getKey(), e.getStatusCode() + " " + e.getErrorCode());
+                    }
+                }
+            }
+            
+            LOGGER.info("Lote de eliminación enviado a Azure Blob: " + (blobNames.size() - failures.size())
+                + " eliminados, " + failures.size() + " con error");
+            return failures;
+            
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Error al eliminar lote de archivos de Azure Blob Storage", e);
+            throw new MultimediaException(
+                MultimediaException.Type.STORAGE_ERROR,
+                "Error al eliminar archivos: " + e.getMessage(),
+                e
+            );
         }
-        return fileName.substring(fileName.lastIndexOf("."));
     }
     
-    /**
-     * Clase para encapsular el resultado de la subida
-     */
-    public static class BlobUploadResult {
-        private String blobUrl;
-        private String etag;
-        private String contentType;
-        private Long sizeBytes;
-        private String blobName;
-        
-        // Getters y setters
-        public String getBlobUrl() { return blobUrl; }
-        public void setBlobUrl(String blobUrl) { this.blobUrl = blobUrl; }
-        
-        public String getEtag() { return etag; }
-        public void setEtag(String etag) { this.etag = etag; }
-        
-        public String getContentType() { return contentType; }
-        public void setContentType(String contentType) { this.contentType = contentType; }
-        
-        public Long getSizeBytes() { return sizeBytes; }
-        public void setSizeBytes(Long sizeBytes) { this.sizeBytes = sizeBytes; }
+    private ParallelTransferOptions buildTransferOptions() {
+        long blockSizeMb = DEFAULT_UPLOAD_BLOCK_SIZE_MB;
+        int maxConcurrency = DEFAULT_UPLOAD_MAX_CONCURRENCY;
+        try {
+            String configuredBlock = System.getProperty("AZURE_UPLOAD_BLOCK_SIZE_MB");
+            if (configuredBlock != null && !configuredBlock.isEmpty()) {
+                blockSizeMb = Math.max(1, Long.parseLong(configuredBlock.trim()));
+            }
+            String configuredConcurrency = System.getProperty("AZURE_UPLOAD_MAX_CONCURRENCY");
+            if (configuredConcurrency != null && !configuredConcurrency.isEmpty()) {
+                maxConcurrency = Math.max(1, Integer.parseInt(configuredConcurrency.trim()));
+            }
+        } catch (NumberFormatException e) {
+            LOGGER.warning("Configuración de subida por bloques inválida, se usan valores por defecto: " + e.getMessage());
+        }
         
-        public String getBlobName() { return blobName; }
-        public void setBlobName(String blobName) { this.blobName = blobName; }
+        long blockSize = blockSizeMb * 1024 * 1024;
+        LOGGER.info("Subida por bloques: " + blockSizeMb + " MB x " + maxConcurrency + " en paralelo");
+        return new ParallelTransferOptions()
+            .setBlockSizeLong(blockSize)
+            // Archivos de hasta un bloque se envían en una sola solicitud
+            .setMaxSingleUploadSizeLong(blockSize)
+            .setMaxConcurrency(maxConcurrency);
     }
 }
\ No newline at end of file
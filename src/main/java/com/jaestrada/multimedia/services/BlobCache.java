@@ -0,0 +1,434 @@
+package com.jaestrada.multimedia.services;
+
+import com.jaestrada.multimedia.exceptions.MultimediaException;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Caché en disco local de los blobs que sirve MultimediaFileServlet. Cada entrada se identifica
+ * por nombre de blob y ETag, así un blob reemplazado nunca se sirve con el contenido anterior.
+ * Se expulsa por LRU según el total de bytes y las descargas concurrentes del mismo blob se
+ * juntan en una sola. El índice vive en memoria; al arrancar se vacía el directorio.
+ */
+@ApplicationScoped
+public class BlobCache {
+    
+    private static final Logger LOGGER = Logger.getLogger(BlobCache.class.getName());
+    
+    private static final long DEFAULT_MAX_SIZE_MB = 512;
+    private static final String TEMP_PREFIX = ".fetch-";
+    // Reintentos de open si el blob se reemplaza mientras se descarga o la entrada se expulsa al instante
+    private static final int MAX_OPEN_ATTEMPTS = 3;
+    
+    @Inject
+    private BlobStore blobStore;
+    
+    private Path directory;
+    private long maxBytes;
+    
+    // Orden de acceso: el primero es el menos usado. Protegido por this, igual que totalBytes
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long totalBytes;
+    
+    private final Map<String, CompletableFuture<Entry>> inFlight = new ConcurrentHashMap<>();
+    
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder fetches = new LongAdder();
+    private final LongAdder fetchedBytes = new LongAdder();
+    private final LongAdder servedBytes = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    
+    @PostConstruct
+    public void init() {
+        long sizeMb = DEFAULT_MAX_SIZE_MB;
+        String configured = System.getProperty("BLOB_CACHE_MAX_SIZE_MB");
+        if (configured != null && !configured.isEmpty()) {
+            try {
+                sizeMb = Long.parseLong(configured.trim());
+            } catch (NumberFormatException e) {
+                LOGGER.warning("BLOB_CACHE_MAX_SIZE_MB inválido, se usa " + DEFAULT_MAX_SIZE_MB + ": " + configured);
+            }
+        }
+        this.maxBytes = sizeMb * 1024 * 1024;
+        
+        String dir = System.getProperty("BLOB_CACHE_DIR");
+        Path path = (dir != null && !dir.isEmpty())
+            ? Paths.get(dir)
+            : Paths.get(System.getProperty("jboss.server.data.dir", "/tmp"), "multimedia-cache");
+        
+        if (maxBytes <= 0) {
+            LOGGER.info("Caché local de blobs deshabilitado (BLOB_CACHE_MAX_SIZE_MB=" + sizeMb + ")");
+            return;
+        }
+        
+        try {
+            Files.createDirectories(path);
+            clearDirectory(path);
+            this.directory = path;
+            LOGGER.info("Caché local de blobs en " + path + " (máx. " + sizeMb + " MB)");
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "No se pudo preparar el caché de blobs en " + path + "; se sirve directo", e);
+        }
+    }
+    
+    public boolean isEnabled() {
+        return directory != null;
+    }
+    
+    /**
+     * Abre el blob desde el caché, descargándolo primero si no está. etagHint (el ETag que conoce la
+     * página) solo sirve para encontrar una entrada ya guardada sin consultar al almacenamiento; si no
+     * coincide con ninguna, se usa el ETag actual del blob, que es el único con el que se guardan
+     * entradas. El canal devuelto sigue siendo válido aunque la entrada se expulse mientras se lee.
+     */
+    public CachedBlob open(String blobName, String etagHint) throws MultimediaException {
+        if (!isEnabled()) {
+            throw new IllegalStateException("El caché de blobs está deshabilitado");
+        }
+        if (etagHint != null && !etagHint.isEmpty()) {
+            CachedBlob cached = openCached(keyFor(blobName, normalizeEtag(etagHint)));
+            if (cached != null) {
+                hits.increment();
+                servedBytes.add(cached.getSize());
+                return cached;
+            }
+        }
+        
+        for (int attempt = 0; attempt < MAX_OPEN_ATTEMPTS; attempt++) {
+            String version = normalizeEtag(blobStore.getEtag(blobName));
+            String key = keyFor(blobName, version);
+            
+            CachedBlob cached = openCached(key);
+            if (cached != null) {
+                hits.increment();
+                servedBytes.add(cached.getSize());
+                return cached;
+            }
+            if (attempt == 0) {
+                misses.increment();
+            }
+            
+            // Solo el primer hilo descarga; los demás esperan el mismo resultado
+            CompletableFuture<Entry> pending = new CompletableFuture<>();
+            CompletableFuture<Entry> existing = inFlight.putIfAbsent(key, pending);
+            if (existing == null) {
+                try {
+                    pending.complete(fetch(key, blobName, version));
+                } catch (MultimediaException | RuntimeException e) {
+                    pending.completeExceptionally(e);
+                    throw e;
+                } finally {
+                    inFlight.remove(key, pending);
+                }
+            } else {
+                awaitFetch(existing);
+            }
+            
+            // Si el blob cambió durante la descarga o la entrada se expulsó antes de abrirla, se vuelve a intentar
+            cached = openCached(key);
+            if (cached != null) {
+                servedBytes.add(cached.getSize());
+                return cached;
+            }
+        }
+        throw new MultimediaException(
+            MultimediaException.Type.STORAGE_ERROR,
+            "El blob cambió o se expulsó del caché en cada intento: " + blobName
+        );
+    }
+    
+    /**
+     * Descarta todas las versiones en caché de un blob (p. ej. al eliminarlo)
+     */
+    public void evict(String blobName) {
+        if (!isEnabled()) {
+            return;
+        }
+        String prefix = blobName + '\n';
+        synchronized (this) {
+            Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<String, Entry> mapEntry = it.next();
+                if (mapEntry.getKey().startsWith(prefix)) {
+                    it.remove();
+                    removeFile(mapEntry.getValue());
+                }
+            }
+        }
+    }
+    
+    public BlobCacheStats getStats() {
+        if (!isEnabled()) {
+            return null;
+        }
+        int count;
+        long used;
+        synchronized (this) {
+            count = entries.size();
+            used = totalBytes;
+        }
+        return new BlobCacheStats(hits.sum(), misses.sum(), fetches.sum(), fetchedBytes.sum(),
+                servedBytes.sum(), evictions.sum(), count, used, maxBytes);
+    }
+    
+    private synchronized CachedBlob openCached(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        // Se abre bajo el candado para que una expulsión no borre el archivo antes de tenerlo abierto
+        try {
+            return new CachedBlob(FileChannel.open(entry.path, StandardOpenOption.READ), entry.size, entry.etag);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Entrada de caché ilegible, se descarta: " + entry.path, e);
+            entries.remove(key);
+            removeFile(entry);
+            return null;
+        }
+    }
+    
+    // Devuelve null (sin guardar nada) si el ETag del blob ya no es version al terminar la descarga
+    private Entry fetch(String key, String blobName, String version) throws MultimediaException {
+        long start = System.nanoTime();
+        Path temp = null;
+        try {
+            temp = Files.createTempFile(directory, TEMP_PREFIX, ".tmp");
+            long size;
+            try (InputStream in = blobStore.get(blobName)) {
+                size = Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            // Se guarda con el ETag solo si el blob no se reemplazó mientras se descargaba
+            if (!version.equals(normalizeEtag(blobStore.getEtag(blobName)))) {
+                LOGGER.fine("El blob " + blobName + " cambió durante la descarga; no se guarda en caché");
+                return null;
+            }
+            Path target = directory.resolve(fileNameFor(key));
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            temp = null;
+            
+            fetches.increment();
+            fetchedBytes.add(size);
+            LOGGER.fine(String.format("Blob %s descargado al caché (%d bytes) en %d ms",
+                    blobName, size, (System.nanoTime() - start) / 1_000_000));
+            
+            Entry entry = new Entry(target, size, "\"" + version + "\"");
+            register(key, entry);
+            return entry;
+            
+        } catch (IOException e) {
+            throw new MultimediaException(
+                MultimediaException.Type.STORAGE_ERROR,
+                "Error al descargar el blob al caché: " + e.getMessage(),
+                e
+            );
+        } finally {
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException e) {
+                    LOGGER.warning("No se pudo eliminar el temporal: " + temp);
+                }
+            }
+        }
+    }
+    
+    private synchronized void register(String key, Entry entry) {
+        Entry previous = entries.put(key, entry);
+        if (previous != null) {
+            totalBytes -= previous.size;
+        }
+        totalBytes += entry.size;
+        
+        // Se expulsan los menos usados; la entrada recién agregada se conserva aunque sola supere el límite
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && it.hasNext()) {
+            Map.Entry<String, Entry> eldest = it.next();
+            if (eldest.getValue() == entry) {
+                break;
+            }
+            it.remove();
+            removeFile(eldest.getValue());
+            evictions.increment();
+        }
+    }
+    
+    // Debe llamarse con el candado tomado
+    private void removeFile(Entry entry) {
+        totalBytes -= entry.size;
+        try {
+            Files.deleteIfExists(entry.path);
+        } catch (IOException e) {
+            LOGGER.warning("No se pudo eliminar la entrada de caché: " + entry.path);
+        }
+    }
+    
+    private static void awaitFetch(CompletableFuture<Entry> pending) throws MultimediaException {
+        try {
+            pending.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof MultimediaException) {
+                throw (MultimediaException) e.getCause();
+            }
+            throw new MultimediaException(
+                MultimediaException.Type.STORAGE_ERROR,
+                "Error al descargar el blob al caché: " + e.getCause().getMessage(),
+                e.getCause()
+            );
+        }
+    }
+    
+    private static String keyFor(String blobName, String version) {
+        return blobName + '\n' + version;
+    }
+    
+    private static String normalizeEtag(String etag) {
+        return etag.replace("\"", "");
+    }
+    
+    // Nombre de archivo fijo por clave: evita caracteres inválidos y rutas anidadas
+    private static String fileNameFor(String key) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(key.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    private static void clearDirectory(Path path) throws IOException {
+        try (Stream<Path> files = Files.list(path)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (NoSuchFileException | DirectoryNotEmptyException e) {
+                    // Se ignoran directorios ajenos al caché
+                }
+            }
+        }
+    }
+    
+    private static final class Entry {
+        private final Path path;
+        private final long size;
+        private final String etag;
+        
+        Entry(Path path, long size, String etag) {
+            this.path = path;
+            this.size = size;
+            this.etag = etag;
+        }
+    }
+    
+    /**
+     * Blob abierto desde el caché; el llamador debe cerrarlo
+     */
+    public static final class CachedBlob implements Closeable {
+        private final FileChannel channel;
+        private final long size;
+        private final String etag;
+        
+        CachedBlob(FileChannel channel, long size, String etag) {
+            this.channel = channel;
+            this.size = size;
+            this.etag = etag;
+        }
+        
+        public FileChannel getChannel() { return channel; }
+        public long getSize() { return size; }
+        public String getEtag() { return etag; }
+        
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+    
+    public static class BlobCacheStats {
+        private final long hits;
+        private final long misses;
+        private final long fetches;
+        private final long fetchedBytes;
+        private final long servedBytes;
+        private final long evictions;
+        private final int entries;
+        private final long usedBytes;
+        private final long maxBytes;
+        
+        public BlobCacheStats(long hits, long misses, long fetches, long fetchedBytes, long servedBytes,
+                              long evictions, int entries, long usedBytes, long maxBytes) {
+            this.hits = hits;
+            this.misses = misses;
+            this.fetches = fetches;
+            this.fetchedBytes = fetchedBytes;
+            this.servedBytes = servedBytes;
+            this.evictions = evictions;
+            this.entries = entries;
+            this.usedBytes = usedBytes;
+            this.maxBytes = maxBytes;
+        }
+        
+        public long getHits() { return hits; }
+        public long getMisses() { return misses; }
+        public long getFetches() { return fetches; }
+        public long getFetchedBytes() { return fetchedBytes; }
+        public long getServedBytes() { return servedBytes; }
+        public long getEvictions() { return evictions; }
+        public int getEntries() { return entries; }
+        public long getUsedBytes() { return usedBytes; }
+        public long getMaxBytes() { return maxBytes; }
+        
+        public double getHitRatio() {
+            long total = hits + misses;
+            return total == 0 ? 0.0 : (double) hits / total;
+        }
+        
+        public String getUsageSummary() {
+            return String.format("%.1f MB / %.1f MB (%d archivos)",
+                    usedBytes / 1048576.0, maxBytes / 1048576.0, entries);
+        }
+        
+        public String getTrafficSummary() {
+            return String.format("%.1f MB servidos / %.1f MB descargados (%d descargas)",
+                    servedBytes / 1048576.0, fetchedBytes / 1048576.0, fetches);
+        }
+        
+        @Override
+        public String toString() {
+            return String.format("%d aciertos / %d fallos (%.1f%%) - %s - %s - %d expulsiones",
+                    hits, misses, getHitRatio() * 100, getUsageSummary(), getTrafficSummary(), evictions);
+        }
+    }
+}
\ No newline at end of file
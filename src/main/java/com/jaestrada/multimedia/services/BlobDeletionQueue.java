@@ -0,0 +1,279 @@
+package com.jaestrada.multimedia.services;
+
+import com.jaestrada.multimedia.enums.BlobDeletionStatus;
+import com.jaestrada.multimedia.models.BlobDeletion;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import jakarta.enterprise.concurrent.ManagedScheduledExecutorService;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.Initialized;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Cola persistente de blobs por eliminar. Los servicios encolan los nombres en la misma
+ * transacción que borra los registros y un proceso periódico los elimina de Azure en lotes,
+ * reintentando con espera exponencial y marcando como FAILED los que agotan los intentos.
+ * Con nombres direccionados por contenido un blob encolado puede volver a subirse: quien lo
+ * registra llama a cancel, que comparte con el proceso un candado por nombre de blob.
+ */
+@ApplicationScoped
+public class BlobDeletionQueue {
+    
+    private static final Logger LOGGER = Logger.getLogger(BlobDeletionQueue.class.getName());
+    
+    private static final long DEFAULT_INTERVAL_SECONDS = 30;
+    private static final int DEFAULT_MAX_ATTEMPTS = 8;
+    private static final long BASE_BACKOFF_SECONDS = 30;
+    private static final long MAX_BACKOFF_SECONDS = 3600;
+    // Margen para que EnvListener cargue la configuración antes de la primera consulta
+    private static final long STARTUP_DELAY_SECONDS = 5;
+    
+    // Candado por nombre de blob hasta el fin de la transacción: cancel espera, el proceso no (lo deja para el próximo ciclo)
+    private static final String LOCK_SQL =
+        "SELECT count(*) FROM (SELECT pg_advisory_xact_lock(hashtext(:blobName))) AS blob_lock";
+    private static final String TRY_LOCK_SQL =
+        "SELECT pg_try_advisory_xact_lock(hashtext(:blobName))";
+    
+    @Inject
+    private EntityManagerFactory emf;
+    
+    @Inject
+    private FileStorageService fileStorageService;
+    
+    @Inject
+    private StoredBlobRegistry storedBlobRegistry;
+    
+    @Resource
+    private ManagedScheduledExecutorService scheduler;
+    
+    private volatile ScheduledFuture<?> drainTask;
+    private int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+    
+    public void onStartup(@Observes @Initialized(ApplicationScoped.class) Object event) {
+        scheduler.schedule(this::startWorker, STARTUP_DELAY_SECONDS, TimeUnit.SECONDS);
+    }
+    
+    private void startWorker() {
+        long interval = readLong("BLOB_DELETION_INTERVAL_SECONDS", DEFAULT_INTERVAL_SECONDS);
+        maxAttempts = (int) readLong("BLOB_DELETION_MAX_ATTEMPTS", DEFAULT_MAX_ATTEMPTS);
+        drainTask = scheduler.scheduleWithFixedDelay(this::drain, 0, Math.max(1, interval), TimeUnit.SECONDS);
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        if (drainTask != null) {
+            drainTask.cancel(false);
+        }
+    }
+    
+    // ==================== Encolado (dentro de la transacción del llamador) ====================
+    
+    /**
+     * Encola los blobs indicados; requiere una transacción activa en el EntityManager recibido
+     */
+    public void enqueue(EntityManager em, Collection<String> blobNames) {
+        for (String blobName : blobNames) {
+            if (blobName != null && !blobName.isEmpty()) {
+                em.persist(new BlobDeletion(blobName));
+            }
+        }
+    }
+    
+    /**
+     * Encola un blob que no se procesa antes de notBefore (p. ej. una subida directa que todavía puede
+     * confirmarse); si para entonces algún archivo lo usa, la cola lo descarta sin borrarlo
+     */
+    public void enqueue(EntityManager em, String blobName, LocalDateTime notBefore) {
+        BlobDeletion deletion = new BlobDeletion(blobName);
+        deletion.setNextAttemptAt(notBefore);
+        em.persist(deletion);
+    }
+    
+    /**
+     * Quita de la cola las eliminaciones pendientes de ese blob; requiere una transacción activa.
+     * Si el proceso está eliminando ese blob, espera a que termine; hasta el commit del llamador
+     * ninguna eliminación encolada después puede borrarlo (el proceso ve entonces el archivo que lo usa).
+     */
+    public void cancel(EntityManager em, String blobName) {
+        em.createNativeQuery(LOCK_SQL).setParameter("blobName", blobName).getSingleResult();
+        em.createQuery("DELETE FROM BlobDeletion bd WHERE bd.blobName = :blobName AND bd.status = :status")
+            .setParameter("blobName", blobName)
+            .setParameter("status", BlobDeletionStatus.PENDING)
+            .executeUpdate();
+    }
+    
+    // ==================== Procesamiento ====================
+    
+    /**
+     * Procesa los blobs pendientes cuyo próximo intento ya venció, en lotes de la Blob Batch API
+     */
+    public void drain() {
+        try {
+            List<BlobDeletion> batch;
+            boolean recorded = true;
+            do {
+                batch = nextBatch();
+                if (!batch.isEmpty()) {
+                    recorded = process(batch);
+                }
+                // Si no se pudo anotar el resultado o todo estaba bloqueado, el siguiente lote serían las mismas filas: se sigue en el próximo ciclo
+            } while (recorded && batch.size() == BlobStore.DELETE_BATCH_SIZE);
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Error al procesar la cola de eliminación de blobs", e);
+        }
+    }
+    
+    private List<BlobDeletion> nextBatch() {
+        EntityManager em = emf.createEntityManager();
+        try {
+            return em.createQuery(
+                "SELECT bd FROM BlobDeletion bd WHERE bd.status = :status AND bd.nextAttemptAt <= :now ORDER BY bd.id",
+                BlobDeletion.class
+            )
+            .setParameter("status", BlobDeletionStatus.PENDING)
+            .setParameter("now", LocalDateTime.now())
+            .setMaxResults(BlobStore.DELETE_BATCH_SIZE)
+            .getResultList();
+        } finally {
+            em.close();
+        }
+    }
+    
+    /**
+     * Elimina el lote y anota el resultado; devuelve false si no se pudo actualizar la cola o no tomó ninguna fila.
+     * Los nombres se bloquean antes de revisar si siguen en uso y el candado se mantiene hasta
+     * anotar el resultado, así un registro concurrente del mismo blob (cancel) no queda en medio.
+     */
+    private boolean process(List<BlobDeletion> batch) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            
+            // Un nombre que está registrando otra transacción se deja para el próximo ciclo
+            Set<String> locked = new TreeSet<>();
+            for (BlobDeletion deletion : batch) {
+                if (!locked.contains(deletion.getBlobName()) && tryLock(em, deletion.getBlobName())) {
+                    locked.add(deletion.getBlobName());
+                }
+            }
+            // Se releen bajo el candado: las que se cancelaron mientras tanto ya no están
+            List<BlobDeletion> claimed = new ArrayList<>();
+            for (BlobDeletion deletion : batch) {
+                BlobDeletion managed = em.find(BlobDeletion.class, deletion.getId());
+                if (managed != null && managed.getStatus() == BlobDeletionStatus.PENDING
+                        && locked.contains(managed.getBlobName())) {
+                    claimed.add(managed);
+                }
+            }
+            if (claimed.isEmpty()) {
+                // Todo el lote estaba bloqueado o cancelado: no hubo avance, se sigue en el próximo ciclo
+                em.getTransaction().rollback();
+                return false;
+            }
+            
+            List<String> blobNames = new ArrayList<>();
+            for (BlobDeletion deletion : claimed) {
+                if (!blobNames.contains(deletion.getBlobName())) {
+                    blobNames.add(deletion.getBlobName());
+                }
+            }
+            // Un contenido deduplicado pudo volver a usarse después de encolarse: ese blob no se borra
+            Set<String> referenced = storedBlobRegistry.findReferenced(em, blobNames);
+            blobNames.removeAll(referenced);
+            
+            Map<String, String> failures;
+            String batchError = null;
+            try {
+                failures = blobNames.isEmpty() ? Map.of() : fileStorageService.deleteFiles(blobNames);
+            } catch (Exception e) {
+                // Falló la solicitud completa: todos los elementos cuentan como intento fallido
+                failures = Map.of();
+                batchError = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            }
+            
+            int deleted = 0;
+            int failed = 0;
+            int kept = 0;
+            for (BlobDeletion deletion : claimed) {
+                if (referenced.contains(deletion.getBlobName())) {
+                    em.remove(deletion);
+                    kept++;
+                    continue;
+                }
+                String error = batchError != null ? batchError : failures.get(deletion.getBlobName());
+                if (error == null) {
+                    em.remove(deletion);
+                    deleted++;
+                } else {
+                    registerFailure(deletion, error);
+                    failed++;
+                }
+            }
+            em.getTransaction().commit();
+            
+            if (kept > 0) {
+                LOGGER.info("Cola de eliminación: " + kept + " blobs descartados porque siguen en uso");
+            }
+            if (failed > 0) {
+                LOGGER.warning("Cola de eliminación: " + deleted + " blobs eliminados, " + failed + " reprogramados");
+            } else {
+                LOGGER.info("Cola de eliminación: " + deleted + " blobs eliminados");
+            }
+            return true;
+        } catch (Exception e) {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            LOGGER.log(Level.WARNING, "Error al actualizar la cola de eliminación de blobs", e);
+            return false;
+        } finally {
+            em.close();
+        }
+    }
+    
+    private static boolean tryLock(EntityManager em, String blobName) {
+        Object acquired = em.createNativeQuery(TRY_LOCK_SQL).setParameter("blobName", blobName).getSingleResult();
+        return Boolean.TRUE.equals(acquired);
+    }
+    
+    private void registerFailure(BlobDeletion deletion, String error) {
+        int attempts = deletion.getAttempts() + 1;
+        deletion.setAttempts(attempts);
+        deletion.setLastError(error.length() > 1000 ? error.substring(0, 1000) : error);
+        
+        if (attempts >= maxAttempts) {
+            deletion.setStatus(BlobDeletionStatus.FAILED);
+            LOGGER.warning("Blob marcado como FAILED tras " + attempts + " intentos: " + deletion.getBlobName() + " - " + error);
+        } else {
+            long backoff = Math.min(MAX_BACKOFF_SECONDS, BASE_BACKOFF_SECONDS << Math.min(attempts - 1, 20));
+            deletion.setNextAttemptAt(LocalDateTime.now().plusSeconds(backoff));
+        }
+    }
+    
+    private static long readLong(String key, long defaultValue) {
+        String configured = System.getProperty(key);
+        if (configured != null && !configured.isEmpty()) {
+            try {
+                return Long.parseLong(configured.trim());
+            } catch (NumberFormatException e) {
+                LOGGER.warning(key + " inválido, se usa " + defaultValue + ": " + configured);
+            }
+        }
+        return defaultValue;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,113 @@
+package com.jaestrada.multimedia.services;
+
+import com.jaestrada.multimedia.exceptions.MultimediaException;
+
+import java.io.InputStream;
+import java.time.OffsetDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Almacenamiento de archivos por nombre de blob (p. ej. "posters/Titulo/20250101_120000.jpg").
+ * Implementaciones: Azure Blob Storage, disco local y memoria; BlobStoreProducer elige una
+ * según STORAGE_BACKEND.
+ */
+public interface BlobStore {
+    
+    // Máximo de nombres por llamada a deleteAll (límite de la Blob Batch API de Azure)
+    int DELETE_BATCH_SIZE = 256;
+    
+    /**
+     * Nombre corto del backend, para logs ("azure", "local", "memory")
+     */
+    String getName();
+    
+    /**
+     * Guarda (o reemplaza) el blob leyendo length bytes del stream
+     */
+    BlobUploadResult put(String blobName, InputStream data, long length, String contentType,
+                         Map<String, String> metadata) throws MultimediaException;
+    
+    /**
+     * Versión asíncrona de put; por defecto se ejecuta en el hilo que llama
+     */
+    default CompletableFuture<BlobUploadResult> putAsync(String blobName, InputStream data, long length,
+                                                         String contentType, Map<String, String> metadata) {
+        try {
+            return CompletableFuture.completedFuture(put(blobName, data, length, contentType, metadata));
+        } catch (MultimediaException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+    
+    /**
+     * Guarda una parte de una subida por partes sin publicarla; reenviar la misma parte la reemplaza
+     */
+    void stageBlock(String blobName, int blockIndex, InputStream data, long length) throws MultimediaException;
+    
+    /**
+     * Publica el blob con las partes 0..blockCount-1 en orden; lanza STORAGE_ERROR si falta alguna
+     */
+    BlobUploadResult commitBlocks(String blobName, int blockCount, String contentType,
+                                  Map<String, String> metadata) throws MultimediaException;
+    
+    /**
+     * Descarta las partes que no se llegaron a publicar
+     */
+    void abortBlocks(String blobName) throws MultimediaException;
+    
+    /**
+     * Abre el contenido del blob; lanza FILE_NOT_FOUND si no existe
+     */
+    InputStream get(String blobName) throws MultimediaException;
+    
+    boolean exists(String blobName) throws MultimediaException;
+    
+    /**
+     * ETag actual del blob (con comillas); lanza FILE_NOT_FOUND si no existe
+     */
+    String getEtag(String blobName) throws MultimediaException;
+    
+    /**
+     * Propiedades de un blob que subió otro (p. ej. el navegador con una URL de escritura): tamaño,
+     * ETag y, si el almacenamiento lo guarda, Content-Type. Lanza FILE_NOT_FOUND si no existe
+     */
+    BlobUploadResult describe(String blobName) throws MultimediaException;
+    
+    /**
+     * Elimina el blob; no falla si ya no existe
+     */
+    void delete(String blobName) throws MultimediaException;
+    
+    /**
+     * Elimina hasta DELETE_BATCH_SIZE blobs y devuelve los que fallaron con su error
+     */
+    default Map<String, String> deleteAll(List<String> blobNames) throws MultimediaException {
+        Map<String, String> failures = new HashMap<>();
+        for (String blobName : blobNames) {
+            try {
+                delete(blobName);
+            } catch (MultimediaException e) {
+                failures.put(blobName, e.getMessage());
+            }
+        }
+        return failures;
+    }
+    
+    /**
+     * Nombres de los blobs que empiezan con el prefijo
+     */
+    List<String> list(String prefix) throws MultimediaException;
+    
+    /**
+     * URL de descarga válida hasta expiresAt
+     */
+    String sign(String blobName, OffsetDateTime expiresAt) throws MultimediaException;
+    
+    /**
+     * URL de solo escritura para que el navegador suba ese blob directamente, válida hasta expiresAt
+     */
+    String signUpload(String blobName, long size, String contentType, OffsetDateTime expiresAt) throws MultimediaException;
+}
\ No newline at end of file
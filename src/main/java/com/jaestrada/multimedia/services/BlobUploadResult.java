@@ -0,0 +1,44 @@
+package com.jaestrada.multimedia.services;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Clase para encapsular el resultado de la subida
+ */
+public class BlobUploadResult {
+    private String blobUrl;
+    private String etag;
+    private String contentType;
+    private Long sizeBytes;
+    private String blobName;
+    private OffsetDateTime lastModified;
+    // SHA-256 del contenido (solo en modo direccionado por contenido)
+    private String contentHash;
+    // true si el contenido ya estaba almacenado y no se subió de nuevo
+    private boolean deduplicated;
+    
+    // Getters y setters
+    public String getBlobUrl() { return blobUrl; }
+    public void setBlobUrl(String blobUrl) { this.blobUrl = blobUrl; }
+    
+    public String getEtag() { return etag; }
+    public void setEtag(String etag) { this.etag = etag; }
+    
+    public String getContentType() { return contentType; }
+    public void setContentType(String contentType) { this.contentType = contentType; }
+    
+    public Long getSizeBytes() { return sizeBytes; }
+    public void setSizeBytes(Long sizeBytes) { this.sizeBytes = sizeBytes; }
+    
+    public String getBlobName() { return blobName; }
+    public void setBlobName(String blobName) { this.blobName = blobName; }
+    
+    public OffsetDateTime getLastModified() { return lastModified; }
+    public void setLastModified(OffsetDateTime lastModified) { this.lastModified = lastModified; }
+    
+    public String getContentHash() { return contentHash; }
+    public void setContentHash(String contentHash) { this.contentHash = contentHash; }
+    
+    public boolean isDeduplicated() { return deduplicated; }
+    public void setDeduplicated(boolean deduplicated) { this.deduplicated = deduplicated; }
+}
\ No newline at end of file
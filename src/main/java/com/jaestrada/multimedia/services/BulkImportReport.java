@@ -0,0 +1,123 @@
+package com.jaestrada.multimedia.services;
+
+import com.jaestrada.multimedia.enums.BulkImportStatus;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resultado de una carga masiva de posters, archivo por archivo. Lo llena el proceso en segundo
+ * plano mientras la vista lo consulta, por eso los accesos están sincronizados.
+ */
+public class BulkImportReport {
+    
+    private final String jobId;
+    private final String source;
+    private final LocalDateTime startedAt = LocalDateTime.now();
+    private final List<Entry> entries = new ArrayList<>();
+    private final Map<BulkImportStatus, Integer> counts = new EnumMap<>(BulkImportStatus.class);
+    
+    private volatile LocalDateTime finishedAt;
+    private volatile String error;
+    
+    public BulkImportReport(String jobId, String source) {
+        this.jobId = jobId;
+        this.source = source;
+    }
+    
+    synchronized void add(String fileName, String titleName, BulkImportStatus status, String message) {
+        entries.add(new Entry(fileName, titleName, status, message));
+        counts.merge(status, 1, Integer::sum);
+    }
+    
+    void finish(String error) {
+        this.error = error;
+        this.finishedAt = LocalDateTime.now();
+    }
+    
+    public String getJobId() {
+        return jobId;
+    }
+    
+    public String getSource() {
+        return source;
+    }
+    
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+    
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+    
+    public boolean isFinished() {
+        return finishedAt != null;
+    }
+    
+    public String getError() {
+        return error;
+    }
+    
+    public synchronized List<Entry> getEntries() {
+        return new ArrayList<>(entries);
+    }
+    
+    public synchronized int getProcessed() {
+        return entries.size();
+    }
+    
+    public synchronized int getCount(BulkImportStatus status) {
+        return counts.getOrDefault(status, 0);
+    }
+    
+    // Posters registrados, subidos o reutilizados
+    public synchronized int getSucceeded() {
+        return getCount(BulkImportStatus.UPLOADED) + getCount(BulkImportStatus.DEDUPLICATED);
+    }
+    
+    public synchronized int getNotMatched() {
+        return getCount(BulkImportStatus.NO_MATCH) + getCount(BulkImportStatus.AMBIGUOUS)
+            + getCount(BulkImportStatus.DUPLICATE);
+    }
+    
+    public synchronized int getFailed() {
+        return getCount(BulkImportStatus.REJECTED) + getCount(BulkImportStatus.FAILED);
+    }
+    
+    /**
+     * Un archivo del lote: nombre dentro del ZIP o carpeta, título asociado y resultado
+     */
+    public static class Entry {
+        private final String fileName;
+        private final String titleName;
+        private final BulkImportStatus status;
+        private final String message;
+        
+        Entry(String fileName, String titleName, BulkImportStatus status, String message) {
+            this.fileName = fileName;
+            this.titleName = titleName;
+            this.status = status;
+            this.message = message;
+        }
+        
+        public String getFileName() {
+            return fileName;
+        }
+        
+        public String getTitleName() {
+            return titleName;
+        }
+        
+        public BulkImportStatus getStatus() {
+            return status;
+        }
+        
+        public String getMessage() {
+            return message;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,638 @@
+package com.jaestrada.multimedia.services;
+
+import com.jaestrada.multimedia.enums.BulkImportStatus;
+import com.jaestrada.multimedia.enums.FileType;
+import com.jaestrada.multimedia.exceptions.MultimediaException;
+import com.jaestrada.multimedia.models.MediaFile;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import jakarta.enterprise.concurrent.ManagedExecutorService;
+import jakarta.enterprise.concurrent.ManagedThreadFactory;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Session;
+import org.primefaces.model.file.UploadedFile;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.text.Normalizer;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Carga masiva de posters desde un ZIP o una carpeta del servidor. Cada imagen se asocia al título
+ * cuyo nombre coincide con el del archivo (sin extensión, mayúsculas ni acentos) y se sube con
+ * FileStorageService en un pool acotado: quien lee el ZIP espera un cupo antes de pasar a la
+ * siguiente entrada, así en memoria nunca hay más de BULK_IMPORT_CONCURRENCY imágenes.
+ * Los MediaFile se insertan en lotes JDBC y el resultado queda en un BulkImportReport.
+ */
+@ApplicationScoped
+public class BulkPosterImportService {
+    
+    private static final Logger LOGGER = Logger.getLogger(BulkPosterImportService.class.getName());
+    
+    private static final int DEFAULT_CONCURRENCY = 8;
+    private static final int DEFAULT_BATCH_SIZE = 200;
+    private static final int MAX_REPORTS_KEPT = 20;
+    // Límite de lectura por entrada; FileContentInspector aplica después el límite real del poster
+    private static final int MAX_ENTRY_BYTES = 2 * 1024 * 1024 + 1;
+    private static final Set<String> IMAGE_EXTENSIONS = Set.of(".jpg", ".jpeg", ".png");
+    
+    private static final String INSERT_MEDIA_FILE_SQL =
+        "INSERT INTO media_files (media_title_id, file_type, local_url, blob_url, etag, content_type, " +
+        "size_bytes, uploaded_at, uploaded_by) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    
+    @Inject
+    private EntityManagerFactory emf;
+    
+    @Inject
+    private FileStorageService fileStorageService;
+    
+    @Inject
+    private StoredBlobRegistry storedBlobRegistry;
+    
+    @Inject
+    private BlobDeletionQueue blobDeletionQueue;
+    
+    @Inject
+    private ThumbnailService thumbnailService;
+    
+    @Inject
+    private DashboardCounters dashboardCounters;
+    
+    @Resource
+    private ManagedExecutorService executor;
+    
+    @Resource
+    private ManagedThreadFactory threadFactory;
+    
+    private ThreadPoolExecutor uploaders;
+    private int concurrency;
+    private int batchSize;
+    private Path importRoot;
+    
+    private final AtomicReference<BulkImportReport> running = new AtomicReference<>();
+    private final Map<String, BulkImportReport> reports = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, BulkImportReport> eldest) {
+            return size() > MAX_REPORTS_KEPT;
+        }
+    };
+    
+    @PostConstruct
+    public void init() {
+        concurrency = (int) Math.max(1, readLong("BULK_IMPORT_CONCURRENCY", DEFAULT_CONCURRENCY));
+        batchSize = (int) Math.max(1, readLong("BULK_IMPORT_BATCH_SIZE", DEFAULT_BATCH_SIZE));
+        
+        String configured = System.getProperty("BULK_IMPORT_DIR");
+        importRoot = configured != null && !configured.isEmpty()
+            ? Paths.get(configured)
+            : Paths.get(System.getProperty("jboss.server.data.dir", "/tmp"), "multimedia-import");
+        
+        // La cola no necesita límite: el semáforo de cada carga ya acota las tareas pendientes
+        uploaders = new ThreadPoolExecutor(concurrency, concurrency, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), threadFactory);
+        uploaders.allowCoreThreadTimeOut(true);
+        LOGGER.info("Carga masiva de posters: " + concurrency + " subidas en paralelo, lotes de " + batchSize
+                + ", carpeta " + importRoot);
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        if (uploaders != null) {
+            uploaders.shutdownNow();
+        }
+    }
+    
+    public Path getImportRoot() {
+        return importRoot;
+    }
+    
+    public BulkImportReport getReport(String jobId) {
+        synchronized (reports) {
+            return reports.get(jobId);
+        }
+    }
+    
+    /**
+     * Guarda el ZIP recibido en la carpeta de importación (sin descomprimirlo) e inicia la carga
+     */
+    public BulkImportReport startUploadedZip(InputStream zip, String fileName, String uploadedBy)
+            throws MultimediaException {
+        Path target;
+        try {
+            Files.createDirectories(importRoot);
+            target = importRoot.resolve(".subida-" + UUID.randomUUID() + ".zip");
+            Files.copy(zip, target, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new MultimediaException(
+                MultimediaException.Type.STORAGE_ERROR,
+                "No se pudo recibir el archivo ZIP: " + e.getMessage(),
+                e
+            );
+        }
+        return start(target, fileName, uploadedBy, true);
+    }
+    
+    /**
+     * Inicia la carga desde un ZIP o una carpeta dentro de BULK_IMPORT_DIR
+     */
+    public BulkImportReport startFromServer(String relativePath, String uploadedBy) throws MultimediaException {
+        Path root = importRoot.toAbsolutePath().normalize();
+        Path source = root.resolve(relativePath == null ? "" : relativePath.trim()).normalize();
+        if (!source.startsWith(root) || !Files.exists(source)) {
+            throw new MultimediaException(
+                MultimediaException.Type.FILE_NOT_FOUND,
+                "No existe en la carpeta de importación: " + relativePath
+            );
+        }
+        return start(source, root.relativize(source).toString(), uploadedBy, false);
+    }
+    
+    private BulkImportReport start(Path source, String sourceName, String uploadedBy, boolean deleteWhenDone)
+            throws MultimediaException {
+        BulkImportReport report = new BulkImportReport(UUID.randomUUID().toString(), sourceName);
+        BulkImportReport current = running.get();
+        if ((current != null && !current.isFinished()) || !running.compareAndSet(current, report)) {
+            deleteQuietly(deleteWhenDone ? source : null);
+            throw new MultimediaException(
+                MultimediaException.Type.STORAGE_ERROR,
+                "Ya hay una carga masiva en curso"
+            );
+        }
+        synchronized (reports) {
+            reports.put(report.getJobId(), report);
+        }
+        
+        try {
+            executor.execute(() -> {
+                try {
+                    run(report, source, uploadedBy);
+                } finally {
+                    deleteQuietly(deleteWhenDone ? source : null);
+                }
+            });
+        } catch (RuntimeException e) {
+            report.finish("No se pudo iniciar la carga: " + e.getMessage());
+            deleteQuietly(deleteWhenDone ? source : null);
+            throw new MultimediaException(
+                MultimediaException.Type.STORAGE_ERROR,
+                "No se pudo iniciar la carga masiva: " + e.getMessage(),
+                e
+            );
+        }
+        return report;
+    }
+    
+    // ==================== Proceso ====================
+    
+    private void run(BulkImportReport report, Path source, String uploadedBy) {
+        long start = System.nanoTime();
+        Job job = new Job(report, uploadedBy, loadTitleIndex());
+        String error = null;
+        try {
+            if (Files.isDirectory(source)) {
+                readDirectory(source, job);
+            } else {
+                readZip(source, job);
+            }
+            // Espera a que terminen todas las subidas antes del último lote, y luego a sus miniaturas
+            job.permits.acquire(concurrency);
+            job.permits.release(concurrency);
+            flush(job);
+            job.permits.acquire(concurrency);
+            job.permits.release(concurrency);
+            
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            error = "Carga interrumpida";
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Error en la carga masiva de posters: " + report.getSource(), e);
+            error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+        } finally {
+            // Tras un error las subidas en curso siguen: se esperan y lo que no llegó a registrarse se descarta
+            try {
+                job.permits.acquireUninterruptibly(concurrency);
+                job.permits.release(concurrency);
+                discardPending(job, error);
+            } finally {
+                report.finish(error);
+            }
+        }
+        LOGGER.info(String.format("Carga masiva %s: %d archivos, %d registrados, %d sin título, %d con error en %d ms",
+                report.getSource(), report.getProcessed(), report.getSucceeded(), report.getNotMatched(),
+                report.getFailed(), (System.nanoTime() - start) / 1_000_000));
+    }
+    
+    // Se lee entrada por entrada del stream, sin descomprimir a disco
+    private void readZip(Path zipFile, Job job) throws IOException, InterruptedException {
+        try (ZipInputStream zip = new ZipInputStream(new BufferedInputStream(Files.newInputStream(zipFile)))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                if (!entry.isDirectory()) {
+                    accept(entry.getName(), zip, job);
+                }
+            }
+        }
+    }
+    
+    private void readDirectory(Path directory, Job job) throws IOException, InterruptedException {
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(directory)) {
+            files = walk.filter(Files::isRegularFile).sorted().toList();
+        }
+        for (Path file : files) {
+            try (InputStream in = Files.newInputStream(file)) {
+                accept(directory.relativize(file).toString(), in, job);
+            }
+        }
+    }
+    
+    private void accept(String entryName, InputStream in, Job job) throws IOException, InterruptedException {
+        String fileName = entryName.substring(entryName.replace('\\', '/').lastIndexOf('/') + 1);
+        // Metadatos que agregan macOS y algunos compresores
+        if (fileName.isEmpty() || fileName.startsWith(".") || entryName.startsWith("__MACOSX/")) {
+            return;
+        }
+        
+        int dot = fileName.lastIndexOf('.');
+        String extension = dot > 0 ? fileName.substring(dot).toLowerCase(Locale.ROOT) : "";
+        if (!IMAGE_EXTENSIONS.contains(extension)) {
+            job.report.add(entryName, null, BulkImportStatus.REJECTED, "Solo se aceptan imágenes JPG o PNG");
+            return;
+        }
+        
+        List<Object[]> matches = job.titles.getOrDefault(normalize(fileName.substring(0, dot)), List.of());
+        if (matches.isEmpty()) {
+            job.report.add(entryName, null, BulkImportStatus.NO_MATCH, "Ningún título coincide con el nombre del archivo");
+            return;
+        }
+        if (matches.size() > 1) {
+            job.report.add(entryName, null, BulkImportStatus.AMBIGUOUS, matches.size() + " títulos coinciden con el nombre del archivo");
+            return;
+        }
+        Long titleId = (Long) matches.get(0)[0];
+        String titleName = (String) matches.get(0)[1];
+        if (!job.claimedTitles.add(titleId)) {
+            job.report.add(entryName, titleName, BulkImportStatus.DUPLICATE, "El título ya recibió otro archivo de este lote");
+            return;
+        }
+        
+        byte[] content = in.readNBytes(MAX_ENTRY_BYTES);
+        
+        // Backpressure: no se lee la siguiente entrada hasta que haya un cupo libre
+        job.permits.acquire();
+        try {
+            uploaders.execute(() -> upload(job, entryName, titleId, titleName, content));
+        } catch (RuntimeException e) {
+            job.permits.release();
+            throw e;
+        }
+        
+        if (job.uploaded.size() >= batchSize) {
+            flush(job);
+        }
+    }
+    
+    private void upload(Job job, String entryName, Long titleId, String titleName, byte[] content) {
+        try {
+            BlobUploadResult result = fileStorageService.saveFile(
+                new EntryUploadedFile(entryName, content), FileType.POSTER, titleName);
+            job.uploaded.add(new UploadedPoster(entryName, titleId, titleName, result));
+        } catch (MultimediaException e) {
+            boolean rejected = e.getType() == MultimediaException.Type.INVALID_FILE_TYPE
+                || e.getType() == MultimediaException.Type.FILE_TOO_LARGE;
+            job.report.add(entryName, titleName, rejected ? BulkImportStatus.REJECTED : BulkImportStatus.FAILED,
+                e.getMessage());
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Error al subir poster de la carga masiva: " + entryName, e);
+            job.report.add(entryName, titleName, BulkImportStatus.FAILED, e.getMessage());
+        } finally {
+            job.permits.release();
+        }
+    }
+    
+    // ==================== Registro en BD ====================
+    
+    /**
+     * Registra los posters subidos hasta ahora en una transacción: reemplaza los posters anteriores
+     * de esos títulos e inserta los MediaFile en un solo lote JDBC
+     */
+    private void flush(Job job) {
+        List<UploadedPoster> batch = takeUploaded(job);
+        if (batch.isEmpty()) {
+            return;
+        }
+        
+        EntityManager em = emf.createEntityManager();
+        List<Long> ids;
+        try {
+            em.getTransaction().begin();
+            
+            List<Long> titleIds = new ArrayList<>();
+            List<String> superseded = new ArrayList<>();
+            for (UploadedPoster poster : batch) {
+                titleIds.add(poster.titleId);
+                poster.stored = poster.result;
+                if (poster.result.getContentHash() != null) {
+                    poster.stored = storedBlobRegistry.register(em, poster.result);
+                    if (poster.stored != poster.result) {
+                        superseded.add(poster.result.getBlobName());
+                    }
+                }
+            }
+            blobDeletionQueue.enqueue(em, superseded);
+            
+            List<MediaFile> previous = em.createQuery(
+                "SELECT mf FROM MediaFile mf WHERE mf.mediaTitle.id IN :titleIds AND mf.fileType = :fileType",
+                MediaFile.class)
+                .setParameter("titleIds", titleIds)
+                .setParameter("fileType", FileType.POSTER)
+                .getResultList();
+            blobDeletionQueue.enqueue(em, storedBlobRegistry.release(em, previous));
+            for (MediaFile file : previous) {
+                em.remove(file);
+            }
+            em.flush();
+            
+            // IDENTITY impide que Hibernate agrupe los INSERT: se usa JDBC directamente
+            ids = em.unwrap(Session.class).doReturningWork(connection -> insertMediaFiles(connection, batch, job.uploadedBy));
+            em.getTransaction().commit();
+            
+        } catch (Exception e) {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            LOGGER.log(Level.SEVERE, "Error al registrar un lote de la carga masiva (" + batch.size() + " posters)", e);
+            discardUploaded(em, batch);
+            for (UploadedPoster poster : batch) {
+                job.report.add(poster.entryName, poster.titleName, BulkImportStatus.FAILED,
+                    "Error al registrar el archivo: " + e.getMessage());
+            }
+            return;
+        } finally {
+            em.close();
+        }
+        
+        for (int i = 0; i < batch.size(); i++) {
+            UploadedPoster poster = batch.get(i);
+            BlobUploadResult result = poster.stored;
+            // Los INSERT por JDBC no pasan por DashboardCounterListener
+            dashboardCounters.fileAdded(FileType.POSTER, result.getSizeBytes() != null ? result.getSizeBytes() : 0L,
+                result.getBlobUrl() != null);
+            job.report.add(poster.entryName, poster.titleName,
+                result.isDeduplicated() ? BulkImportStatus.DEDUPLICATED : BulkImportStatus.UPLOADED,
+                result.getBlobName());
+            
+            Long mediaFileId = ids.get(i);
+            String blobName = result.getBlobName();
+            // Las miniaturas comparten los cupos de la carga en lugar de la cola de ThumbnailService
+            try {
+                job.permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            uploaders.execute(() -> {
+                try {
+                    thumbnailService.generateVariantsNow(mediaFileId, blobName);
+                } finally {
+                    job.permits.release();
+                }
+            });
+        }
+    }
+    
+    private static List<Long> insertMediaFiles(Connection connection, List<UploadedPoster> batch,
+                                               String uploadedBy) throws SQLException {
+        List<Long> ids = new ArrayList<>(batch.size());
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        try (PreparedStatement statement = connection.prepareStatement(INSERT_MEDIA_FILE_SQL, new String[] {"media_file_id"})) {
+            for (UploadedPoster poster : batch) {
+                BlobUploadResult result = poster.stored;
+                statement.setLong(1, poster.titleId);
+                statement.setString(2, FileType.POSTER.name());
+                statement.setString(3, result.getBlobName());
+                statement.setString(4, result.getBlobUrl());
+                statement.setString(5, result.getEtag());
+                statement.setString(6, result.getContentType());
+                if (result.getSizeBytes() != null) {
+                    statement.setLong(7, result.getSizeBytes());
+                } else {
+                    statement.setNull(7, Types.BIGINT);
+                }
+                statement.setTimestamp(8, now);
+                statement.setString(9, uploadedBy);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+            try (ResultSet keys = statement.getGeneratedKeys()) {
+                while (keys.next()) {
+                    ids.add(keys.getLong(1));
+                }
+            }
+        }
+        return ids;
+    }
+    
+    private static List<UploadedPoster> takeUploaded(Job job) {
+        List<UploadedPoster> batch = new ArrayList<>();
+        UploadedPoster next;
+        while ((next = job.uploaded.poll()) != null) {
+            batch.add(next);
+        }
+        return batch;
+    }
+    
+    // La carga se cortó antes del último lote: los posters ya subidos no se registran
+    private void discardPending(Job job, String error) {
+        List<UploadedPoster> batch = takeUploaded(job);
+        if (batch.isEmpty()) {
+            return;
+        }
+        EntityManager em = emf.createEntityManager();
+        try {
+            discardUploaded(em, batch);
+        } finally {
+            em.close();
+        }
+        for (UploadedPoster poster : batch) {
+            job.report.add(poster.entryName, poster.titleName, BulkImportStatus.FAILED,
+                "No se registró: " + error);
+        }
+    }
+    
+    // Los blobs del lote fallido se encolan; la cola no borra los que otro archivo siga usando
+    private void discardUploaded(EntityManager em, List<UploadedPoster> batch) {
+        List<String> blobNames = new ArrayList<>();
+        for (UploadedPoster poster : batch) {
+            if (!poster.result.isDeduplicated()) {
+                blobNames.add(poster.result.getBlobName());
+            }
+        }
+        try {
+            em.getTransaction().begin();
+            blobDeletionQueue.enqueue(em, blobNames);
+            em.getTransaction().commit();
+        } catch (Exception e) {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            LOGGER.log(Level.WARNING, "No se pudieron encolar los blobs del lote fallido", e);
+        }
+    }
+    
+    // ==================== Utilidades ====================
+    
+    /**
+     * Títulos por nombre normalizado; un nombre con varios títulos se reporta como ambiguo
+     */
+    private Map<String, List<Object[]>> loadTitleIndex() {
+        EntityManager em = emf.createEntityManager();
+        try {
+            Map<String, List<Object[]>> index = new HashMap<>();
+            for (Object[] row : em.createQuery("SELECT mt.id, mt.titleName FROM MediaTitle mt", Object[].class)
+                    .getResultList()) {
+                index.computeIfAbsent(normalize((String) row[1]), k -> new ArrayList<>()).add(row);
+            }
+            return index;
+        } finally {
+            em.close();
+        }
+    }
+    
+    // "El_Padrino II" y "el padrino ii" coinciden: sin acentos, en minúsculas y con separadores unificados
+    private static String normalize(String name) {
+        String plain = Normalizer.normalize(name, Normalizer.Form.NFD).replaceAll("\\p{M}", "");
+        return plain.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]+", " ").trim();
+    }
+    
+    private static void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            LOGGER.warning("No se pudo eliminar el ZIP temporal: " + file);
+        }
+    }
+    
+    private static long readLong(String key, long defaultValue) {
+        String configured = System.getProperty(key);
+        if (configured != null && !configured.isEmpty()) {
+            try {
+                return Long.parseLong(configured.trim());
+            } catch (NumberFormatException e) {
+                LOGGER.warning(key + " inválido, se usa " + defaultValue + ": " + configured);
+            }
+        }
+        return defaultValue;
+    }
+    
+    /**
+     * Estado de una carga en curso
+     */
+    private final class Job {
+        private final BulkImportReport report;
+        private final String uploadedBy;
+        private final Map<String, List<Object[]>> titles;
+        private final Set<Long> claimedTitles = new HashSet<>();
+        private final Semaphore permits = new Semaphore(concurrency);
+        private final ConcurrentLinkedQueue<UploadedPoster> uploaded = new ConcurrentLinkedQueue<>();
+        
+        private Job(BulkImportReport report, String uploadedBy, Map<String, List<Object[]>> titles) {
+            this.report = report;
+            this.uploadedBy = uploadedBy;
+            this.titles = titles;
+        }
+    }
+    
+    private static final class UploadedPoster {
+        private final String entryName;
+        private final Long titleId;
+        private final String titleName;
+        private final BlobUploadResult result;
+        // Blob al que apunta el MediaFile: el subido o, si otra subida del mismo contenido se registró antes, el suyo
+        private BlobUploadResult stored;
+        
+        private UploadedPoster(String entryName, Long titleId, String titleName, BlobUploadResult result) {
+            this.entryName = entryName;
+            this.titleId = titleId;
+            this.titleName = titleName;
+            this.result = result;
+        }
+    }
+    
+    /**
+     * Entrada del ZIP ya leída en memoria, con la interfaz que espera FileStorageService
+     */
+    private static final class EntryUploadedFile implements UploadedFile {
+        private final String fileName;
+        private final byte[] content;
+        
+        private EntryUploadedFile(String fileName, byte[] content) {
+            this.fileName = fileName;
+            this.content = content;
+        }
+        
+        @Override
+        public String getFileName() { return fileName; }
+        
+        @Override
+        public InputStream getInputStream() { return new ByteArrayInputStream(content); }
+        
+        @Override
+        public long getSize() { return content.length; }
+        
+        @Override
+        public byte[] getContent() { return content; }
+        
+        // El tipo real lo determina FileContentInspector por los primeros bytes
+        @Override
+        public String getContentType() { return "application/octet-stream"; }
+        
+        @Override
+        public void write(String filePath) throws IOException {
+            Files.write(Paths.get(filePath), content);
+        }
+        
+        // El contenido solo vive en memoria: no hay un temporal en disco que eliminar
+        @Override
+        public void delete() {}
+    }
+}
\ No newline at end of file
@@ -0,0 +1,471 @@
+package com.jaestrada.multimedia.services;
+
+import com.jaestrada.multimedia.enums.FileType;
+import com.jaestrada.multimedia.exceptions.MultimediaException;
+import com.jaestrada.multimedia.models.MediaFile;
+import com.jaestrada.multimedia.models.MediaTitle;
+import com.jaestrada.multimedia.models.UploadSession;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import jakarta.enterprise.concurrent.ManagedScheduledExecutorService;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.Initialized;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.query.NativeQuery;
+
+import java.io.BufferedInputStream;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Subidas por partes para archivos grandes (fichas técnicas en PDF). El navegador envía el archivo
+ * en partes de tamaño fijo que se guardan como bloques sin publicar; un corte de red solo obliga a
+ * reenviar las partes que faltan. Al confirmar, el almacenamiento une los bloques en un único blob
+ * y se registra el MediaFile igual que en una subida normal.
+ */
+@ApplicationScoped
+public class ChunkedUploadService {
+    
+    private static final Logger LOGGER = Logger.getLogger(ChunkedUploadService.class.getName());
+    
+    // Por debajo del límite de cuerpo de Undertow (10 MB por defecto)
+    private static final long DEFAULT_CHUNK_SIZE_MB = 4;
+    private static final long DEFAULT_SESSION_TTL_HOURS = 24;
+    private static final long PURGE_INTERVAL_MINUTES = 60;
+    // Margen para que EnvListener cargue la configuración antes de la primera consulta
+    private static final long STARTUP_DELAY_SECONDS = 5;
+    
+    private static final String RECORD_CHUNK_SQL =
+        "INSERT INTO upload_session_chunks (upload_id, chunk_index) VALUES (:uploadId, :chunkIndex) " +
+        "ON CONFLICT DO NOTHING";
+    private static final String RESET_CHUNKS_SQL =
+        "DELETE FROM upload_session_chunks WHERE upload_id = :uploadId";
+    
+    @Inject
+    private EntityManagerFactory emf;
+    
+    @Inject
+    private BlobStore blobStore;
+    
+    @Inject
+    private FileStorageService fileStorageService;
+    
+    @Inject
+    private MultimediaService multimediaService;
+    
+    @Resource
+    private ManagedScheduledExecutorService scheduler;
+    
+    private volatile ScheduledFuture<?> purgeTask;
+    
+    public void onStartup(@Observes @Initialized(ApplicationScoped.class) Object event) {
+        scheduler.schedule(this::startPurge, STARTUP_DELAY_SECONDS, TimeUnit.SECONDS);
+    }
+    
+    private void startPurge() {
+        purgeTask = scheduler.scheduleWithFixedDelay(this::purgeExpired, 0, PURGE_INTERVAL_MINUTES, TimeUnit.MINUTES);
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        if (purgeTask != null) {
+            purgeTask.cancel(false);
+        }
+    }
+    
+    /**
+     * Abre una subida; el tamaño se valida aquí para no recibir partes de un archivo que se rechazaría
+     */
+    public UploadSession create(Long titleId, FileType fileType, String fileName, long totalSize,
+                                String uploadedBy) throws MultimediaException {
+        FileContentInspector.checkSize(fileType, totalSize);
+        
+        EntityManager em = emf.createEntityManager();
+        try {
+            MediaTitle title = em.find(MediaTitle.class, titleId);
+            if (title == null) {
+                throw new MultimediaException(
+                    MultimediaException.Type.TITLE_NOT_FOUND,
+                    "Título multimedia no encontrado con ID: " + titleId
+                );
+            }
+            
+            // El hash del contenido no se conoce hasta la última parte: se usa un nombre único
+            UploadSession session = new UploadSession();
+            session.setId(UUID.randomUUID().toString());
+            session.setMediaTitleId(titleId);
+            session.setFileType(fileType);
+            session.setFileName(fileName);
+            session.setBlobName(fileStorageService.generateBlobName(title.getTitleName(), fileType, fileName));
+            session.setTotalSize(totalSize);
+            session.setChunkSize((int) (getChunkSizeMb() * 1024 * 1024));
+            session.setUploadedBy(uploadedBy);
+            
+            em.getTransaction().begin();
+            em.persist(session);
+            em.getTransaction().commit();
+            
+            LOGGER.info("Subida por partes iniciada: " + session);
+            return session;
+            
+        } catch (MultimediaException e) {
+            throw e;
+        } catch (Exception e) {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            throw new MultimediaException(
+                MultimediaException.Type.STORAGE_ERROR,
+                "Error al iniciar la subida: " + e.getMessage(),
+                e
+            );
+        } finally {
+            em.close();
+        }
+    }
+    
+    /**
+     * Estado de una subida (partes recibidas); FILE_NOT_FOUND si no existe o ya expiró
+     */
+    public UploadSession getSession(String uploadId) throws MultimediaException {
+        EntityManager em = emf.createEntityManager();
+        try {
+            UploadSession session = em.find(UploadSession.class, uploadId);
+            if (session == null || session.getUpdatedAt().isBefore(expiryThreshold())) {
+                throw new MultimediaException(
+                    MultimediaException.Type.FILE_NOT_FOUND,
+                    "La subida no existe o expiró: " + uploadId
+                );
+            }
+            return session;
+        } finally {
+            em.close();
+        }
+    }
+    
+    /**
+     * Guarda una parte. La primera se inspecciona antes de guardarla, así un archivo con formato
+     * equivocado se rechaza sin esperar al resto. Reenviar una parte ya recibida la reemplaza.
+     */
+    public void putChunk(String uploadId, int chunkIndex, InputStream data, long length) throws MultimediaException {
+        UploadSession session = getSession(uploadId);
+        checkNotCompleting(session);
+        if (chunkIndex < 0 || chunkIndex >= session.getChunkCount()) {
+            throw new MultimediaException(
+                MultimediaException.Type.INVALID_FILE_TYPE,
+                "Parte fuera de rango: " + chunkIndex + " (el archivo tiene " + session.getChunkCount() + " partes)"
+            );
+        }
+        long expected = session.getExpectedChunkSize(chunkIndex);
+        if (length != expected) {
+            throw new MultimediaException(
+                MultimediaException.Type.INVALID_FILE_TYPE,
+                "La parte " + chunkIndex + " debe medir " + expected + " bytes y se recibieron " + length
+            );
+        }
+        
+        String contentType = null;
+        if (chunkIndex == 0) {
+            BufferedInputStream in = new BufferedInputStream(data);
+            contentType = FileContentInspector.inspect(in, session.getTotalSize(), session.getFileName(),
+                session.getFileType());
+            data = in;
+        }
+        
+        blobStore.stageBlock(session.getBlobName(), chunkIndex, data, length);
+        recordChunk(uploadId, chunkIndex, contentType);
+    }
+    
+    private void recordChunk(String uploadId, int chunkIndex, String contentType) throws MultimediaException {
+        EntityManager em = emf.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            // Inserción directa: varias partes del mismo archivo pueden llegar en paralelo
+            em.createNativeQuery(RECORD_CHUNK_SQL)
+                .unwrap(NativeQuery.class)
+                .addSynchronizedEntityClass(UploadSession.class)
+                .setParameter("uploadId", uploadId)
+                .setParameter("chunkIndex", chunkIndex)
+                .executeUpdate();
+            em.createQuery("UPDATE UploadSession s SET s.updatedAt = :now WHERE s.id = :id")
+                .setParameter("now", LocalDateTime.now())
+                .setParameter("id", uploadId)
+                .executeUpdate();
+            if (contentType != null) {
+                em.createQuery("UPDATE UploadSession s SET s.contentType = :contentType WHERE s.id = :id")
+                    .setParameter("contentType", contentType)
+                    .setParameter("id", uploadId)
+                    .executeUpdate();
+            }
+            em.getTransaction().commit();
+        } catch (Exception e) {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            throw new MultimediaException(
+                MultimediaException.Type.STORAGE_ERROR,
+                "Error al registrar la parte " + chunkIndex + ": " + e.getMessage(),
+                e
+            );
+        } finally {
+            em.close();
+        }
+    }
+    
+    /**
+     * Une las partes en el blob final, comprueba su tamaño y registra el MediaFile. La subida se
+     * reserva antes de empezar y se elimina solo cuando el MediaFile quedó registrado.
+     */
+    public MediaFile complete(String uploadId) throws MultimediaException {
+        UploadSession session = getSession(uploadId);
+        if (!session.isComplete() || session.getContentType() == null) {
+            throw new MultimediaException(
+                MultimediaException.Type.INVALID_FILE_TYPE,
+                "Faltan partes por subir: se recibieron " + session.getCompletedChunks().size()
+                    + " de " + session.getChunkCount()
+            );
+        }
+        
+        String titleName = findTitleName(session.getMediaTitleId());
+        if (titleName == null) {
+            abort(uploadId);
+            throw new MultimediaException(
+                MultimediaException.Type.TITLE_NOT_FOUND,
+                "Título multimedia no encontrado con ID: " + session.getMediaTitleId()
+            );
+        }
+        
+        // Otra confirmación simultánea de la misma subida no vuelve a unir ni a registrar el archivo
+        claim(uploadId);
+        
+        BlobUploadResult result;
+        try {
+            result = blobStore.commitBlocks(session.getBlobName(), session.getChunkCount(),
+                session.getContentType(), fileStorageService.buildMetadata(titleName, session.getFileType(), session.getFileName()));
+        } catch (MultimediaException e) {
+            // Los bloques siguen sin unir: se puede volver a confirmar
+            release(uploadId, false);
+            throw e;
+        }
+        
+        MediaFile mediaFile;
+        try {
+            if (result.getSizeBytes() == null || result.getSizeBytes() != session.getTotalSize()) {
+                deleteBlobQuietly(session.getBlobName());
+                throw new MultimediaException(
+                    MultimediaException.Type.STORAGE_ERROR,
+                    "El archivo unido mide " + result.getSizeBytes() + " bytes y se esperaban " + session.getTotalSize()
+                );
+            }
+            
+            LOGGER.info("✅ Subida por partes completada: " + session.getBlobName() + " (" + session.getChunkCount() + " partes)");
+            mediaFile = multimediaService.registerUploadedFile(session.getMediaTitleId(), session.getFileType(), result,
+                session.getUploadedBy());
+        } catch (MultimediaException e) {
+            // Los bloques ya se consumieron y el blob se descartó: la subida sigue, pero hay que reenviar las partes
+            release(uploadId, true);
+            throw e;
+        }
+        
+        try {
+            deleteSession(uploadId);
+        } catch (MultimediaException e) {
+            // El archivo ya quedó registrado; la subida, todavía reservada, se elimina al expirar
+            LOGGER.log(Level.WARNING, "No se pudo eliminar la subida confirmada: " + uploadId, e);
+        }
+        return mediaFile;
+    }
+    
+    private static void checkNotCompleting(UploadSession session) throws MultimediaException {
+        if (session.isCompleting()) {
+            throw new MultimediaException(
+                MultimediaException.Type.INVALID_FILE_TYPE,
+                "La subida se está confirmando: " + session.getId()
+            );
+        }
+    }
+    
+    /**
+     * Reserva la subida para confirmarla; solo una llamada logra cambiar la marca
+     */
+    private void claim(String uploadId) throws MultimediaException {
+        EntityManager em = emf.createEntityManager();
+        int claimed;
+        try {
+            em.getTransaction().begin();
+            claimed = em.createQuery(
+                "UPDATE UploadSession s SET s.completing = true, s.updatedAt = :now WHERE s.id = :id AND s.completing = false")
+                .setParameter("now", LocalDateTime.now())
+                .setParameter("id", uploadId)
+                .executeUpdate();
+            em.getTransaction().commit();
+        } catch (Exception e) {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            throw new MultimediaException(
+                MultimediaException.Type.STORAGE_ERROR,
+                "Error al confirmar la subida " + uploadId + ": " + e.getMessage(),
+                e
+            );
+        } finally {
+            em.close();
+        }
+        if (claimed != 1) {
+            throw new MultimediaException(
+                MultimediaException.Type.INVALID_FILE_TYPE,
+                "La subida se está confirmando: " + uploadId
+            );
+        }
+    }
+    
+    /**
+     * Libera la reserva tras un error. Si los bloques ya se habían unido, las partes recibidas se olvidan
+     * para que el navegador las vuelva a enviar (la primera se inspecciona de nuevo).
+     */
+    private void release(String uploadId, boolean resetChunks) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            if (resetChunks) {
+                em.createNativeQuery(RESET_CHUNKS_SQL)
+                    .unwrap(NativeQuery.class)
+                    .addSynchronizedEntityClass(UploadSession.class)
+                    .setParameter("uploadId", uploadId)
+                    .executeUpdate();
+                em.createQuery("UPDATE UploadSession s SET s.contentType = null WHERE s.id = :id")
+                    .setParameter("id", uploadId)
+                    .executeUpdate();
+            }
+            em.createQuery("UPDATE UploadSession s SET s.completing = false, s.updatedAt = :now WHERE s.id = :id")
+                .setParameter("now", LocalDateTime.now())
+                .setParameter("id", uploadId)
+                .executeUpdate();
+            em.getTransaction().commit();
+        } catch (Exception e) {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            LOGGER.log(Level.WARNING, "No se pudo liberar la subida " + uploadId + "; se eliminará al expirar", e);
+        } finally {
+            em.close();
+        }
+    }
+    
+    /**
+     * Descarta la subida y sus partes
+     */
+    public void abort(String uploadId) throws MultimediaException {
+        UploadSession session = getSession(uploadId);
+        checkNotCompleting(session);
+        blobStore.abortBlocks(session.getBlobName());
+        deleteSession(uploadId);
+        LOGGER.info("Subida por partes descartada: " + uploadId);
+    }
+    
+    /**
+     * Elimina las subidas sin actividad durante UPLOAD_SESSION_TTL_HOURS junto con sus partes
+     */
+    void purgeExpired() {
+        EntityManager em = emf.createEntityManager();
+        try {
+            List<UploadSession> expired = em.createQuery(
+                "SELECT s FROM UploadSession s WHERE s.updatedAt < :threshold", UploadSession.class
+            ).setParameter("threshold", expiryThreshold()).getResultList();
+            
+            for (UploadSession session : expired) {
+                try {
+                    blobStore.abortBlocks(session.getBlobName());
+                    em.getTransaction().begin();
+                    em.remove(session);
+                    em.getTransaction().commit();
+                } catch (Exception e) {
+                    if (em.getTransaction().isActive()) {
+                        em.getTransaction().rollback();
+                    }
+                    LOGGER.log(Level.WARNING, "No se pudo eliminar la subida expirada: " + session.getId(), e);
+                }
+            }
+            if (!expired.isEmpty()) {
+                LOGGER.info("Subidas por partes expiradas eliminadas: " + expired.size());
+            }
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Error al buscar subidas por partes expiradas", e);
+        } finally {
+            em.close();
+        }
+    }
+    
+    private String findTitleName(Long titleId) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            MediaTitle title = em.find(MediaTitle.class, titleId);
+            return title != null ? title.getTitleName() : null;
+        } finally {
+            em.close();
+        }
+    }
+    
+    private void deleteSession(String uploadId) throws MultimediaException {
+        EntityManager em = emf.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            UploadSession session = em.find(UploadSession.class, uploadId);
+            if (session != null) {
+                em.remove(session);
+            }
+            em.getTransaction().commit();
+        } catch (Exception e) {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            throw new MultimediaException(
+                MultimediaException.Type.STORAGE_ERROR,
+                "Error al eliminar la subida " + uploadId + ": " + e.getMessage(),
+                e
+            );
+        } finally {
+            em.close();
+        }
+    }
+    
+    private void deleteBlobQuietly(String blobName) {
+        try {
+            fileStorageService.deleteFile(blobName);
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "No se pudo eliminar el blob: " + blobName, e);
+        }
+    }
+    
+    private static LocalDateTime expiryThreshold() {
+        return LocalDateTime.now().minusHours(readLong("UPLOAD_SESSION_TTL_HOURS", DEFAULT_SESSION_TTL_HOURS));
+    }
+    
+    /**
+     * Tamaño de cada parte en MB (UPLOAD_CHUNK_SIZE_MB); debe quedar bajo el límite de cuerpo del servidor
+     */
+    public static long getChunkSizeMb() {
+        return Math.max(1, Math.min(64, readLong("UPLOAD_CHUNK_SIZE_MB", DEFAULT_CHUNK_SIZE_MB)));
+    }
+    
+    private static long readLong(String key, long defaultValue) {
+        String configured = System.getProperty(key);
+        if (configured != null && !configured.isEmpty()) {
+            try {
+                return Long.parseLong(configured.trim());
+            } catch (NumberFormatException e) {
+                LOGGER.warning(key + " inválido, se usa " + defaultValue + ": " + configured);
+            }
+        }
+        return defaultValue;
+    }
+}
\ No newline at end of file
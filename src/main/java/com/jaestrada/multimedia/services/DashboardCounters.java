@@ -0,0 +1,191 @@
+package com.jaestrada.multimedia.services;
+
+import com.jaestrada.multimedia.enums.FileType;
+import com.jaestrada.multimedia.enums.TitleType;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import jakarta.enterprise.concurrent.ManagedScheduledExecutorService;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.Initialized;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Contadores en memoria del dashboard, actualizados por los listeners JPA de
+ * MediaTitle y MediaFile. Se siembran desde la base de datos al arrancar y una
+ * reconciliación periódica corrige cualquier desviación (p. ej. transacciones revertidas).
+ */
+@ApplicationScoped
+public class DashboardCounters {
+    
+    private static final Logger LOGGER = Logger.getLogger(DashboardCounters.class.getName());
+    
+    private static final long DEFAULT_RECONCILE_SECONDS = 300;
+    // Margen para que EnvListener cargue la configuración antes de la primera consulta
+    private static final long STARTUP_DELAY_SECONDS = 5;
+    
+    @Inject
+    private DashboardSnapshotCache snapshotCache;
+    
+    @Resource
+    private ManagedScheduledExecutorService scheduler;
+    
+    private final LongAdder totalTitles = new LongAdder();
+    private final LongAdder movies = new LongAdder();
+    private final LongAdder series = new LongAdder();
+    
+    private final LongAdder totalFiles = new LongAdder();
+    private final LongAdder posters = new LongAdder();
+    private final LongAdder technicalSheets = new LongAdder();
+    private final LongAdder totalBytes = new LongAdder();
+    
+    private final LongAdder filesInAzureBlob = new LongAdder();
+    private final LongAdder postersInAzureBlob = new LongAdder();
+    private final LongAdder technicalSheetsInAzureBlob = new LongAdder();
+    private final LongAdder bytesInAzureBlob = new LongAdder();
+    
+    private volatile boolean initialized;
+    private volatile ScheduledFuture<?> reconcileTask;
+    
+    public void onStartup(@Observes @Initialized(ApplicationScoped.class) Object event) {
+        scheduler.schedule(this::startReconciliation, STARTUP_DELAY_SECONDS, TimeUnit.SECONDS);
+    }
+    
+    private void startReconciliation() {
+        long interval = DEFAULT_RECONCILE_SECONDS;
+        String configured = System.getProperty("DASHBOARD_RECONCILE_SECONDS");
+        if (configured != null && !configured.isEmpty()) {
+            try {
+                interval = Math.max(10, Long.parseLong(configured.trim()));
+            } catch (NumberFormatException e) {
+                LOGGER.warning("DASHBOARD_RECONCILE_SECONDS inválido, se usa " + DEFAULT_RECONCILE_SECONDS + "s: " + configured);
+            }
+        }
+        // La primera ejecución siembra los contadores
+        reconcileTask = scheduler.scheduleWithFixedDelay(this::reconcile, 0, interval, TimeUnit.SECONDS);
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        if (reconcileTask != null) {
+            reconcileTask.cancel(false);
+        }
+    }
+    
+    /**
+     * Recalcula los contadores desde la base de datos y corrige la desviación acumulada
+     */
+    public void reconcile() {
+        try {
+            DashboardSnapshot snapshot = snapshotCache.refresh();
+            
+            long drift = Math.abs(totalTitles.sum() - snapshot.getTotalTitles())
+                    + Math.abs(totalFiles.sum() - snapshot.getTotalFiles())
+                    + Math.abs(totalBytes.sum() - snapshot.getTotalBytes());
+            
+            reset(totalTitles, snapshot.getTotalTitles());
+            reset(movies, snapshot.getMovieCount());
+            reset(series, snapshot.getSeriesCount());
+            reset(totalFiles, snapshot.getTotalFiles());
+            reset(technicalSheets, snapshot.getTechnicalSheetsCount());
+            reset(posters, snapshot.getTotalFiles() - snapshot.getTechnicalSheetsCount());
+            reset(totalBytes, snapshot.getTotalBytes());
+            reset(filesInAzureBlob, snapshot.getFilesInAzureBlob());
+            reset(postersInAzureBlob, snapshot.getPostersInAzureBlob());
+            reset(technicalSheetsInAzureBlob, snapshot.getTechnicalSheetsInAzureBlob());
+            reset(bytesInAzureBlob, snapshot.getBytesInAzureBlob());
+            
+            if (!initialized) {
+                initialized = true;
+                LOGGER.info("Contadores del dashboard inicializados");
+            } else if (drift > 0) {
+                LOGGER.info("Contadores del dashboard reconciliados (desviación: " + drift + ")");
+            }
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Error al reconciliar contadores del dashboard", e);
+        }
+    }
+    
+    private static void reset(LongAdder adder, long value) {
+        // No es atómico respecto a eventos concurrentes; la siguiente pasada corrige la diferencia
+        adder.reset();
+        adder.add(value);
+    }
+    
+    // ==================== Eventos de entidades ====================
+    
+    public void titleAdded(TitleType type) {
+        totalTitles.increment();
+        typeCounter(type).increment();
+    }
+    
+    public void titleRemoved(TitleType type) {
+        totalTitles.decrement();
+        typeCounter(type).decrement();
+    }
+    
+    public void titleTypeChanged(TitleType oldType, TitleType newType) {
+        if (oldType != newType) {
+            typeCounter(oldType).decrement();
+            typeCounter(newType).increment();
+        }
+    }
+    
+    public void fileAdded(FileType type, long sizeBytes, boolean inAzureBlob) {
+        applyFile(type, sizeBytes, inAzureBlob, 1);
+    }
+    
+    public void fileRemoved(FileType type, long sizeBytes, boolean inAzureBlob) {
+        applyFile(type, sizeBytes, inAzureBlob, -1);
+    }
+    
+    private void applyFile(FileType type, long sizeBytes, boolean inAzureBlob, int sign) {
+        totalFiles.add(sign);
+        totalBytes.add(sign * sizeBytes);
+        (type == FileType.POSTER ? posters : technicalSheets).add(sign);
+        
+        if (inAzureBlob) {
+            filesInAzureBlob.add(sign);
+            bytesInAzureBlob.add(sign * sizeBytes);
+            (type == FileType.POSTER ? postersInAzureBlob : technicalSheetsInAzureBlob).add(sign);
+        }
+    }
+    
+    private LongAdder typeCounter(TitleType type) {
+        return type == TitleType.SERIES ? series : movies;
+    }
+    
+    // ==================== Lectura ====================
+    
+    public boolean isInitialized() {
+        return initialized;
+    }
+    
+    public long getTotalTitles() { return totalTitles.sum(); }
+    
+    public long getMovieCount() { return movies.sum(); }
+    
+    public long getSeriesCount() { return series.sum(); }
+    
+    public long getTotalFiles() { return totalFiles.sum(); }
+    
+    public long getPosterCount() { return posters.sum(); }
+    
+    public long getTechnicalSheetsCount() { return technicalSheets.sum(); }
+    
+    public long getTotalBytes() { return totalBytes.sum(); }
+    
+    public long getFilesInAzureBlob() { return filesInAzureBlob.sum(); }
+    
+    public long getPostersInAzureBlob() { return postersInAzureBlob.sum(); }
+    
+    public long getTechnicalSheetsInAzureBlob() { return technicalSheetsInAzureBlob.sum(); }
+    
+    public long getBytesInAzureBlob() { return bytesInAzureBlob.sum(); }
+}
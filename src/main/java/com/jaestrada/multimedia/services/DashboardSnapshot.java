@@ -0,0 +1,157 @@
+package com.jaestrada.multimedia.services;
+
+import java.time.Instant;
+
+/**
+ * Instantánea inmutable de las métricas del dashboard, calculada en una sola consulta
+ */
+public final class DashboardSnapshot {
+    
+    private final long totalTitles;
+    private final long movieCount;
+    private final long seriesCount;
+    private final long titlesLastMonth;
+    private final long totalGenres;
+    private final long titleGenreLinks;
+    private final String mostRecentTitleName;
+    
+    private final long totalFiles;
+    private final long technicalSheetsCount;
+    private final long totalBytes;
+    private final long titlesWithPoster;
+    
+    private final long filesInAzureBlob;
+    private final long postersInAzureBlob;
+    private final long technicalSheetsInAzureBlob;
+    private final long bytesInAzureBlob;
+    private final long titlesWithPosterInAzureBlob;
+    
+    private final Instant loadedAt;
+    
+    public DashboardSnapshot(long totalTitles, long movieCount, long seriesCount, long titlesLastMonth,
+                             long totalGenres, long titleGenreLinks, String mostRecentTitleName,
+                             long totalFiles, long technicalSheetsCount, long totalBytes, long titlesWithPoster,
+                             long filesInAzureBlob, long postersInAzureBlob, long technicalSheetsInAzureBlob,
+                             long bytesInAzureBlob, long titlesWithPosterInAzureBlob, Instant loadedAt) {
+        this.totalTitles = totalTitles;
+        this.movieCount = movieCount;
+        this.seriesCount = seriesCount;
+        this.titlesLastMonth = titlesLastMonth;
+        this.totalGenres = totalGenres;
+        this.titleGenreLinks = titleGenreLinks;
+        this.mostRecentTitleName = mostRecentTitleName;
+        this.totalFiles = totalFiles;
+        this.technicalSheetsCount = technicalSheetsCount;
+        this.totalBytes = totalBytes;
+        this.titlesWithPoster = titlesWithPoster;
+        this.filesInAzureBlob = filesInAzureBlob;
+        this.postersInAzureBlob = postersInAzureBlob;
+        this.technicalSheetsInAzureBlob = technicalSheetsInAzureBlob;
+        this.bytesInAzureBlob = bytesInAzureBlob;
+        this.titlesWithPosterInAzureBlob = titlesWithPosterInAzureBlob;
+        this.loadedAt = loadedAt;
+    }
+    
+    /**
+     * Instantánea vacía, usada cuando la base de datos no responde
+     */
+    public static DashboardSnapshot empty() {
+        return new DashboardSnapshot(0, 0, 0, 0, 0, 0, null, 0, 0, 0, 0, 0, 0, 0, 0, 0, Instant.EPOCH);
+    }
+    
+    // ==================== Valores derivados ====================
+    
+    public String getMovieVsSeriesRatio() {
+        return movieCount + " películas / " + seriesCount + " series";
+    }
+    
+    public String getPosterCoveragePercentage() {
+        return formatPercentage(titlesWithPoster, totalTitles);
+    }
+    
+    public String getPosterCoverageInAzureBlobPercentage() {
+        return formatPercentage(titlesWithPosterInAzureBlob, totalTitles);
+    }
+    
+    public String getAverageGenresPerTitle() {
+        if (totalTitles == 0) {
+            return "0.0";
+        }
+        return String.format("%.1f", (double) titleGenreLinks / totalTitles);
+    }
+    
+    public String getTotalStorageUsed() {
+        return formatStorage(totalBytes);
+    }
+    
+    public String getTotalStorageInAzureBlob() {
+        return formatStorage(bytesInAzureBlob);
+    }
+    
+    public String getAzureBlobStorageStats() {
+        return String.format("Total: %d archivos (%d posters, %d fichas) - %s",
+            filesInAzureBlob, postersInAzureBlob, technicalSheetsInAzureBlob, getTotalStorageInAzureBlob());
+    }
+    
+    static String formatPercentage(long part, long total) {
+        if (total == 0) {
+            return "0%";
+        }
+        double percentage = ((double) part / total) * 100;
+        return String.format("%.1f%%", percentage);
+    }
+    
+    static String formatStorage(long totalBytes) {
+        if (totalBytes == 0) {
+            return "0 MB";
+        }
+        
+        double totalMB = (double) totalBytes / (1024 * 1024);
+        if (totalMB < 1) {
+            return String.format("%.2f MB", totalMB);
+        } else if (totalMB < 1024) {
+            return String.format("%.1f MB", totalMB);
+        } else {
+            double totalGB = totalMB / 1024;
+            return String.format("%.2f GB", totalGB);
+        }
+    }
+    
+    // ==================== Getters ====================
+    
+    public long getTotalTitles() { return totalTitles; }
+    
+    public long getMovieCount() { return movieCount; }
+    
+    public long getSeriesCount() { return seriesCount; }
+    
+    public long getTitlesLastMonth() { return titlesLastMonth; }
+    
+    public long getTotalGenres() { return totalGenres; }
+    
+    public long getTitleGenreLinks() { return titleGenreLinks; }
+    
+    public String getMostRecentTitleName() {
+        return mostRecentTitleName != null ? mostRecentTitleName : "Ninguno";
+    }
+    
+    public long getTotalFiles() { return totalFiles; }
+    
+    public long getTechnicalSheetsCount() { return technicalSheetsCount; }
+    
+    public long getTotalBytes() { return totalBytes; }
+    
+    public long getTitlesWithPoster() { return titlesWithPoster; }
+    
+    public long getFilesInAzureBlob() { return filesInAzureBlob; }
+    
+    public long getPostersInAzureBlob() { return postersInAzureBlob; }
+    
+    public long getTechnicalSheetsInAzureBlob() { return technicalSheetsInAzureBlob; }
+    
+    public long getBytesInAzureBlob() { return bytesInAzureBlob; }
+    
+    public long getTitlesWithPosterInAzureBlob() { return titlesWithPosterInAzureBlob; }
+    
+    public Instant getLoadedAt() { return loadedAt; }
+}
@@ -0,0 +1,159 @@
+package com.jaestrada.multimedia.services;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Caché de aplicación para la instantánea del dashboard.
+ * Solo un hilo recalcula cuando vence el TTL; los demás reciben el valor anterior
+ * (o esperan si todavía no existe ninguno), así la página de inicio no satura la base de datos.
+ */
+@ApplicationScoped
+public class DashboardSnapshotCache {
+    
+    private static final Logger LOGGER = Logger.getLogger(DashboardSnapshotCache.class.getName());
+    
+    private static final long DEFAULT_TTL_SECONDS = 30;
+    
+    // Todas las métricas en un solo viaje a la base de datos (agregación condicional de PostgreSQL)
+    private static final String SNAPSHOT_SQL =
+        "SELECT t.total_titles, t.movies, t.series, t.last_month, t.genres, t.genre_links, t.most_recent, " +
+        "       f.total_files, f.sheets, f.total_bytes, f.titles_with_poster, " +
+        "       f.azure_files, f.azure_posters, f.azure_sheets, f.azure_bytes, f.azure_titles_with_poster " +
+        "FROM (" +
+        "    SELECT COUNT(*) AS total_titles, " +
+        "           COUNT(*) FILTER (WHERE title_type = 'MOVIE') AS movies, " +
+        "           COUNT(*) FILTER (WHERE title_type = 'SERIES') AS series, " +
+        "           COUNT(*) FILTER (WHERE created_at >= :since) AS last_month, " +
+        "           (SELECT COUNT(*) FROM movie_genres) AS genres, " +
+        "           (SELECT COUNT(*) FROM media_title_genres) AS genre_links, " +
+        "           (SELECT title_name FROM media_titles ORDER BY created_at DESC NULLS LAST LIMIT 1) AS most_recent " +
+        "    FROM media_titles" +
+        ") t CROSS JOIN (" +
+        "    SELECT COUNT(*) AS total_files, " +
+        "           COUNT(*) FILTER (WHERE file_type = 'TECHNICAL_SHEET') AS sheets, " +
+        "           COALESCE(SUM(size_bytes), 0) AS total_bytes, " +
+        "           COUNT(DISTINCT media_title_id) FILTER (WHERE file_type = 'POSTER') AS titles_with_poster, " +
+        "           COUNT(*) FILTER (WHERE blob_url IS NOT NULL) AS azure_files, " +
+        "           COUNT(*) FILTER (WHERE blob_url IS NOT NULL AND file_type = 'POSTER') AS azure_posters, " +
+        "           COUNT(*) FILTER (WHERE blob_url IS NOT NULL AND file_type = 'TECHNICAL_SHEET') AS azure_sheets, " +
+        "           COALESCE(SUM(size_bytes) FILTER (WHERE blob_url IS NOT NULL), 0) AS azure_bytes, " +
+        "           COUNT(DISTINCT media_title_id) FILTER (WHERE blob_url IS NOT NULL AND file_type = 'POSTER') AS azure_titles_with_poster " +
+        "    FROM media_files" +
+        ") f";
+    
+    @Inject
+    private EntityManagerFactory emf;
+    
+    private final ReentrantLock refreshLock = new ReentrantLock();
+    
+    private volatile DashboardSnapshot snapshot;
+    private volatile long expiresAtMillis;
+    private long ttlMillis;
+    
+    @PostConstruct
+    public void init() {
+        long ttlSeconds = DEFAULT_TTL_SECONDS;
+        String configured = System.getProperty("DASHBOARD_CACHE_TTL_SECONDS");
+        if (configured != null && !configured.isEmpty()) {
+            try {
+                ttlSeconds = Long.parseLong(configured.trim());
+            } catch (NumberFormatException e) {
+                LOGGER.warning("DASHBOARD_CACHE_TTL_SECONDS inválido, se usa " + DEFAULT_TTL_SECONDS + "s: " + configured);
+            }
+        }
+        this.ttlMillis = Math.max(0, ttlSeconds) * 1000;
+    }
+    
+    /**
+     * Devuelve la instantánea vigente, recalculándola si venció el TTL
+     */
+    public DashboardSnapshot get() {
+        DashboardSnapshot current = snapshot;
+        if (current != null && System.currentTimeMillis() < expiresAtMillis) {
+            return current;
+        }
+        
+        if (current != null) {
+            // Otro hilo ya está recalculando: se sirve el valor anterior
+            if (!refreshLock.tryLock()) {
+                return current;
+            }
+        } else {
+            refreshLock.lock();
+        }
+        
+        try {
+            current = snapshot;
+            if (current != null && System.currentTimeMillis() < expiresAtMillis) {
+                return current;
+            }
+            
+            DashboardSnapshot loaded = load();
+            snapshot = loaded;
+            expiresAtMillis = System.currentTimeMillis() + ttlMillis;
+            return loaded;
+            
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Error al calcular las métricas del dashboard", e);
+            return current != null ? current : DashboardSnapshot.empty();
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+    
+    /**
+     * Recalcula la instantánea de inmediato, sin importar el TTL (usado por la reconciliación de contadores)
+     */
+    public DashboardSnapshot refresh() {
+        refreshLock.lock();
+        try {
+            DashboardSnapshot loaded = load();
+            snapshot = loaded;
+            expiresAtMillis = System.currentTimeMillis() + ttlMillis;
+            return loaded;
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+    
+    /**
+     * Fuerza el recálculo en la siguiente lectura
+     */
+    public void invalidate() {
+        expiresAtMillis = 0;
+    }
+    
+    private DashboardSnapshot load() {
+        EntityManager em = emf.createEntityManager();
+        try {
+            Object[] row = (Object[]) em.createNativeQuery(SNAPSHOT_SQL)
+                .setParameter("since", Timestamp.valueOf(LocalDateTime.now().minusMonths(1)))
+                .getSingleResult();
+            
+            return new DashboardSnapshot(
+                toLong(row[0]), toLong(row[1]), toLong(row[2]), toLong(row[3]),
+                toLong(row[4]), toLong(row[5]), (String) row[6],
+                toLong(row[7]), toLong(row[8]), toLong(row[9]), toLong(row[10]),
+                toLong(row[11]), toLong(row[12]), toLong(row[13]), toLong(row[14]), toLong(row[15]),
+                Instant.now()
+            );
+        } finally {
+            em.close();
+        }
+    }
+    
+    private static long toLong(Object value) {
+        return value != null ? ((Number) value).longValue() : 0L;
+    }
+}
@@ -0,0 +1,320 @@
+package com.jaestrada.multimedia.services;
+
+import com.jaestrada.multimedia.enums.FileType;
+import com.jaestrada.multimedia.exceptions.MultimediaException;
+import com.jaestrada.multimedia.models.MediaFile;
+import com.jaestrada.multimedia.models.MediaTitle;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.util.Base64;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Subidas directas del navegador al almacenamiento: la aplicación elige el nombre del blob y entrega
+ * una URL de solo escritura de corta duración (SAS en Azure, LocalBlobUploadServlet en local), así los
+ * bytes no pasan por WildFly. Al confirmar se comprueban tamaño, ETag y formato real antes de crear
+ * el MediaFile; los datos de la subida viajan en un token firmado. El blob se encola para eliminar al
+ * emitir la URL, con fecha posterior al plazo de confirmación, y se quita de la cola al confirmarlo:
+ * una subida abandonada (o que nunca se confirmó) no queda huérfana.
+ */
+@ApplicationScoped
+public class DirectUploadService {
+    
+    private static final Logger LOGGER = Logger.getLogger(DirectUploadService.class.getName());
+    
+    private static final long DEFAULT_URL_VALIDITY_MINUTES = 10;
+    // La URL solo tiene que seguir vigente al iniciar el PUT; la confirmación puede llegar después
+    private static final long FINALIZE_GRACE_SECONDS = 3600;
+    // La limpieza espera un poco más para no cruzarse con una confirmación que empezó al límite
+    private static final long CLEANUP_MARGIN_SECONDS = 600;
+    
+    @Inject
+    private EntityManagerFactory emf;
+    
+    @Inject
+    private BlobStore blobStore;
+    
+    @Inject
+    private FileStorageService fileStorageService;
+    
+    @Inject
+    private MultimediaService multimediaService;
+    
+    @Inject
+    private BlobDeletionQueue blobDeletionQueue;
+    
+    /**
+     * Valida tamaño y tipo declarados y devuelve la URL de escritura para un blob nuevo
+     */
+    public DirectUploadTicket issue(Long titleId, FileType fileType, String fileName, long size,
+                                    String contentType, String uploadedBy) throws MultimediaException {
+        FileContentInspector.checkSize(fileType, size);
+        FileContentInspector.checkContentType(fileType, contentType);
+        
+        String titleName = findTitleName(titleId);
+        if (titleName == null) {
+            throw new MultimediaException(
+                MultimediaException.Type.TITLE_NOT_FOUND,
+                "Título multimedia no encontrado con ID: " + titleId
+            );
+        }
+        
+        // Sin el contenido no hay hash: se usa el nombre único de siempre
+        String blobName = fileStorageService.generateBlobName(titleName, fileType, fileName);
+        OffsetDateTime expiresAt = OffsetDateTime.now().plusMinutes(getUrlValidityMinutes());
+        
+        Ticket ticket = new Ticket(titleId, fileType, blobName, size, contentType, fileName, uploadedBy,
+            expiresAt.toEpochSecond());
+        scheduleCleanup(blobName, expiresAt.toLocalDateTime()
+            .plusSeconds(FINALIZE_GRACE_SECONDS + CLEANUP_MARGIN_SECONDS));
+        
+        DirectUploadTicket result = new DirectUploadTicket();
+        result.setBlobName(blobName);
+        result.setUploadUrl(blobStore.signUpload(blobName, size, contentType, expiresAt));
+        result.setContentType(contentType);
+        result.setToken(ticket.encode());
+        result.setExpiresAt(expiresAt);
+        return result;
+    }
+    
+    /**
+     * Confirma una subida directa. Si el blob no coincide con lo autorizado se elimina; confirmar dos
+     * veces la misma subida devuelve el MediaFile ya creado.
+     */
+    public MediaFile finalizeUpload(String token, String etag) throws MultimediaException {
+        Ticket ticket = Ticket.decode(token);
+        if (Instant.now().getEpochSecond() > ticket.expires + FINALIZE_GRACE_SECONDS) {
+            throw new MultimediaException(
+                MultimediaException.Type.INVALID_FILE_TYPE,
+                "La autorización de subida expiró"
+            );
+        }
+        
+        MediaFile existing = findByBlobName(ticket.blobName);
+        if (existing != null) {
+            return existing;
+        }
+        
+        BlobUploadResult uploaded = blobStore.describe(ticket.blobName);
+        try {
+            verify(ticket, uploaded, etag);
+        } catch (MultimediaException e) {
+            // Un error al leer no dice nada del archivo; se conserva para reintentar la confirmación
+            if (e.getType() != MultimediaException.Type.STORAGE_ERROR) {
+                deleteBlobQuietly(ticket.blobName);
+            }
+            throw e;
+        }
+        
+        uploaded.setContentType(ticket.contentType);
+        LOGGER.info("✅ Subida directa verificada: " + ticket.blobName + " (" + uploaded.getSizeBytes() + " bytes)");
+        MediaFile mediaFile = multimediaService.registerUploadedFile(ticket.titleId, ticket.fileType, uploaded,
+            ticket.uploadedBy);
+        cancelCleanup(ticket.blobName);
+        return mediaFile;
+    }
+    
+    private void verify(Ticket ticket, BlobUploadResult uploaded, String etag) throws MultimediaException {
+        if (uploaded.getSizeBytes() == null || uploaded.getSizeBytes() != ticket.size) {
+            throw new MultimediaException(
+                MultimediaException.Type.INVALID_FILE_TYPE,
+                "El archivo subido mide " + uploaded.getSizeBytes() + " bytes y se autorizaron " + ticket.size
+            );
+        }
+        if (etag == null || !unquote(etag).equals(unquote(uploaded.getEtag()))) {
+            throw new MultimediaException(
+                MultimediaException.Type.INVALID_FILE_TYPE,
+                "El ETag no coincide: el archivo cambió después de subirse"
+            );
+        }
+        if (uploaded.getContentType() != null && !uploaded.getContentType().equals(ticket.contentType)) {
+            throw new MultimediaException(
+                MultimediaException.Type.INVALID_FILE_TYPE,
+                "El archivo se subió como " + uploaded.getContentType() + " y se autorizó " + ticket.contentType
+            );
+        }
+        
+        // El formato real se lee del propio blob, igual que en una subida normal
+        String detected;
+        try (BufferedInputStream in = new BufferedInputStream(blobStore.get(ticket.blobName))) {
+            detected = FileContentInspector.inspect(in, ticket.size, ticket.fileName, ticket.fileType);
+        } catch (IOException e) {
+            throw new MultimediaException(
+                MultimediaException.Type.STORAGE_ERROR,
+                "Error al leer el archivo subido: " + e.getMessage(),
+                e
+            );
+        }
+        if (!detected.equals(ticket.contentType)) {
+            throw new MultimediaException(
+                MultimediaException.Type.INVALID_FILE_TYPE,
+                "El contenido es " + detected + " y se autorizó " + ticket.contentType
+            );
+        }
+    }
+    
+    // Los ETag llegan con o sin comillas según quién los reporte
+    private static String unquote(String etag) {
+        String value = etag.startsWith("W/") ? etag.substring(2) : etag;
+        return value.replace("\"", "");
+    }
+    
+    private String findTitleName(Long titleId) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            MediaTitle title = em.find(MediaTitle.class, titleId);
+            return title != null ? title.getTitleName() : null;
+        } finally {
+            em.close();
+        }
+    }
+    
+    private void scheduleCleanup(String blobName, LocalDateTime notBefore) throws MultimediaException {
+        EntityManager em = emf.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            blobDeletionQueue.enqueue(em, blobName, notBefore);
+            em.getTransaction().commit();
+        } catch (Exception e) {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            LOGGER.log(Level.SEVERE, "Error al programar la limpieza de la subida directa: " + blobName, e);
+            throw new MultimediaException(
+                MultimediaException.Type.STORAGE_ERROR,
+                "Error al autorizar la subida: " + e.getMessage(),
+                e
+            );
+        } finally {
+            em.close();
+        }
+    }
+    
+    // Si falla no pasa nada: la cola descarta los blobs que ya usa algún archivo
+    private void cancelCleanup(String blobName) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            blobDeletionQueue.cancel(em, blobName);
+            em.getTransaction().commit();
+        } catch (Exception e) {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            LOGGER.log(Level.WARNING, "No se pudo quitar de la cola de eliminación la subida confirmada: " + blobName, e);
+        } finally {
+            em.close();
+        }
+    }
+    
+    private MediaFile findByBlobName(String blobName) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            List<MediaFile> found = em.createQuery(
+                "SELECT mf FROM MediaFile mf WHERE mf.localUrl = :blobName", MediaFile.class
+            ).setParameter("blobName", blobName).setMaxResults(1).getResultList();
+            return found.isEmpty() ? null : found.get(0);
+        } finally {
+            em.close();
+        }
+    }
+    
+    private void deleteBlobQuietly(String blobName) {
+        try {
+            fileStorageService.deleteFile(blobName);
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "No se pudo eliminar el blob rechazado: " + blobName, e);
+        }
+    }
+    
+    /**
+     * Minutos de vigencia de la URL de escritura (DIRECT_UPLOAD_URL_VALIDITY_MINUTES)
+     */
+    public static long getUrlValidityMinutes() {
+        String configured = System.getProperty("DIRECT_UPLOAD_URL_VALIDITY_MINUTES");
+        if (configured != null && !configured.isEmpty()) {
+            try {
+                return Math.max(1, Long.parseLong(configured.trim()));
+            } catch (NumberFormatException e) {
+                LOGGER.warning("DIRECT_UPLOAD_URL_VALIDITY_MINUTES inválido, se usa " + DEFAULT_URL_VALIDITY_MINUTES + ": " + configured);
+            }
+        }
+        return DEFAULT_URL_VALIDITY_MINUTES;
+    }
+    
+    /**
+     * Datos autorizados de una subida; se codifican como campos separados por saltos de línea
+     * (en Base64 URL) seguidos de su firma
+     */
+    private static final class Ticket {
+        private final Long titleId;
+        private final FileType fileType;
+        private final String blobName;
+        private final long size;
+        private final String contentType;
+        private final String fileName;
+        private final String uploadedBy;
+        private final long expires;
+        
+        private Ticket(Long titleId, FileType fileType, String blobName, long size, String contentType,
+                       String fileName, String uploadedBy, long expires) {
+            this.titleId = titleId;
+            this.fileType = fileType;
+            this.blobName = blobName;
+            this.size = size;
+            this.contentType = contentType;
+            this.fileName = fileName;
+            this.uploadedBy = uploadedBy;
+            this.expires = expires;
+        }
+        
+        private String encode() {
+            String payload = String.join("\n", String.valueOf(titleId), fileType.name(), field(blobName),
+                String.valueOf(size), contentType, field(fileName), field(uploadedBy), String.valueOf(expires));
+            String encoded = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(payload.getBytes(StandardCharsets.UTF_8));
+            return encoded + "." + UploadSignatures.sign(payload);
+        }
+        
+        private static Ticket decode(String token) throws MultimediaException {
+            try {
+                int dot = token.indexOf('.');
+                String payload = new String(Base64.getUrlDecoder().decode(token.substring(0, dot)), StandardCharsets.UTF_8);
+                if (!UploadSignatures.verify(payload, token.substring(dot + 1))) {
+                    throw new IllegalArgumentException("firma inválida");
+                }
+                String[] fields = payload.split("\n", -1);
+                return new Ticket(Long.valueOf(fields[0]), FileType.valueOf(fields[1]), unfield(fields[2]),
+                    Long.parseLong(fields[3]), fields[4], unfield(fields[5]), unfield(fields[6]),
+                    Long.parseLong(fields[7]));
+            } catch (RuntimeException e) {
+                throw new MultimediaException(
+                    MultimediaException.Type.INVALID_FILE_TYPE,
+                    "Token de subida inválido"
+                );
+            }
+        }
+        
+        // Los nombres pueden traer cualquier carácter, incluido un salto de línea
+        private static String field(String value) {
+            return value == null ? "" : URLEncoder.encode(value, StandardCharsets.UTF_8);
+        }
+        
+        private static String unfield(String value) {
+            return value.isEmpty() ? null : URLDecoder.decode(value, StandardCharsets.UTF_8);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,31 @@
+package com.jaestrada.multimedia.services;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Autorización de una subida directa: el navegador hace PUT del archivo a uploadUrl con el
+ * Content-Type indicado y luego confirma con el token y el ETag que recibió
+ */
+public class DirectUploadTicket {
+    private String blobName;
+    private String uploadUrl;
+    private String contentType;
+    private String token;
+    private OffsetDateTime expiresAt;
+    
+    // Getters y setters
+    public String getBlobName() { return blobName; }
+    public void setBlobName(String blobName) { this.blobName = blobName; }
+    
+    public String getUploadUrl() { return uploadUrl; }
+    public void setUploadUrl(String uploadUrl) { this.uploadUrl = uploadUrl; }
+    
+    public String getContentType() { return contentType; }
+    public void setContentType(String contentType) { this.contentType = contentType; }
+    
+    public String getToken() { return token; }
+    public void setToken(String token) { this.token = token; }
+    
+    public OffsetDateTime getExpiresAt() { return expiresAt; }
+    public void setExpiresAt(OffsetDateTime expiresAt) { this.expiresAt = expiresAt; }
+}
\ No newline at end of file
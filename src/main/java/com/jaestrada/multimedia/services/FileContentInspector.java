@@ -0,0 +1,293 @@
+package com.jaestrada.multimedia.services;
+
+import com.jaestrada.multimedia.enums.FileType;
+import com.jaestrada.multimedia.exceptions.MultimediaException;
+import org.primefaces.model.file.UploadedFile;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Reglas de los archivos subidos, compartidas por FileStorageService y FileTypeValidator.
+ * El formato se reconoce por los primeros bytes del archivo (no por el Content-Type que envía
+ * el navegador) y las dimensiones de las imágenes se leen del encabezado sin decodificar píxeles,
+ * así un archivo mal etiquetado se rechaza antes de enviar nada al almacenamiento.
+ */
+public final class FileContentInspector {
+    
+    // Bytes iniciales que se leen para reconocer el formato
+    private static final int PEEK_SIZE = 8 * 1024;
+    // Un JPEG puede traer EXIF o perfiles ICC antes del encabezado SOF; se recorre por segmentos hasta este límite
+    private static final int MAX_JPEG_HEADER_SCAN = 512 * 1024;
+    // Lo que puede leerse antes de volver al inicio del stream: el recorrido del JPEG más un segmento completo
+    private static final int MARK_LIMIT = MAX_JPEG_HEADER_SCAN + 0x10000 + PEEK_SIZE;
+    // La firma %PDF- puede venir precedida de basura en los primeros 1024 bytes
+    private static final int PDF_SIGNATURE_WINDOW = 1024;
+    
+    private static final long MAX_IMAGE_SIZE = 2 * 1024 * 1024; // 2 MB
+    private static final int MAX_IMAGE_DIMENSION = 8000;
+    private static final long MAX_IMAGE_PIXELS = 40_000_000L;
+    
+    private static final Format JPEG = new Format("image/jpeg",
+        new byte[] {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF}, 0, true);
+    private static final Format PNG = new Format("image/png",
+        new byte[] {(byte) 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A}, 0, true);
+    private static final Format PDF = new Format("application/pdf",
+        "%PDF-".getBytes(StandardCharsets.US_ASCII), PDF_SIGNATURE_WINDOW, false);
+    
+    // Formatos aceptados y tamaño máximo por tipo de archivo
+    private static final Map<FileType, Rule> RULES = new EnumMap<>(FileType.class);
+    
+    static {
+        RULES.put(FileType.POSTER, new Rule(List.of(JPEG, PNG), () -> MAX_IMAGE_SIZE,
+            "El poster debe ser una imagen JPG o PNG",
+            "El archivo de imagen es demasiado grande. Máximo permitido: 2 MB"));
+        RULES.put(FileType.TECHNICAL_SHEET, new Rule(List.of(PDF), FileStorageService::getMaxTechnicalSheetSize,
+            "La ficha técnica debe ser un archivo PDF",
+            null));
+    }
+    
+    private FileContentInspector() {
+    }
+    
+    /**
+     * Valida tamaño, formato real y, en imágenes, dimensiones. Devuelve el Content-Type detectado,
+     * que es el que se guarda con el blob.
+     */
+    public static String inspect(UploadedFile file, FileType fileType) throws MultimediaException {
+        if (file == null) {
+            return inspect(null, 0, null, fileType);
+        }
+        try (BufferedInputStream in = new BufferedInputStream(file.getInputStream(), PEEK_SIZE)) {
+            return inspect(in, file.getSize(), file.getFileName(), fileType);
+        } catch (IOException e) {
+            throw new MultimediaException(
+                MultimediaException.Type.STORAGE_ERROR,
+                "Error al leer el archivo: " + e.getMessage(),
+                e
+            );
+        }
+    }
+    
+    /**
+     * Igual que la anterior sobre el inicio de un stream que se sigue usando (p. ej. la primera parte
+     * de una subida por partes): size es el tamaño total declarado y, al terminar, el stream vuelve
+     * a su primer byte.
+     */
+    public static String inspect(BufferedInputStream in, long size, String fileName, FileType fileType)
+            throws MultimediaException {
+        checkSize(fileType, in == null ? 0 : size);
+        Rule rule = RULES.get(fileType);
+        
+        try {
+            in.mark(MARK_LIMIT);
+            byte[] head = in.readNBytes(PEEK_SIZE);
+            in.reset();
+            
+            Format format = rule.match(head);
+            if (format == null) {
+                throw new MultimediaException(
+                    MultimediaException.Type.INVALID_FILE_TYPE,
+                    rule.invalidTypeMessage + ". El contenido de " + fileName + " no corresponde a ese formato"
+                );
+            }
+            
+            if (format.image) {
+                int[] dimensions = format == PNG ? pngSize(head) : jpegSize(in);
+                in.reset();
+                checkDimensions(dimensions, fileName);
+            }
+            return format.contentType;
+            
+        } catch (EOFException e) {
+            throw new MultimediaException(
+                MultimediaException.Type.INVALID_FILE_TYPE,
+                "El encabezado de la imagen está incompleto: " + fileName,
+                e
+            );
+        } catch (IOException e) {
+            throw new MultimediaException(
+                MultimediaException.Type.STORAGE_ERROR,
+                "Error al leer el archivo: " + e.getMessage(),
+                e
+            );
+        }
+    }
+    
+    /**
+     * Solo el tamaño: lo usa la subida por partes para rechazar un archivo antes de recibir su contenido
+     */
+    public static void checkSize(FileType fileType, long size) throws MultimediaException {
+        if (size <= 0) {
+            throw new MultimediaException(
+                MultimediaException.Type.INVALID_FILE_TYPE,
+                "El archivo está vacío o no es válido"
+            );
+        }
+        Rule rule = RULES.get(fileType);
+        if (size > rule.maxSize.getAsLong()) {
+            throw new MultimediaException(MultimediaException.Type.FILE_TOO_LARGE, rule.tooLargeMessage());
+        }
+    }
+    
+    /**
+     * Content-Type que declara el navegador en una subida directa; el contenido real se revisa al confirmarla
+     */
+    public static void checkContentType(FileType fileType, String contentType) throws MultimediaException {
+        Rule rule = RULES.get(fileType);
+        for (Format format : rule.formats) {
+            if (format.contentType.equals(contentType)) {
+                return;
+            }
+        }
+        throw new MultimediaException(MultimediaException.Type.INVALID_FILE_TYPE, rule.invalidTypeMessage);
+    }
+    
+    private static void checkDimensions(int[] size, String fileName) throws MultimediaException {
+        if (size == null || size[0] <= 0 || size[1] <= 0) {
+            throw new MultimediaException(
+                MultimediaException.Type.INVALID_FILE_TYPE,
+                "No se pudieron leer las dimensiones de la imagen: " + fileName
+            );
+        }
+        if (size[0] > MAX_IMAGE_DIMENSION || size[1] > MAX_IMAGE_DIMENSION
+                || (long) size[0] * size[1] > MAX_IMAGE_PIXELS) {
+            throw new MultimediaException(
+                MultimediaException.Type.FILE_TOO_LARGE,
+                "La imagen mide " + size[0] + "x" + size[1] + " px. Máximo permitido: "
+                    + MAX_IMAGE_DIMENSION + " px por lado"
+            );
+        }
+    }
+    
+    // IHDR es siempre el primer chunk: ancho y alto en los bytes 16-23
+    private static int[] pngSize(byte[] head) {
+        if (head.length < 24 || head[12] != 'I' || head[13] != 'H' || head[14] != 'D' || head[15] != 'R') {
+            return null;
+        }
+        return new int[] {readInt(head, 16), readInt(head, 20)};
+    }
+    
+    /**
+     * Recorre los segmentos del JPEG saltando su contenido hasta el primer SOF, que trae alto y ancho
+     */
+    private static int[] jpegSize(InputStream stream) throws IOException {
+        DataInputStream in = new DataInputStream(stream);
+        in.skipNBytes(2); // SOI
+        long scanned = 2;
+        
+        while (scanned < MAX_JPEG_HEADER_SCAN) {
+            if (in.readUnsignedByte() != 0xFF) {
+                return null;
+            }
+            int marker = in.readUnsignedByte();
+            scanned += 2;
+            // Bytes de relleno entre segmentos
+            while (marker == 0xFF) {
+                marker = in.readUnsignedByte();
+                scanned++;
+            }
+            
+            if (marker == 0x01 || (marker >= 0xD0 && marker <= 0xD7)) {
+                continue; // Marcadores sin longitud
+            }
+            if (marker == 0xD9 || marker == 0xDA) {
+                return null; // Fin de imagen o inicio de los datos sin haber visto un SOF
+            }
+            
+            int length = in.readUnsignedShort();
+            if (length < 2) {
+                return null;
+            }
+            boolean startOfFrame = marker >= 0xC0 && marker <= 0xCF
+                && marker != 0xC4 && marker != 0xC8 && marker != 0xCC;
+            if (startOfFrame) {
+                in.readUnsignedByte(); // Precisión
+                int height = in.readUnsignedShort();
+                int width = in.readUnsignedShort();
+                return new int[] {width, height};
+            }
+            in.skipNBytes(length - 2);
+            scanned += length;
+        }
+        return null;
+    }
+    
+    private static int readInt(byte[] bytes, int offset) {
+        return ((bytes[offset] & 0xFF) << 24) | ((bytes[offset + 1] & 0xFF) << 16)
+            | ((bytes[offset + 2] & 0xFF) << 8) | (bytes[offset + 3] & 0xFF);
+    }
+    
+    /**
+     * Firma de un formato: bytes esperados al inicio (o dentro de los primeros searchWindow bytes)
+     */
+    private static final class Format {
+        private final String contentType;
+        private final byte[] signature;
+        private final int searchWindow;
+        private final boolean image;
+        
+        private Format(String contentType, byte[] signature, int searchWindow, boolean image) {
+            this.contentType = contentType;
+            this.signature = signature;
+            this.searchWindow = searchWindow;
+            this.image = image;
+        }
+        
+        private boolean matches(byte[] head) {
+            int lastStart = Math.min(searchWindow, head.length - signature.length);
+            for (int start = 0; start <= lastStart; start++) {
+                if (matchesAt(head, start)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        
+        private boolean matchesAt(byte[] head, int start) {
+            for (int i = 0; i < signature.length; i++) {
+                if (head[start + i] != signature[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+    
+    private static final class Rule {
+        private final List<Format> formats;
+        private final LongSupplier maxSize;
+        private final String invalidTypeMessage;
+        private final String fixedTooLargeMessage;
+        
+        private Rule(List<Format> formats, LongSupplier maxSize, String invalidTypeMessage, String tooLargeMessage) {
+            this.formats = formats;
+            this.maxSize = maxSize;
+            this.invalidTypeMessage = invalidTypeMessage;
+            this.fixedTooLargeMessage = tooLargeMessage;
+        }
+        
+        private Format match(byte[] head) {
+            for (Format format : formats) {
+                if (format.matches(head)) {
+                    return format;
+                }
+            }
+            return null;
+        }
+        
+        // El límite de las fichas es configurable, así que su mensaje se arma al momento
+        private String tooLargeMessage() {
+            return fixedTooLargeMessage != null ? fixedTooLargeMessage
+                : "El archivo PDF es demasiado grande. Máximo permitido: " + FileStorageService.getMaxTechnicalSheetSizeMb() + " MB";
+        }
+    }
+}
\ No newline at end of file
@@ -2,14 +2,38 @@ package com.jaestrada.multimedia.services;
 
 import com.jaestrada.multimedia.enums.FileType;
 import com.jaestrada.multimedia.exceptions.MultimediaException;
+import com.jaestrada.multimedia.models.MediaFile;
+import jakarta.annotation.Resource;
+import jakarta.enterprise.concurrent.ManagedExecutorService;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
 import org.primefaces.model.file.UploadedFile;
 
-import java.util.Arrays;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.regex.Pattern;
 
 @ApplicationScoped
 public class FileStorageService {
@@ -17,42 +41,71 @@ public class FileStorageService {
     private static final Logger LOGGER = Logger.getLogger(FileStorageService.class.getName());
     
     @Inject
-    private AzureBlobStorageService azureBlobStorageService;
+    private BlobStore blobStore;
     
-    // Límites de tamaño de archivo
-    private static final long MAX_IMAGE_SIZE = 2 * 1024 * 1024; // 2 MB
-    private static final long MAX_PDF_SIZE = 5 * 1024 * 1024;   // 5 MB
+    @Inject
+    private SasUrlService sasUrlService;
     
-    // Tipos de archivo permitidos
-    private static final List<String> ALLOWED_IMAGE_TYPES = Arrays.asList(
-        "image/jpeg", "image/jpg", "image/png"
-    );
-    private static final List<String> ALLOWED_PDF_TYPES = Arrays.asList(
-        "application/pdf"
+    @Inject
+    private BlobCache blobCache;
+    
+    @Inject
+    private StoredBlobRegistry storedBlobRegistry;
+    
+    @Inject
+    private BlobDeletionQueue blobDeletionQueue;
+    
+    @Inject
+    private EntityManagerFactory emf;
+    
+    @Resource
+    private ManagedExecutorService executor;
+    
+    // Cache-Control de los blobs con el hash en el nombre: su contenido no puede cambiar
+    public static final String IMMUTABLE_CACHE_CONTROL = "public, max-age=31536000, immutable";
+    
+    // folder/ab/<sha-256>.ext y sus miniaturas <sha-256>_w<ancho>.ext
+    private static final Pattern FINGERPRINTED_NAME = Pattern.compile(
+        "(posters|fichas)/[0-9a-f]{2}/[0-9a-f]{64}(_w\\d+)?\\.[A-Za-z0-9]+"
     );
     
+    // Límite por defecto de las fichas técnicas; el resto de las reglas está en FileContentInspector
+    private static final long DEFAULT_MAX_PDF_SIZE_MB = 20;
+    
     /**
-     * Guarda un archivo en Azure Blob Storage
+     * Guarda un archivo en el almacenamiento configurado (Azure Blob Storage por defecto)
      */
-    public AzureBlobStorageService.BlobUploadResult saveFile(UploadedFile file, FileType fileType, String titleName) throws MultimediaException {
-        validateFile(file, fileType);
-        
+    public BlobUploadResult saveFile(UploadedFile file, FileType fileType, String titleName) throws MultimediaException {
         try {
-            // Convertir archivo a bytes
-            byte[] fileContent = file.getContent();
-            
-            // Subir a Azure Blob Storage
-            AzureBlobStorageService.BlobUploadResult result = azureBlobStorageService.uploadFile(
-                titleName, 
-                fileType, 
-                fileContent, 
-                file.getContentType(), 
-                file.getFileName()
-            );
+            // Formato real, dimensiones y hash, leídos del archivo antes de enviar nada al almacenamiento
+            InspectedFile inspected = inspectAndHash(file, fileType);
+            String contentType = inspected.contentType;
+            String contentHash = inspected.contentHash;
+            if (contentHash != null) {
+                BlobUploadResult existing = storedBlobRegistry.findByHash(contentHash);
+                if (existing != null) {
+                    LOGGER.info("Contenido ya almacenado, se reutiliza el blob: " + existing.getBlobName());
+                    return existing;
+                }
+            }
             
-            LOGGER.info("Archivo guardado exitosamente en Azure Blob: " + result.getBlobName());
-            return result;
+            // Se transmite el stream con su tamaño conocido, sin copiar el archivo a un byte[]
+            try (InputStream fileContent = file.getInputStream()) {
+                BlobUploadResult result = blobStore.put(
+                    blobNameFor(file, fileType, titleName, contentType, contentHash), 
+                    fileContent, 
+                    file.getSize(), 
+                    contentType, 
+                    buildMetadata(titleName, fileType, file.getFileName())
+                );
+                result.setContentHash(contentHash);
+                
+                LOGGER.info("Archivo guardado exitosamente (" + blobStore.getName() + "): " + result.getBlobName());
+                return result;
+            }
             
+        } catch (MultimediaException e) {
+            throw e;
         } catch (Exception e) {
             LOGGER.log(Level.SEVERE, "Error al procesar archivo: " + file.getFileName(), e);
             throw new MultimediaException(
@@ -64,19 +117,151 @@ public class FileStorageService {
     }
     
     /**
-     * Elimina un archivo de Azure Blob Storage
+     * Versión asíncrona de saveFile: la subida no bloquea al hilo que la inicia. La inspección, el hash
+     * y la búsqueda del contenido repetido leen disco y BD, así que también corren en un hilo administrado.
+     * Cancelar el future corta la transferencia en curso; si ya había terminado, el blob se encola para
+     * eliminar. Los errores se entregan como MultimediaException dentro de una CompletionException.
+     */
+    public CompletableFuture<BlobUploadResult> saveFileAsync(UploadedFile file, FileType fileType, 
+                                                                                   String titleName) {
+        CompletableFuture<BlobUploadResult> result = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                // Cancelada antes de empezar: no se lee ni se sube nada
+                if (result.isDone()) {
+                    return;
+                }
+                CompletableFuture<BlobUploadResult> transfer = startUpload(file, fileType, titleName);
+                result.whenComplete((uploaded, error) -> {
+                    if (result.isCancelled()) {
+                        transfer.cancel(true);
+                    }
+                });
+                transfer.whenComplete((uploaded, error) -> {
+                    if (error != null) {
+                        result.completeExceptionally(error);
+                    } else if (!result.complete(uploaded)) {
+                        // Terminó mientras se cancelaba: nadie va a registrar el blob
+                        discardUnused(uploaded);
+                    }
+                });
+            });
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(new MultimediaException(
+                MultimediaException.Type.STORAGE_ERROR,
+                "No se pudo iniciar la subida: " + e.getMessage(),
+                e
+            ));
+        }
+        return result;
+    }
+    
+    private CompletableFuture<BlobUploadResult> startUpload(UploadedFile file, FileType fileType, String titleName) {
+        InputStream fileContent;
+        String contentType;
+        String contentHash;
+        try {
+            InspectedFile inspected = inspectAndHash(file, fileType);
+            contentType = inspected.contentType;
+            contentHash = inspected.contentHash;
+            if (contentHash != null) {
+                BlobUploadResult existing = storedBlobRegistry.findByHash(contentHash);
+                if (existing != null) {
+                    LOGGER.info("Contenido ya almacenado, se reutiliza el blob: " + existing.getBlobName());
+                    return CompletableFuture.completedFuture(existing);
+                }
+            }
+            fileContent = file.getInputStream();
+        } catch (MultimediaException e) {
+            return CompletableFuture.failedFuture(e);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(new MultimediaException(
+                MultimediaException.Type.STORAGE_ERROR,
+                "Error al procesar el archivo: " + e.getMessage(),
+                e
+            ));
+        }
+        
+        CompletableFuture<BlobUploadResult> put = blobStore
+            .putAsync(blobNameFor(file, fileType, titleName, contentType, contentHash), fileContent, file.getSize(), 
+                      contentType, buildMetadata(titleName, fileType, file.getFileName()));
+        CompletableFuture<BlobUploadResult> transfer = put
+            .handle((result, error) -> {
+                closeQuietly(fileContent);
+                if (error != null) {
+                    LOGGER.log(Level.SEVERE, "Error al subir archivo: " + file.getFileName(), error);
+                    throw new CompletionException(new MultimediaException(
+                        MultimediaException.Type.STORAGE_ERROR,
+                        "Error al subir el archivo: " + error.getMessage(),
+                        error
+                    ));
+                }
+                result.setContentHash(contentHash);
+                return result;
+            });
+        // En Azure, cancelar el future del SDK cancela la suscripción y con ella la subida
+        transfer.whenComplete((result, error) -> {
+            if (transfer.isCancelled()) {
+                put.cancel(true);
+            }
+        });
+        return transfer;
+    }
+    
+    // La cola no elimina el blob si algún archivo lo usa (p. ej. el mismo contenido subido por otro)
+    private void discardUnused(BlobUploadResult uploaded) {
+        if (uploaded.isDeduplicated()) {
+            return;
+        }
+        EntityManager em = emf.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            blobDeletionQueue.enqueue(em, List.of(uploaded.getBlobName()));
+            em.getTransaction().commit();
+        } catch (Exception e) {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            LOGGER.log(Level.WARNING, "No se pudo encolar el blob de una subida cancelada: " + uploaded.getBlobName(), e);
+        } finally {
+            em.close();
+        }
+    }
+    
+    private static void closeQuietly(InputStream stream) {
+        try {
+            stream.close();
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "Error al cerrar el stream del archivo", e);
+        }
+    }
+    
+    /**
+     * Elimina un archivo del almacenamiento
      */
     public void deleteFile(String blobName) throws MultimediaException {
         if (blobName != null && !blobName.isEmpty()) {
-            azureBlobStorageService.deleteFile(blobName);
-            LOGGER.info("Archivo eliminado de Azure Blob: " + blobName);
+            blobStore.delete(blobName);
+            sasUrlService.evict(blobName);
+            blobCache.evict(blobName);
+            LOGGER.info("Archivo eliminado (" + blobStore.getName() + "): " + blobName);
         } else {
             LOGGER.warning("Nombre de blob vacío para eliminar");
         }
     }
     
     /**
-     * Genera una URL SAS temporal para descargar el archivo desde Azure Blob Storage
+     * Elimina un lote de archivos (hasta BlobStore.DELETE_BATCH_SIZE); devuelve los que fallaron con su error
+     */
+    public Map<String, String> deleteFiles(List<String> blobNames) throws MultimediaException {
+        blobNames.forEach(sasUrlService::evict);
+        blobNames.forEach(blobCache::evict);
+        return blobStore.deleteAll(blobNames);
+    }
+    
+    /**
+     * Genera una URL SAS temporal para descargar el archivo desde Azure Blob Storage.
+     * Se firma localmente y se reutiliza mientras siga vigente (ver SasUrlService).
      */
     public String generateDownloadUrl(String blobName) throws MultimediaException {
         if (blobName == null || blobName.isEmpty()) {
@@ -86,55 +271,123 @@ public class FileStorageService {
             );
         }
         
-        // Generar URL SAS válida por 1 hora
-        return azureBlobStorageService.generateSasUrl(blobName, 1);
+        return sasUrlService.getDownloadUrl(blobName);
     }
     
     /**
-     * Valida el archivo según el tipo y restricciones
+     * URLs de descarga para una página de archivos, por ID de MediaFile, sin llamadas de red
      */
-    private void validateFile(UploadedFile file, FileType fileType) throws MultimediaException {
-        if (file == null || file.getSize() == 0) {
-            throw new MultimediaException(
-                MultimediaException.Type.INVALID_FILE_TYPE,
-                "El archivo está vacío o no es válido"
-            );
+    public Map<Long, String> generateDownloadUrls(Collection<MediaFile> files) {
+        return sasUrlService.getDownloadUrls(files);
+    }
+    
+    /**
+     * Tamaño máximo de una ficha técnica en MB (MAX_TECHNICAL_SHEET_SIZE_MB); lo usa FileContentInspector
+     */
+    public static long getMaxTechnicalSheetSizeMb() {
+        String configured = System.getProperty("MAX_TECHNICAL_SHEET_SIZE_MB");
+        if (configured != null && !configured.isEmpty()) {
+            try {
+                return Math.max(1, Long.parseLong(configured.trim()));
+            } catch (NumberFormatException e) {
+                LOGGER.warning("MAX_TECHNICAL_SHEET_SIZE_MB inválido, se usa " + DEFAULT_MAX_PDF_SIZE_MB + " MB: " + configured);
+            }
+        }
+        return DEFAULT_MAX_PDF_SIZE_MB;
+    }
+    
+    public static long getMaxTechnicalSheetSize() {
+        return getMaxTechnicalSheetSizeMb() * 1024 * 1024;
+    }
+    
+    /**
+     * Formato real del archivo y, en modo direccionado por contenido, su SHA-256 (null si está apagado).
+     * Ambos salen de una sola lectura de la copia temporal que ya tiene el contenedor: el inspector
+     * revisa el encabezado y el resto del stream solo alimenta el hash. El hash tiene que estar antes
+     * de la subida porque define el nombre del blob y evita enviar por la red un contenido repetido.
+     */
+    private InspectedFile inspectAndHash(UploadedFile file, FileType fileType) throws MultimediaException, IOException {
+        if (file == null || !storedBlobRegistry.isEnabled()) {
+            return new InspectedFile(FileContentInspector.inspect(file, fileType), null);
+        }
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        try (BufferedInputStream in = new BufferedInputStream(new DigestInputStream(file.getInputStream(), digest))) {
+            String contentType = FileContentInspector.inspect(in, file.getSize(), file.getFileName(), fileType);
+            in.transferTo(OutputStream.nullOutputStream());
+            return new InspectedFile(contentType, HexFormat.of().formatHex(digest.digest()));
+        }
+    }
+    
+    private String blobNameFor(UploadedFile file, FileType fileType, String titleName, String contentType,
+                               String contentHash) {
+        if (contentHash == null) {
+            return generateBlobName(titleName, fileType, file.getFileName());
+        }
+        // folder/ab/abcdef....ext: el mismo contenido siempre cae en el mismo blob. La extensión sale
+        // del formato detectado y no del nombre del cliente (.jpg y .jpeg del mismo archivo son un solo blob)
+        String folder = (fileType == FileType.POSTER) ? "posters" : "fichas";
+        return String.format("%s/%s/%s%s", folder, contentHash.substring(0, 2), contentHash, extensionFor(contentType));
+    }
+    
+    private static String extensionFor(String contentType) {
+        switch (contentType) {
+            case "image/jpeg":
+                return ".jpg";
+            case "image/png":
+                return ".png";
+            case "application/pdf":
+                return ".pdf";
+            default:
+                return "";
         }
+    }
+    
+    /**
+     * true si el nombre del blob lleva el hash de su contenido (se puede cachear sin revalidar)
+     */
+    public static boolean isFingerprinted(String blobName) {
+        return blobName != null && FINGERPRINTED_NAME.matcher(blobName).matches();
+    }
+    
+    /**
+     * Genera el nombre del blob basado en la estructura requerida. Lleva milisegundos y un sufijo
+     * aleatorio para que dos subidas del mismo título en el mismo segundo no se sobrescriban.
+     * También lo usa ChunkedUploadService, que necesita el nombre antes de tener el contenido.
+     */
+    String generateBlobName(String titleName, FileType fileType, String originalFileName) {
+        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss_SSS"));
+        String suffix = Integer.toHexString(ThreadLocalRandom.current().nextInt(0x100000, 0x1000000));
+        String sanitizedTitleName = titleName.replaceAll("[^a-zA-Z0-9]", "_");
         
-        String contentType = file.getContentType();
-        long fileSize = file.getSize();
+        String folder = (fileType == FileType.POSTER) ? "posters" : "fichas";
+        String extension = getFileExtension(originalFileName);
         
-        switch (fileType) {
-            case POSTER:
-                if (!ALLOWED_IMAGE_TYPES.contains(contentType)) {
-                    throw new MultimediaException(
-                        MultimediaException.Type.INVALID_FILE_TYPE,
-                        "Tipo de archivo no válido para poster. Se permiten: JPG, PNG"
-                    );
-                }
-                if (fileSize > MAX_IMAGE_SIZE) {
-                    throw new MultimediaException(
-                        MultimediaException.Type.FILE_TOO_LARGE,
-                        "El archivo de imagen es demasiado grande. Máximo permitido: 2 MB"
-                    );
-                }
-                break;
-                
-            case TECHNICAL_SHEET:
-                if (!ALLOWED_PDF_TYPES.contains(contentType)) {
-                    throw new MultimediaException(
-                        MultimediaException.Type.INVALID_FILE_TYPE,
-                        "Tipo de archivo no válido para ficha técnica. Se permiten: PDF"
-                    );
-                }
-                if (fileSize > MAX_PDF_SIZE) {
-                    throw new MultimediaException(
-                        MultimediaException.Type.FILE_TOO_LARGE,
-                        "El archivo PDF es demasiado grande. Máximo permitido: 5 MB"
-                    );
-                }
-                break;
+        return String.format("%s/%s/%s_%s%s", folder, sanitizedTitleName, timestamp, suffix, extension);
+    }
+    
+    private String getFileExtension(String fileName) {
+        if (fileName == null || !fileName.contains(".")) {
+            return "";
         }
+        return fileName.substring(fileName.lastIndexOf("."));
+    }
+    
+    /**
+     * Metadatos del blob; Azure solo admite ASCII en los valores, por eso se codifican
+     */
+    Map<String, String> buildMetadata(String titleName, FileType fileType, String originalFileName) {
+        Map<String, String> metadata = new HashMap<>();
+        metadata.put("fileType", fileType.name());
+        metadata.put("titleName", URLEncoder.encode(titleName, StandardCharsets.UTF_8));
+        if (originalFileName != null) {
+            metadata.put("originalFileName", URLEncoder.encode(originalFileName, StandardCharsets.UTF_8));
+        }
+        return metadata;
     }
     
     /**
@@ -158,4 +411,14 @@ public class FileStorageService {
         
         return null;
     }
+    
+    private static final class InspectedFile {
+        private final String contentType;
+        private final String contentHash;
+        
+        private InspectedFile(String contentType, String contentHash) {
+            this.contentType = contentType;
+            this.contentHash = contentHash;
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,103 @@
+package com.jaestrada.multimedia.services;
+
+import com.jaestrada.multimedia.models.MovieGenre;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Índice en memoria de nombres de género (sin distinguir mayúsculas) para que la
+ * verificación de duplicados sea una búsqueda en un mapa y no una consulta con LOWER().
+ * Se carga desde la base de datos en el primer uso y se mantiene al guardar o eliminar géneros.
+ */
+@ApplicationScoped
+public class GenreNameIndex {
+    
+    private static final Logger LOGGER = Logger.getLogger(GenreNameIndex.class.getName());
+    
+    @Inject
+    private EntityManagerFactory emf;
+    
+    private Map<String, Long> idsByName;
+    private Map<Long, String> namesById;
+    
+    /**
+     * Indica si existe otro género (distinto de excludeId) con el mismo nombre
+     */
+    public synchronized boolean isNameTaken(String genreName, Long excludeId) {
+        ensureLoaded();
+        Long existingId = idsByName.get(normalize(genreName));
+        return existingId != null && !existingId.equals(excludeId);
+    }
+    
+    /**
+     * Registra (o renombra) un género ya persistido
+     */
+    public synchronized void put(MovieGenre genre) {
+        if (idsByName == null || genre.getId() == null) {
+            return;
+        }
+        String previous = namesById.put(genre.getId(), normalize(genre.getGenreName()));
+        if (previous != null) {
+            idsByName.remove(previous, genre.getId());
+        }
+        idsByName.put(normalize(genre.getGenreName()), genre.getId());
+    }
+    
+    public synchronized void remove(Long genreId) {
+        if (idsByName == null) {
+            return;
+        }
+        String previous = namesById.remove(genreId);
+        if (previous != null) {
+            idsByName.remove(previous, genreId);
+        }
+    }
+    
+    /**
+     * Descarta el índice; se recarga en la siguiente verificación
+     */
+    public synchronized void invalidate() {
+        idsByName = null;
+        namesById = null;
+    }
+    
+    private void ensureLoaded() {
+        if (idsByName != null) {
+            return;
+        }
+        
+        EntityManager em = emf.createEntityManager();
+        try {
+            List<Object[]> rows = em.createQuery(
+                "SELECT mg.id, mg.genreName FROM MovieGenre mg",
+                Object[].class
+            ).getResultList();
+            
+            Map<String, Long> byName = new HashMap<>();
+            Map<Long, String> byId = new HashMap<>();
+            for (Object[] row : rows) {
+                Long id = (Long) row[0];
+                String name = normalize((String) row[1]);
+                byName.put(name, id);
+                byId.put(id, name);
+            }
+            idsByName = byName;
+            namesById = byId;
+            LOGGER.info("Índice de nombres de género cargado: " + byId.size() + " géneros");
+        } finally {
+            em.close();
+        }
+    }
+    
+    private static String normalize(String genreName) {
+        return genreName == null ? "" : genreName.trim().toLowerCase(Locale.ROOT);
+    }
+}
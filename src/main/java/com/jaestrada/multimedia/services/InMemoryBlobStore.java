@@ -0,0 +1,186 @@
+package com.jaestrada.multimedia.services;
+
+import com.jaestrada.multimedia.exceptions.MultimediaException;
+import jakarta.enterprise.inject.Vetoed;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * BlobStore en memoria para pruebas de carga del flujo de subida sin Azure ni disco.
+ * El contenido se pierde al reiniciar.
+ */
+@Vetoed
+public class InMemoryBlobStore implements BlobStore {
+    
+    private static final String URL_PREFIX = "memory://";
+    
+    private final Map<String, StoredBlob> blobs = new ConcurrentHashMap<>();
+    private final Map<String, Map<Integer, byte[]>> stagedBlocks = new ConcurrentHashMap<>();
+    private final AtomicLong version = new AtomicLong();
+    
+    @Override
+    public String getName() {
+        return "memory";
+    }
+    
+    @Override
+    public BlobUploadResult put(String blobName, InputStream data, long length, String contentType,
+                                Map<String, String> metadata) throws MultimediaException {
+        return store(blobName, readFully(data, length), contentType);
+    }
+    
+    @Override
+    public void stageBlock(String blobName, int blockIndex, InputStream data, long length) throws MultimediaException {
+        byte[] block = readFully(data, length);
+        stagedBlocks.computeIfAbsent(blobName, name -> new ConcurrentHashMap<>()).put(blockIndex, block);
+    }
+    
+    @Override
+    public BlobUploadResult commitBlocks(String blobName, int blockCount, String contentType,
+                                         Map<String, String> metadata) throws MultimediaException {
+        Map<Integer, byte[]> blocks = stagedBlocks.getOrDefault(blobName, Map.of());
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        for (int i = 0; i < blockCount; i++) {
+            byte[] block = blocks.get(i);
+            if (block == null) {
+                throw new MultimediaException(
+                    MultimediaException.Type.STORAGE_ERROR,
+                    "Falta la parte " + i + " de " + blobName
+                );
+            }
+            content.writeBytes(block);
+        }
+        stagedBlocks.remove(blobName);
+        return store(blobName, content.toByteArray(), contentType);
+    }
+    
+    @Override
+    public void abortBlocks(String blobName) {
+        stagedBlocks.remove(blobName);
+    }
+    
+    private static byte[] readFully(InputStream data, long length) throws MultimediaException {
+        byte[] content;
+        try {
+            content = data.readNBytes((int) Math.min(length, Integer.MAX_VALUE));
+        } catch (IOException e) {
+            throw new MultimediaException(
+                MultimediaException.Type.STORAGE_ERROR,
+                "Error al leer el archivo: " + e.getMessage(),
+                e
+            );
+        }
+        if (content.length != length) {
+            throw new MultimediaException(
+                MultimediaException.Type.STORAGE_ERROR,
+                "Se esperaban " + length + " bytes y se recibieron " + content.length
+            );
+        }
+        return content;
+    }
+    
+    private BlobUploadResult store(String blobName, byte[] content, String contentType) {
+        StoredBlob blob = new StoredBlob(content, "\"" + version.incrementAndGet() + "\"", OffsetDateTime.now());
+        blobs.put(blobName, blob);
+        
+        BlobUploadResult result = new BlobUploadResult();
+        result.setBlobName(blobName);
+        result.setBlobUrl(URL_PREFIX + blobName);
+        result.setEtag(blob.etag);
+        result.setLastModified(blob.lastModified);
+        result.setContentType(contentType);
+        result.setSizeBytes((long) content.length);
+        return result;
+    }
+    
+    @Override
+    public InputStream get(String blobName) throws MultimediaException {
+        StoredBlob blob = blobs.get(blobName);
+        if (blob == null) {
+            throw new MultimediaException(
+                MultimediaException.Type.FILE_NOT_FOUND,
+                "El archivo no existe: " + blobName
+            );
+        }
+        return new ByteArrayInputStream(blob.content);
+    }
+    
+    @Override
+    public String getEtag(String blobName) throws MultimediaException {
+        StoredBlob blob = blobs.get(blobName);
+        if (blob == null) {
+            throw new MultimediaException(
+                MultimediaException.Type.FILE_NOT_FOUND,
+                "El archivo no existe: " + blobName
+            );
+        }
+        return blob.etag;
+    }
+    
+    @Override
+    public BlobUploadResult describe(String blobName) throws MultimediaException {
+        StoredBlob blob = blobs.get(blobName);
+        if (blob == null) {
+            throw new MultimediaException(
+                MultimediaException.Type.FILE_NOT_FOUND,
+                "El archivo no existe: " + blobName
+            );
+        }
+        BlobUploadResult result = new BlobUploadResult();
+        result.setBlobName(blobName);
+        result.setBlobUrl(URL_PREFIX + blobName);
+        result.setEtag(blob.etag);
+        result.setLastModified(blob.lastModified);
+        result.setSizeBytes((long) blob.content.length);
+        return result;
+    }
+    
+    @Override
+    public boolean exists(String blobName) {
+        return blobs.containsKey(blobName);
+    }
+    
+    @Override
+    public void delete(String blobName) {
+        blobs.remove(blobName);
+    }
+    
+    @Override
+    public List<String> list(String prefix) {
+        return blobs.keySet().stream()
+            .filter(name -> prefix == null || name.startsWith(prefix))
+            .sorted()
+            .collect(Collectors.toList());
+    }
+    
+    @Override
+    public String sign(String blobName, OffsetDateTime expiresAt) {
+        return URL_PREFIX + blobName;
+    }
+    
+    @Override
+    public String signUpload(String blobName, long size, String contentType, OffsetDateTime expiresAt) {
+        return UploadSignatures.localUploadUrl(blobName, size, contentType, expiresAt);
+    }
+    
+    private static final class StoredBlob {
+        private final byte[] content;
+        private final String etag;
+        private final OffsetDateTime lastModified;
+        
+        StoredBlob(byte[] content, String etag, OffsetDateTime lastModified) {
+            this.content = content;
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
+    }
+}
\ No newline at end of file
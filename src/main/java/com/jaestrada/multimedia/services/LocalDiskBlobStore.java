@@ -0,0 +1,364 @@
+package com.jaestrada.multimedia.services;
+
+import com.jaestrada.multimedia.exceptions.MultimediaException;
+import jakarta.enterprise.inject.Vetoed;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * BlobStore en disco local. Cada blob es un archivo bajo el directorio raíz; la escritura va a
+ * un temporal en la misma carpeta y se publica con un rename atómico, así un lector nunca ve
+ * un archivo a medio escribir. MultimediaFileServlet sirve el mismo directorio.
+ * Las partes de las subidas por partes se guardan en un directorio hermano (raíz + ".blocks")
+ * para que el servlet nunca las exponga.
+ */
+@Vetoed
+public class LocalDiskBlobStore implements BlobStore {
+    
+    private static final Logger LOGGER = Logger.getLogger(LocalDiskBlobStore.class.getName());
+    
+    private static final String TEMP_PREFIX = ".upload-";
+    
+    private final Path root;
+    private final Path blocksRoot;
+    private final String baseUrl;
+    
+    public LocalDiskBlobStore(Path root, String baseUrl) throws MultimediaException {
+        try {
+            this.root = Files.createDirectories(root).toRealPath();
+        } catch (IOException e) {
+            throw new MultimediaException(
+                MultimediaException.Type.STORAGE_ERROR,
+                "No se pudo crear el directorio de almacenamiento: " + root,
+                e
+            );
+        }
+        this.blocksRoot = this.root.resolveSibling(this.root.getFileName() + ".blocks");
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl : baseUrl + "/";
+        LOGGER.info("Almacenamiento local en: " + this.root);
+    }
+    
+    @Override
+    public String getName() {
+        return "local";
+    }
+    
+    public Path getRoot() {
+        return root;
+    }
+    
+    @Override
+    public BlobUploadResult put(String blobName, InputStream data, long length, String contentType,
+                                Map<String, String> metadata) throws MultimediaException {
+        Path target = resolve(blobName);
+        Path temp = null;
+        try {
+            Files.createDirectories(target.getParent());
+            temp = Files.createTempFile(target.getParent(), TEMP_PREFIX, ".tmp");
+            
+            long written;
+            try (InputStream in = data) {
+                written = Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            if (written != length) {
+                throw new IOException("Se esperaban " + length + " bytes y se recibieron " + written);
+            }
+            
+            moveIntoPlace(temp, target);
+            
+            // Tamaño, fecha y ETag del archivo ya publicado, los mismos que devuelve describe
+            BlobUploadResult result = describe(blobName);
+            result.setContentType(contentType);
+            return result;
+            
+        } catch (IOException e) {
+            deleteQuietly(temp);
+            throw new MultimediaException(
+                MultimediaException.Type.STORAGE_ERROR,
+                "Error al guardar archivo en disco: " + e.getMessage(),
+                e
+            );
+        }
+    }
+    
+    /**
+     * Cada parte queda en su propio archivo; se escribe a un temporal para que un reintento
+     * interrumpido no deje una parte truncada
+     */
+    @Override
+    public void stageBlock(String blobName, int blockIndex, InputStream data, long length) throws MultimediaException {
+        Path temp = null;
+        try {
+            Path dir = Files.createDirectories(blocksDir(blobName));
+            temp = Files.createTempFile(dir, TEMP_PREFIX, ".tmp");
+            long written;
+            try (InputStream in = data) {
+                written = Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            if (written != length) {
+                throw new IOException("Se esperaban " + length + " bytes y se recibieron " + written);
+            }
+            moveIntoPlace(temp, dir.resolve(blockFileName(blockIndex)));
+        } catch (IOException e) {
+            deleteQuietly(temp);
+            throw new MultimediaException(
+                MultimediaException.Type.STORAGE_ERROR,
+                "Error al guardar la parte " + blockIndex + " en disco: " + e.getMessage(),
+                e
+            );
+        }
+    }
+    
+    /**
+     * Concatena las partes en un temporal junto al destino y lo publica igual que put
+     */
+    @Override
+    public BlobUploadResult commitBlocks(String blobName, int blockCount, String contentType,
+                                         Map<String, String> metadata) throws MultimediaException {
+        Path target = resolve(blobName);
+        Path dir = blocksDir(blobName);
+        Path temp = null;
+        try {
+            for (int i = 0; i < blockCount; i++) {
+                if (!Files.isRegularFile(dir.resolve(blockFileName(i)))) {
+                    throw new MultimediaException(
+                        MultimediaException.Type.STORAGE_ERROR,
+                        "Falta la parte " + i + " de " + blobName
+                    );
+                }
+            }
+            
+            Files.createDirectories(target.getParent());
+            temp = Files.createTempFile(target.getParent(), TEMP_PREFIX, ".tmp");
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                for (int i = 0; i < blockCount; i++) {
+                    Files.copy(dir.resolve(blockFileName(i)), out);
+                }
+            }
+            
+            moveIntoPlace(temp, target);
+            abortBlocks(blobName);
+            
+            BlobUploadResult result = describe(blobName);
+            result.setContentType(contentType);
+            return result;
+            
+        } catch (IOException e) {
+            deleteQuietly(temp);
+            throw new MultimediaException(
+                MultimediaException.Type.STORAGE_ERROR,
+                "Error al unir las partes en disco: " + e.getMessage(),
+                e
+            );
+        }
+    }
+    
+    @Override
+    public void abortBlocks(String blobName) throws MultimediaException {
+        Path dir = blocksDir(blobName);
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.deleteIfExists(file);
+            }
+            Files.deleteIfExists(dir);
+        } catch (IOException e) {
+            throw new MultimediaException(
+                MultimediaException.Type.STORAGE_ERROR,
+                "Error al eliminar las partes de " + blobName + ": " + e.getMessage(),
+                e
+            );
+        }
+    }
+    
+    // Una carpeta por blob, nombrada por el hash del nombre para no depender de sus subcarpetas
+    private Path blocksDir(String blobName) throws MultimediaException {
+        resolve(blobName);
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(blobName.getBytes(StandardCharsets.UTF_8));
+            return blocksRoot.resolve(HexFormat.of().formatHex(hash));
+        } catch (NoSuchAlgorithmException e) {
+            throw new MultimediaException(MultimediaException.Type.STORAGE_ERROR, "SHA-256 no disponible", e);
+        }
+    }
+    
+    private static String blockFileName(int blockIndex) {
+        return String.format("%06d.part", blockIndex);
+    }
+    
+    private static void moveIntoPlace(Path temp, Path target) throws IOException {
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            // Algunos sistemas de archivos no lo soportan; el temporal está en la misma carpeta
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+    
+    @Override
+    public InputStream get(String blobName) throws MultimediaException {
+        try {
+            return Files.newInputStream(resolve(blobName));
+        } catch (NoSuchFileException e) {
+            throw new MultimediaException(
+                MultimediaException.Type.FILE_NOT_FOUND,
+                "El archivo no existe: " + blobName
+            );
+        } catch (IOException e) {
+            throw new MultimediaException(
+                MultimediaException.Type.STORAGE_ERROR,
+                "Error al leer archivo de disco: " + e.getMessage(),
+                e
+            );
+        }
+    }
+    
+    @Override
+    public boolean exists(String blobName) throws MultimediaException {
+        return Files.isRegularFile(resolve(blobName));
+    }
+    
+    /**
+     * Igual al que devuelve put; sale de los atributos del archivo, sin leer su contenido
+     */
+    @Override
+    public String getEtag(String blobName) throws MultimediaException {
+        return describe(blobName).getEtag();
+    }
+    
+    /**
+     * Los archivos se publican con un rename y no se modifican en sitio: tamaño y fecha de modificación
+     * bastan como ETag fuerte. Es el mismo que envía MultimediaFileServlet al servir el archivo.
+     */
+    public static String etagOf(long size, long lastModifiedMillis) {
+        return "\"" + Long.toHexString(size) + "-" + Long.toHexString(lastModifiedMillis) + "\"";
+    }
+    
+    /**
+     * El disco no guarda el Content-Type; se devuelve null
+     */
+    @Override
+    public BlobUploadResult describe(String blobName) throws MultimediaException {
+        Path path = resolve(blobName);
+        try {
+            BlobUploadResult result = new BlobUploadResult();
+            result.setBlobName(blobName);
+            result.setBlobUrl(baseUrl + blobName);
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            long lastModified = attributes.lastModifiedTime().toMillis();
+            result.setSizeBytes(attributes.size());
+            result.setLastModified(Instant.ofEpochMilli(lastModified).atOffset(ZoneOffset.UTC));
+            result.setEtag(etagOf(attributes.size(), lastModified));
+            return result;
+        } catch (NoSuchFileException e) {
+            throw new MultimediaException(
+                MultimediaException.Type.FILE_NOT_FOUND,
+                "El archivo no existe: " + blobName
+            );
+        } catch (IOException e) {
+            throw new MultimediaException(
+                MultimediaException.Type.STORAGE_ERROR,
+                "Error al leer archivo de disco: " + e.getMessage(),
+                e
+            );
+        }
+    }
+    
+    @Override
+    public void delete(String blobName) throws MultimediaException {
+        try {
+            Files.deleteIfExists(resolve(blobName));
+        } catch (IOException e) {
+            throw new MultimediaException(
+                MultimediaException.Type.STORAGE_ERROR,
+                "Error al eliminar archivo de disco: " + e.getMessage(),
+                e
+            );
+        }
+    }
+    
+    @Override
+    public List<String> list(String prefix) throws MultimediaException {
+        List<String> names = new ArrayList<>();
+        try (Stream<Path> files = Files.walk(root)) {
+            files.filter(Files::isRegularFile)
+                .filter(path -> !path.getFileName().toString().startsWith(TEMP_PREFIX))
+                .map(path -> root.relativize(path).toString().replace('\\', '/'))
+                .filter(name -> prefix == null || name.startsWith(prefix))
+                .sorted()
+                .forEach(names::add);
+            return names;
+        } catch (IOException e) {
+            throw new MultimediaException(
+                MultimediaException.Type.STORAGE_ERROR,
+                "Error al listar archivos de disco: " + e.getMessage(),
+                e
+            );
+        }
+    }
+    
+    /**
+     * Las URLs locales apuntan a MultimediaFileServlet y no llevan firma
+     */
+    @Override
+    public String sign(String blobName, OffsetDateTime expiresAt) throws MultimediaException {
+        resolve(blobName);
+        return baseUrl + blobName;
+    }
+    
+    /**
+     * URL firmada de LocalBlobUploadServlet, que imita el SAS de escritura de Azure
+     */
+    @Override
+    public String signUpload(String blobName, long size, String contentType, OffsetDateTime expiresAt)
+            throws MultimediaException {
+        resolve(blobName);
+        return UploadSignatures.localUploadUrl(blobName, size, contentType, expiresAt);
+    }
+    
+    /**
+     * Ruta del blob dentro del directorio raíz; rechaza nombres que intenten salir de él
+     */
+    Path resolve(String blobName) throws MultimediaException {
+        Path path = root.resolve(blobName).normalize();
+        if (blobName.isEmpty() || !path.startsWith(root) || path.equals(root)) {
+            throw new MultimediaException(
+                MultimediaException.Type.FILE_NOT_FOUND,
+                "Nombre de blob no válido: " + blobName
+            );
+        }
+        return path;
+    }
+    
+    private static void deleteQuietly(Path path) {
+        if (path != null) {
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                LOGGER.warning("No se pudo eliminar el temporal: " + path);
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -1,21 +1,39 @@
 package com.jaestrada.multimedia.services;
 
 import com.jaestrada.multimedia.enums.FileType;
+import com.jaestrada.multimedia.enums.TitleType;
 import com.jaestrada.multimedia.exceptions.MultimediaException;
 import com.jaestrada.multimedia.models.MediaFile;
+import com.jaestrada.multimedia.models.MediaFileVariant;
 import com.jaestrada.multimedia.models.MediaTitle;
 import com.jaestrada.multimedia.models.MovieGenre;
+import jakarta.annotation.Resource;
+import jakarta.enterprise.concurrent.ManagedExecutorService;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
 import jakarta.persistence.NoResultException;
 import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
 import jakarta.persistence.TypedQuery;
-import jakarta.transaction.Transactional;
+import org.hibernate.SessionFactory;
+import org.hibernate.annotations.QueryHints;
 import org.primefaces.model.file.UploadedFile;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -24,12 +42,38 @@ public class MultimediaService {
     
     private static final Logger LOGGER = Logger.getLogger(MultimediaService.class.getName());
     
+    // Región de la caché de consultas para la lista ordenada de géneros
+    private static final String GENRE_LIST_CACHE_REGION = "genreList";
+    
+    // Campos por los que se permite ordenar la tabla de títulos
+    private static final Set<String> SORTABLE_TITLE_FIELDS = Set.of(
+        "titleName", "titleType", "releaseYear", "averageRating", "createdAt"
+    );
+    
     @Inject
     private EntityManager em;
     
+    @Inject
+    private EntityManagerFactory emf;
+    
+    @Resource
+    private ManagedExecutorService executor;
+    
     @Inject
     private FileStorageService fileStorageService;
     
+    @Inject
+    private GenreNameIndex genreNameIndex;
+    
+    @Inject
+    private BlobDeletionQueue blobDeletionQueue;
+    
+    @Inject
+    private ThumbnailService thumbnailService;
+    
+    @Inject
+    private StoredBlobRegistry storedBlobRegistry;
+    
     // ==================== CRUD Operations for MediaTitle ====================
     
     public void saveMediaTitle(MediaTitle title) throws MultimediaException {
@@ -71,6 +115,90 @@ public class MultimediaService {
         return query.getResultList();
     }
     
+    /**
+     * Obtiene una página de títulos aplicando orden y filtros en la base de datos.
+     * Los géneros se cargan en una segunda consulta solo para los IDs de la página,
+     * evitando la paginación en memoria que Hibernate aplica con JOIN FETCH.
+     */
+    public List<MediaTitle> getTitlesPage(int first, int pageSize, String sortField, boolean ascending,
+                                          Map<String, Object> filters) {
+        StringBuilder jpql = new StringBuilder("SELECT mt FROM MediaTitle mt");
+        Map<String, Object> params = new HashMap<>();
+        appendTitleFilters(jpql, params, filters);
+        
+        // Solo se aceptan campos conocidos; por defecto, los más recientes primero
+        boolean sortable = sortField != null && SORTABLE_TITLE_FIELDS.contains(sortField);
+        String orderField = sortable ? sortField : "createdAt";
+        String direction = (sortable && ascending) ? "ASC" : "DESC";
+        jpql.append(" ORDER BY mt.").append(orderField).append(" ").append(direction).append(", mt.id DESC");
+        
+        TypedQuery<MediaTitle> query = em.createQuery(jpql.toString(), MediaTitle.class);
+        params.forEach(query::setParameter);
+        query.setFirstResult(Math.max(first, 0));
+        if (pageSize > 0) {
+            query.setMaxResults(pageSize);
+        }
+        List<MediaTitle> page = query.getResultList();
+        
+        if (!page.isEmpty()) {
+            List<Long> ids = new ArrayList<>(page.size());
+            for (MediaTitle title : page) {
+                ids.add(title.getId());
+            }
+            // Inicializa la colección de géneros de las entidades ya cargadas en el contexto
+            em.createQuery(
+                "SELECT DISTINCT mt FROM MediaTitle mt LEFT JOIN FETCH mt.genres WHERE mt.id IN :ids", 
+                MediaTitle.class
+            ).setParameter("ids", ids).getResultList();
+        }
+        return page;
+    }
+    
+    /**
+     * Cuenta los títulos que cumplen los filtros (consulta separada para el paginador)
+     */
+    public long countTitles(Map<String, Object> filters) {
+        StringBuilder jpql = new StringBuilder("SELECT COUNT(mt) FROM MediaTitle mt");
+        Map<String, Object> params = new HashMap<>();
+        appendTitleFilters(jpql, params, filters);
+        
+        TypedQuery<Long> query = em.createQuery(jpql.toString(), Long.class);
+        params.forEach(query::setParameter);
+        return query.getSingleResult();
+    }
+    
+    private void appendTitleFilters(StringBuilder jpql, Map<String, Object> params, Map<String, Object> filters) {
+        List<String> conditions = new ArrayList<>();
+        if (filters != null) {
+            Object titleName = filters.get("titleName");
+            if (titleName != null && !titleName.toString().trim().isEmpty()) {
+                conditions.add("LOWER(mt.titleName) LIKE :titleName");
+                params.put("titleName", "%" + titleName.toString().trim().toLowerCase() + "%");
+            }
+            
+            Object titleType = filters.get("titleType");
+            if (titleType != null && !titleType.toString().trim().isEmpty()) {
+                // Mismo criterio que el filtro por defecto de PrimeFaces (startsWith sobre el nombre del enum)
+                String prefix = titleType.toString().trim().toUpperCase();
+                List<TitleType> types = new ArrayList<>();
+                for (TitleType type : TitleType.values()) {
+                    if (type.name().startsWith(prefix)) {
+                        types.add(type);
+                    }
+                }
+                if (types.isEmpty()) {
+                    conditions.add("1 = 0");
+                } else {
+                    conditions.add("mt.titleType IN :titleTypes");
+                    params.put("titleTypes", types);
+                }
+            }
+        }
+        if (!conditions.isEmpty()) {
+            jpql.append(" WHERE ").append(String.join(" AND ", conditions));
+        }
+    }
+    
     public MediaTitle findById(Long id) throws MultimediaException {
         try {
             MediaTitle title = em.find(MediaTitle.class, id);
@@ -97,18 +225,17 @@ public class MultimediaService {
             
             MediaTitle title = findById(id);
             
-            // Eliminar archivos asociados de Azure Blob Storage
-            for (MediaFile file : title.getMediaFiles()) {
-                try {
-                    fileStorageService.deleteFile(file.getLocalUrl()); // localUrl contiene el nombre del blob
-                } catch (MultimediaException e) {
-                    LOGGER.warning("No se pudo eliminar archivo de Azure Blob: " + file.getLocalUrl());
-                }
-            }
+            // Los blobs que ya no usa ningún otro archivo se encolan para eliminarse en segundo plano
+            List<MediaFile> files = em.createQuery(
+                "SELECT mf FROM MediaFile mf WHERE mf.mediaTitle.id = :titleId", MediaFile.class
+            ).setParameter("titleId", id).getResultList();
+            List<String> unused = storedBlobRegistry.release(em, files);
+            blobDeletionQueue.enqueue(em, unused);
+            int queued = unused.size();
             
             em.remove(title);
             em.getTransaction().commit();
-            LOGGER.info("Título multimedia eliminado: " + title.getTitleName());
+            LOGGER.info("Título multimedia eliminado: " + title.getTitleName() + " (" + queued + " blobs encolados para eliminar)");
             
         } catch (Exception e) {
             if (em.getTransaction().isActive()) {
@@ -130,6 +257,8 @@ public class MultimediaService {
             "SELECT mg FROM MovieGenre mg ORDER BY mg.genreName", 
             MovieGenre.class
         );
+        query.setHint(QueryHints.CACHEABLE, true);
+        query.setHint(QueryHints.CACHE_REGION, GENRE_LIST_CACHE_REGION);
         return query.getResultList();
     }
     
@@ -156,6 +285,8 @@ public class MultimediaService {
             }
             
             em.getTransaction().commit();
+            evictGenreCaches();
+            genreNameIndex.put(genre);
             
         } catch (MultimediaException e) {
             if (em.getTransaction().isActive()) {
@@ -175,9 +306,10 @@ public class MultimediaService {
         }
     }
     
-    @Transactional
     public void deleteGenre(Long id) throws MultimediaException {
         try {
+            em.getTransaction().begin();
+            
             MovieGenre genre = em.find(MovieGenre.class, id);
             if (genre == null) {
                 throw new MultimediaException(
@@ -187,10 +319,7 @@ public class MultimediaService {
             }
             
             // Verificar si el género está siendo usado
-            long titleCount = em.createQuery(
-                "SELECT COUNT(mt) FROM MediaTitle mt JOIN mt.genres g WHERE g.id = :genreId", 
-                Long.class
-            ).setParameter("genreId", id).getSingleResult();
+            long titleCount = queryTitleCountsByGenre(id).getOrDefault(id, 0L);
             
             if (titleCount > 0) {
                 throw new MultimediaException(
@@ -200,11 +329,21 @@ public class MultimediaService {
             }
             
             em.remove(genre);
+            em.getTransaction().commit();
+            // El índice y las cachés se actualizan solo si el borrado quedó confirmado
+            evictGenreCaches();
+            genreNameIndex.remove(id);
             LOGGER.info("Género eliminado: " + genre.getGenreName());
             
         } catch (MultimediaException e) {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
             throw e;
         } catch (Exception e) {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
             LOGGER.log(Level.SEVERE, "Error al eliminar género con ID: " + id, e);
             throw new MultimediaException(
                 MultimediaException.Type.STORAGE_ERROR,
@@ -216,64 +355,267 @@ public class MultimediaService {
     
     public int getTitleCountForGenre(Long genreId) {
         try {
-            Long count = em.createQuery(
-                "SELECT COUNT(mt) FROM MediaTitle mt JOIN mt.genres g WHERE g.id = :genreId", 
-                Long.class
-            ).setParameter("genreId", genreId).getSingleResult();
-            return count.intValue();
+            return queryTitleCountsByGenre(genreId).getOrDefault(genreId, 0L).intValue();
         } catch (Exception e) {
             LOGGER.log(Level.WARNING, "Error al obtener conteo de títulos para género: " + genreId, e);
             return 0;
         }
     }
     
+    /**
+     * Obtiene el número de títulos por género (ID del género -> conteo) en una sola consulta agrupada
+     */
+    public Map<Long, Long> getTitleCountsByGenre() {
+        try {
+            return queryTitleCountsByGenre(null);
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Error al obtener conteo de títulos por género", e);
+            return new HashMap<>();
+        }
+    }
+    
+    // Agrupa directamente sobre la tabla intermedia; si genreId no es null, restringe a ese género
+    private Map<Long, Long> queryTitleCountsByGenre(Long genreId) {
+        String sql = "SELECT movie_genre_id, COUNT(*) FROM media_title_genres"
+                + (genreId != null ? " WHERE movie_genre_id = :genreId" : "")
+                + " GROUP BY movie_genre_id";
+        Query query = em.createNativeQuery(sql);
+        if (genreId != null) {
+            query.setParameter("genreId", genreId);
+        }
+        
+        Map<Long, Long> counts = new HashMap<>();
+        for (Object row : query.getResultList()) {
+            Object[] columns = (Object[]) row;
+            counts.put(((Number) columns[0]).longValue(), ((Number) columns[1]).longValue());
+        }
+        return counts;
+    }
+    
     // ==================== File Operations ====================
     
     public MediaFile uploadFile(MediaTitle title, UploadedFile file, FileType fileType, String uploadedBy) 
             throws MultimediaException {
         
+        // 1. Subir el blob fuera de cualquier transacción: la transferencia no retiene una conexión
+        BlobUploadResult uploadResult = 
+            fileStorageService.saveFile(file, fileType, title.getTitleName());
+        
+        // 2. Transacción corta para el registro
+        return recordUploadedFile(em, title, fileType, uploadResult, uploadedBy);
+    }
+    
+    /**
+     * Sube varios archivos de un título a la vez (p. ej. poster y ficha técnica al guardar el formulario)
+     * y espera a que queden registrados. El formulario necesita esperar: el contenido de los Part solo
+     * es válido durante el request y los mensajes de resultado van en esa misma respuesta.
+     */
+    public List<MediaFile> uploadFiles(MediaTitle title, Map<FileType, UploadedFile> files, String uploadedBy)
+            throws MultimediaException {
         try {
-            // Si es un poster, eliminar el poster anterior ANTES de subir el nuevo
-            if (fileType == FileType.POSTER) {
-                removeExistingPosterBeforeUpload(title);
+            return uploadFilesAsync(title, files, uploadedBy).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof MultimediaException) {
+                throw (MultimediaException) e.getCause();
             }
-            
+            throw new MultimediaException(
+                MultimediaException.Type.STORAGE_ERROR,
+                "Error al subir los archivos: " + e.getCause().getMessage(),
+                e.getCause()
+            );
+        }
+    }
+    
+    /**
+     * Versión asíncrona de uploadFile: la subida corre en el cliente asíncrono del almacenamiento y el
+     * registro en BD se escribe después en un hilo administrado con su propio EntityManager, así ningún
+     * hilo queda esperando la red. Los errores llegan como MultimediaException dentro de una CompletionException.
+     */
+    public CompletableFuture<MediaFile> uploadFileAsync(MediaTitle title, UploadedFile file, FileType fileType, 
+                                                        String uploadedBy) {
+        return uploadFilesAsync(title, Map.of(fileType, file), uploadedBy)
+            .thenApply(mediaFiles -> mediaFiles.get(0));
+    }
+    
+    /**
+     * Versión asíncrona de uploadFiles. Las transferencias corren a la vez, así la espera total es la de
+     * la más lenta y no la suma. Si una falla, las demás se cancelan aunque ya estén transfiriendo (con el
+     * almacenamiento local la copia es síncrona y solo se evita si no empezó) y los blobs de las que
+     * terminaron se descartan; si todas terminan, los MediaFile (y el reemplazo del poster anterior) se
+     * escriben en una sola transacción corta en un hilo administrado.
+     */
+    public CompletableFuture<List<MediaFile>> uploadFilesAsync(MediaTitle title, Map<FileType, UploadedFile> files,
+                                                               String uploadedBy) {
+        Map<FileType, CompletableFuture<BlobUploadResult>> transfers = new EnumMap<>(FileType.class);
+        for (Map.Entry<FileType, UploadedFile> entry : files.entrySet()) {
+            transfers.put(entry.getKey(),
+                fileStorageService.saveFileAsync(entry.getValue(), entry.getKey(), title.getTitleName()));
+        }
+        // La primera que falla cancela a las demás
+        for (CompletableFuture<BlobUploadResult> transfer : transfers.values()) {
+            transfer.whenComplete((result, error) -> {
+                if (error != null) {
+                    transfers.values().forEach(sibling -> sibling.cancel(true));
+                }
+            });
+        }
+        
+        // Se espera a que todas terminen: una que terminó antes del error deja un blob que hay que descartar
+        CompletableFuture<?>[] settled = transfers.values().stream()
+            .map(transfer -> transfer.handle((result, error) -> null))
+            .toArray(CompletableFuture<?>[]::new);
+        return CompletableFuture.allOf(settled).thenApplyAsync(ignored -> {
+            // El EntityManager inyectado es del request; en este hilo se usa uno propio
+            EntityManager workerEm = emf.createEntityManager();
+            try {
+                return recordTransfers(workerEm, title, transfers, uploadedBy);
+            } catch (MultimediaException e) {
+                throw new CompletionException(e);
+            } finally {
+                workerEm.close();
+            }
+        }, executor);
+    }
+    
+    // Todas las transferencias ya terminaron; se registran o, si alguna falló, se descartan las subidas
+    private List<MediaFile> recordTransfers(EntityManager em, MediaTitle title,
+                                            Map<FileType, CompletableFuture<BlobUploadResult>> transfers,
+                                            String uploadedBy) throws MultimediaException {
+        Map<FileType, BlobUploadResult> uploaded = new EnumMap<>(FileType.class);
+        Throwable failure = null;
+        for (Map.Entry<FileType, CompletableFuture<BlobUploadResult>> entry : transfers.entrySet()) {
+            try {
+                uploaded.put(entry.getKey(), entry.getValue().join());
+            } catch (CancellationException | CompletionException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                if (failure == null || failure instanceof CancellationException) {
+                    failure = cause;
+                }
+            }
+        }
+        
+        if (failure != null) {
+            for (BlobUploadResult result : uploaded.values()) {
+                discardUploadedBlob(em, result);
+            }
+            if (failure instanceof MultimediaException) {
+                throw (MultimediaException) failure;
+            }
+            throw new MultimediaException(
+                MultimediaException.Type.STORAGE_ERROR,
+                "Error al subir los archivos: " + failure.getMessage(),
+                failure
+            );
+        }
+        
+        List<MediaFile> mediaFiles = recordUploadedFiles(
+            em, em.getReference(MediaTitle.class, title.getId()), uploaded, uploadedBy);
+        // Se devuelven ligados al título del llamador, no a la referencia de este EntityManager
+        mediaFiles.forEach(mediaFile -> mediaFile.setMediaTitle(title));
+        return mediaFiles;
+    }
+    
+    /**
+     * Registra un blob que llegó por otra vía (p. ej. una subida por partes ya confirmada).
+     * Si el título se eliminó mientras tanto, el blob se descarta.
+     */
+    public MediaFile registerUploadedFile(Long titleId, FileType fileType, BlobUploadResult uploadResult,
+                                          String uploadedBy) throws MultimediaException {
+        MediaTitle title = em.find(MediaTitle.class, titleId);
+        if (title == null) {
+            discardUploadedBlob(em, uploadResult);
+            throw new MultimediaException(
+                MultimediaException.Type.TITLE_NOT_FOUND,
+                "Título multimedia no encontrado con ID: " + titleId
+            );
+        }
+        return recordUploadedFile(em, title, fileType, uploadResult, uploadedBy);
+    }
+    
+    /**
+     * Inserta el MediaFile de un blob ya subido (reemplazando el poster anterior si aplica).
+     * Si la transacción falla, elimina el blob recién subido para no dejarlo huérfano.
+     */
+    private MediaFile recordUploadedFile(EntityManager em, MediaTitle title, FileType fileType,
+                                         BlobUploadResult uploadResult, String uploadedBy) 
+            throws MultimediaException {
+        return recordUploadedFiles(em, title, Map.of(fileType, uploadResult), uploadedBy).get(0);
+    }
+    
+    /**
+     * Inserta los MediaFile de los blobs ya subidos en una sola transacción, reemplazando el poster
+     * anterior si entre ellos hay uno. Si la transacción falla, descarta todos los blobs recién subidos.
+     */
+    private List<MediaFile> recordUploadedFiles(EntityManager em, MediaTitle title,
+                                                Map<FileType, BlobUploadResult> uploads, String uploadedBy) 
+            throws MultimediaException {
+        try {
             em.getTransaction().begin();
             
-            // Subir archivo a Azure Blob Storage
-            AzureBlobStorageService.BlobUploadResult uploadResult = 
-                fileStorageService.saveFile(file, fileType, title.getTitleName());
+            // La referencia se suma antes de soltar el poster anterior: si es el mismo contenido, el blob no se encola
+            Map<FileType, BlobUploadResult> registered = new EnumMap<>(FileType.class);
+            List<String> superseded = new ArrayList<>();
+            for (Map.Entry<FileType, BlobUploadResult> upload : uploads.entrySet()) {
+                BlobUploadResult uploadResult = upload.getValue();
+                if (uploadResult.getContentHash() != null) {
+                    // Otra subida del mismo contenido ganó el registro: se usa su blob y el propio sobra
+                    BlobUploadResult stored = storedBlobRegistry.register(em, uploadResult);
+                    if (stored != uploadResult) {
+                        superseded.add(uploadResult.getBlobName());
+                        uploadResult = stored;
+                    }
+                }
+                registered.put(upload.getKey(), uploadResult);
+            }
+            blobDeletionQueue.enqueue(em, superseded);
             
-            // Crear entidad MediaFile con información de Azure
-            MediaFile mediaFile = new MediaFile();
-            mediaFile.setMediaTitle(title);
-            mediaFile.setFileType(fileType);
-            mediaFile.setLocalUrl(uploadResult.getBlobName()); // Nombre del blob para referencia interna
-            mediaFile.setBlobUrl(uploadResult.getBlobUrl()); // URL completa del blob
-            mediaFile.setEtag(uploadResult.getEtag());
-            mediaFile.setContentType(uploadResult.getContentType());
-            mediaFile.setSizeBytes(uploadResult.getSizeBytes());
-            mediaFile.setUploadedBy(uploadedBy);
+            // El blob del poster anterior se encola para eliminar
+            if (uploads.containsKey(FileType.POSTER)) {
+                blobDeletionQueue.enqueue(em, removeExistingPosters(em, title));
+            }
             
-            em.persist(mediaFile);
+            List<MediaFile> mediaFiles = new ArrayList<>();
+            for (Map.Entry<FileType, BlobUploadResult> upload : registered.entrySet()) {
+                BlobUploadResult uploadResult = upload.getValue();
+                
+                // Crear entidad MediaFile con información de Azure
+                MediaFile mediaFile = new MediaFile();
+                mediaFile.setMediaTitle(title);
+                mediaFile.setFileType(upload.getKey());
+                mediaFile.setLocalUrl(uploadResult.getBlobName()); // Nombre del blob para referencia interna
+                mediaFile.setBlobUrl(uploadResult.getBlobUrl()); // URL completa del blob
+                mediaFile.setEtag(uploadResult.getEtag());
+                mediaFile.setContentType(uploadResult.getContentType());
+                mediaFile.setSizeBytes(uploadResult.getSizeBytes());
+                mediaFile.setUploadedBy(uploadedBy);
+                
+                em.persist(mediaFile);
+                mediaFiles.add(mediaFile);
+            }
             em.getTransaction().commit();
             
-            LOGGER.info("✅ MediaFile guardado en BD con ID: " + mediaFile.getId());
-            LOGGER.info("✅ Archivo subido exitosamente a Azure Blob: " + file.getFileName() + " para título: " + title.getTitleName());
-            LOGGER.info("✅ URL del blob: " + mediaFile.getBlobUrl());
-            LOGGER.info("✅ Blob name: " + mediaFile.getLocalUrl());
-            return mediaFile;
-            
-        } catch (MultimediaException e) {
-            if (em.getTransaction().isActive()) {
-                em.getTransaction().rollback();
+            for (MediaFile mediaFile : mediaFiles) {
+                // Las miniaturas se generan en segundo plano; mientras tanto la tabla usa el original
+                if (mediaFile.getFileType() == FileType.POSTER) {
+                    thumbnailService.generateVariants(mediaFile.getId(), mediaFile.getLocalUrl());
+                }
+                
+                LOGGER.info("✅ MediaFile guardado en BD con ID: " + mediaFile.getId());
+                LOGGER.info("✅ URL del blob: " + mediaFile.getBlobUrl());
+                LOGGER.info("✅ Blob name: " + mediaFile.getLocalUrl());
             }
-            throw e;
+            return mediaFiles;
+            
         } catch (Exception e) {
             if (em.getTransaction().isActive()) {
                 em.getTransaction().rollback();
             }
-            LOGGER.log(Level.SEVERE, "Error al subir archivo: " + file.getFileName(), e);
+            // 3. El registro no se guardó: los blobs recién subidos quedarían huérfanos
+            for (BlobUploadResult uploadResult : uploads.values()) {
+                discardUploadedBlob(em, uploadResult);
+            }
+            
+            LOGGER.log(Level.SEVERE, "Error al registrar archivos subidos del título: " + title.getId(), e);
             throw new MultimediaException(
                 MultimediaException.Type.STORAGE_ERROR,
                 "Error al subir el archivo: " + e.getMessage(),
@@ -282,9 +624,10 @@ public class MultimediaService {
         }
     }
     
-    @Transactional
     public void deleteFile(Long fileId) throws MultimediaException {
         try {
+            em.getTransaction().begin();
+            
             MediaFile mediaFile = em.find(MediaFile.class, fileId);
             if (mediaFile == null) {
                 throw new MultimediaException(
@@ -293,17 +636,22 @@ public class MultimediaService {
                 );
             }
             
-            // Eliminar archivo de Azure Blob Storage usando el nombre del blob
-            fileStorageService.deleteFile(mediaFile.getLocalUrl());
-            
-            // Eliminar registro de la base de datos
+            // El blob se elimina en segundo plano (si nadie más lo usa); aquí solo se encola junto con el borrado del registro
+            blobDeletionQueue.enqueue(em, storedBlobRegistry.release(em, List.of(mediaFile)));
             em.remove(mediaFile);
+            em.getTransaction().commit();
             
-            LOGGER.info("Archivo eliminado de Azure Blob: " + mediaFile.getLocalUrl());
+            LOGGER.info("Archivo eliminado, blob encolado para eliminar: " + mediaFile.getLocalUrl());
             
         } catch (MultimediaException e) {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
             throw e;
         } catch (Exception e) {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
             LOGGER.log(Level.SEVERE, "Error al eliminar archivo con ID: " + fileId, e);
             throw new MultimediaException(
                 MultimediaException.Type.STORAGE_ERROR,
@@ -367,62 +715,76 @@ public class MultimediaService {
     
     private boolean genreExistsByName(String genreName, Long excludeId) {
         try {
-            TypedQuery<Long> query;
-            if (excludeId != null) {
-                query = em.createQuery(
-                    "SELECT COUNT(mg) FROM MovieGenre mg WHERE LOWER(mg.genreName) = LOWER(:name) AND mg.id != :id", 
-                    Long.class
-                );
-                query.setParameter("id", excludeId);
-            } else {
-                query = em.createQuery(
-                    "SELECT COUNT(mg) FROM MovieGenre mg WHERE LOWER(mg.genreName) = LOWER(:name)", 
-                    Long.class
-                );
-            }
-            query.setParameter("name", genreName);
-            return query.getSingleResult() > 0;
+            return genreNameIndex.isNameTaken(genreName, excludeId);
         } catch (Exception e) {
             LOGGER.log(Level.WARNING, "Error al verificar existencia de género: " + genreName, e);
             return false;
         }
     }
     
-    private void removeExistingPosterBeforeUpload(MediaTitle title) {
+    // Limpia la entidad y la lista ordenada de géneros de la caché de segundo nivel
+    private void evictGenreCaches() {
+        try {
+            em.getEntityManagerFactory().getCache().evict(MovieGenre.class);
+            em.getEntityManagerFactory().unwrap(SessionFactory.class).getCache()
+                .evictQueryRegion(GENRE_LIST_CACHE_REGION);
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Error al limpiar la caché de géneros", e);
+        }
+    }
+    
+    /**
+     * Elimina de la BD los posters actuales del título dentro de la transacción en curso
+     * y devuelve los nombres de sus blobs para encolarlos
+     */
+    private List<String> removeExistingPosters(EntityManager em, MediaTitle title) {
+        TypedQuery<MediaFile> query = em.createQuery(
+            "SELECT mf FROM MediaFile mf WHERE mf.mediaTitle = :title AND mf.fileType = :fileType", 
+            MediaFile.class
+        );
+        query.setParameter("title", title);
+        query.setParameter("fileType", FileType.POSTER);
+        
+        List<MediaFile> existingPosters = query.getResultList();
+        LOGGER.info("🗑️ Encontrados " + existingPosters.size() + " posters anteriores para eliminar");
+        
+        List<String> blobNames = storedBlobRegistry.release(em, existingPosters);
+        for (MediaFile poster : existingPosters) {
+            em.remove(poster);
+            LOGGER.info("🗑️ Eliminado de BD: ID " + poster.getId());
+        }
+        return blobNames;
+    }
+    
+    /**
+     * Limpia el blob de un registro fallido. Un contenido reutilizado no se toca; uno direccionado
+     * por contenido se encola, porque otra subida del mismo archivo pudo registrarlo mientras tanto
+     */
+    private void discardUploadedBlob(EntityManager em, BlobUploadResult uploadResult) {
+        if (uploadResult.isDeduplicated()) {
+            return;
+        }
+        if (uploadResult.getContentHash() == null) {
+            deleteBlobQuietly(uploadResult.getBlobName());
+            return;
+        }
         try {
             em.getTransaction().begin();
-            
-            TypedQuery<MediaFile> query = em.createQuery(
-                "SELECT mf FROM MediaFile mf WHERE mf.mediaTitle = :title AND mf.fileType = :fileType", 
-                MediaFile.class
-            );
-            query.setParameter("title", title);
-            query.setParameter("fileType", FileType.POSTER);
-            
-            List<MediaFile> existingPosters = query.getResultList();
-            LOGGER.info("🗑️ Encontrados " + existingPosters.size() + " posters anteriores para eliminar");
-            
-            for (MediaFile poster : existingPosters) {
-                try {
-                    // Eliminar de Azure primero
-                    fileStorageService.deleteFile(poster.getLocalUrl());
-                    LOGGER.info("🗑️ Eliminado de Azure: " + poster.getLocalUrl());
-                } catch (MultimediaException e) {
-                    LOGGER.warning("No se pudo eliminar poster de Azure: " + poster.getLocalUrl());
-                }
-                // Eliminar de BD
-                em.remove(poster);
-                LOGGER.info("🗑️ Eliminado de BD: ID " + poster.getId());
-            }
-            
+            blobDeletionQueue.enqueue(em, List.of(uploadResult.getBlobName()));
             em.getTransaction().commit();
-            LOGGER.info("✅ Posters anteriores eliminados correctamente");
-            
         } catch (Exception e) {
             if (em.getTransaction().isActive()) {
                 em.getTransaction().rollback();
             }
-            LOGGER.log(Level.WARNING, "Error al eliminar posters anteriores", e);
+            LOGGER.log(Level.WARNING, "No se pudo encolar el blob huérfano: " + uploadResult.getBlobName(), e);
+        }
+    }
+    
+    private void deleteBlobQuietly(String blobName) {
+        try {
+            fileStorageService.deleteFile(blobName);
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "No se pudo eliminar blob de Azure: " + blobName, e);
         }
     }
     
@@ -446,6 +808,23 @@ public class MultimediaService {
         }
     }
     
+    /**
+     * Miniaturas de un archivo ordenadas por ancho ascendente
+     */
+    public List<MediaFileVariant> getVariantsForFile(Long mediaFileId) {
+        try {
+            TypedQuery<MediaFileVariant> query = em.createQuery(
+                "SELECT v FROM MediaFileVariant v WHERE v.mediaFile.id = :fileId ORDER BY v.width", 
+                MediaFileVariant.class
+            );
+            query.setParameter("fileId", mediaFileId);
+            return query.getResultList();
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Error al obtener miniaturas del archivo: " + mediaFileId, e);
+            return Collections.emptyList();
+        }
+    }
+    
     public List<MediaFile> getTechnicalSheetsForTitle(Long titleId) {
         TypedQuery<MediaFile> query = em.createQuery(
             "SELECT mf FROM MediaFile mf WHERE mf.mediaTitle.id = :titleId AND mf.fileType = :fileType ORDER BY mf.uploadedAt DESC", 
@@ -455,4 +834,101 @@ public class MultimediaService {
         query.setParameter("fileType", FileType.TECHNICAL_SHEET);
         return query.getResultList();
     }
-}
\ No newline at end of file
+    
+    /**
+     * Carga en una sola consulta los archivos de varios títulos y los agrupa por tipo.
+     * Pensado para la página visible de la tabla, evitando una consulta por fila.
+     */
+    public TitleFilesIndex getFilesForTitles(Collection<Long> titleIds) {
+        TitleFilesIndex index = new TitleFilesIndex(titleIds);
+        if (titleIds == null || titleIds.isEmpty()) {
+            return index;
+        }
+        
+        try {
+            TypedQuery<MediaFile> query = em.createQuery(
+                "SELECT mf FROM MediaFile mf WHERE mf.mediaTitle.id IN :titleIds ORDER BY mf.uploadedAt DESC", 
+                MediaFile.class
+            );
+            query.setParameter("titleIds", titleIds);
+            
+            for (MediaFile file : query.getResultList()) {
+                index.add(file);
+            }
+            
+            // Miniaturas de los posters de la página, en una segunda consulta
+            if (!index.getPosters().isEmpty()) {
+                List<Long> posterIds = new ArrayList<>();
+                for (MediaFile poster : index.getPosters().values()) {
+                    posterIds.add(poster.getId());
+                }
+                TypedQuery<MediaFileVariant> variantQuery = em.createQuery(
+                    "SELECT v FROM MediaFileVariant v WHERE v.mediaFile.id IN :fileIds ORDER BY v.width", 
+                    MediaFileVariant.class
+                );
+                variantQuery.setParameter("fileIds", posterIds);
+                for (MediaFileVariant variant : variantQuery.getResultList()) {
+                    index.addVariant(variant);
+                }
+            }
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Error al obtener archivos para títulos: " + titleIds, e);
+        }
+        return index;
+    }
+    
+    /**
+     * Índice de archivos por título: poster más reciente y lista de fichas técnicas
+     */
+    public static class TitleFilesIndex {
+        private final Set<Long> titleIds;
+        private final Map<Long, MediaFile> posters = new HashMap<>();
+        private final Map<Long, List<MediaFile>> technicalSheets = new HashMap<>();
+        // Miniaturas por ID del archivo, de menor a mayor ancho
+        private final Map<Long, List<MediaFileVariant>> variants = new HashMap<>();
+        
+        public TitleFilesIndex(Collection<Long> titleIds) {
+            this.titleIds = titleIds != null ? new HashSet<>(titleIds) : new HashSet<>();
+        }
+        
+        // Los archivos deben llegar ordenados por uploadedAt DESC
+        void add(MediaFile file) {
+            Long titleId = file.getMediaTitle().getId();
+            if (file.getFileType() == FileType.POSTER) {
+                posters.putIfAbsent(titleId, file);
+            } else if (file.getFileType() == FileType.TECHNICAL_SHEET) {
+                technicalSheets.computeIfAbsent(titleId, k -> new ArrayList<>()).add(file);
+            }
+        }
+        
+        // Las miniaturas deben llegar ordenadas por ancho ascendente
+        void addVariant(MediaFileVariant variant) {
+            variants.computeIfAbsent(variant.getMediaFile().getId(), k -> new ArrayList<>()).add(variant);
+        }
+        
+        public boolean covers(Long titleId) {
+            return titleIds.contains(titleId);
+        }
+        
+        public MediaFile getPoster(Long titleId) {
+            return posters.get(titleId);
+        }
+        
+        public List<MediaFileVariant> getPosterVariants(Long titleId) {
+            MediaFile poster = posters.get(titleId);
+            return poster != null ? variants.getOrDefault(poster.getId(), Collections.emptyList()) : Collections.emptyList();
+        }
+        
+        public List<MediaFile> getTechnicalSheets(Long titleId) {
+            return technicalSheets.getOrDefault(titleId, Collections.emptyList());
+        }
+        
+        public Map<Long, MediaFile> getPosters() {
+            return Collections.unmodifiableMap(posters);
+        }
+        
+        public Map<Long, List<MediaFile>> getTechnicalSheetsByTitle() {
+            return Collections.unmodifiableMap(technicalSheets);
+        }
+    }
+}
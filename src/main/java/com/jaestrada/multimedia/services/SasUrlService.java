@@ -0,0 +1,117 @@
+package com.jaestrada.multimedia.services;
+
+import com.jaestrada.multimedia.exceptions.MultimediaException;
+import com.jaestrada.multimedia.models.MediaFile;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * URLs SAS de descarga firmadas localmente y reutilizadas por blob hasta poco antes de vencer.
+ * Una página de archivos se firma sin ninguna llamada de red.
+ */
+@ApplicationScoped
+public class SasUrlService {
+    
+    private static final Logger LOGGER = Logger.getLogger(SasUrlService.class.getName());
+    
+    private static final long DEFAULT_VALIDITY_MINUTES = 60;
+    // Una URL se deja de entregar cuando le queda menos que esto, para que el cliente alcance a usarla
+    private static final Duration REFRESH_MARGIN = Duration.ofMinutes(5);
+    // Al superar este tamaño se purgan las entradas vencidas
+    private static final int MAX_CACHED_URLS = 10_000;
+    
+    @Inject
+    private BlobStore blobStore;
+    
+    private final Map<String, SignedUrl> cache = new ConcurrentHashMap<>();
+    private Duration validity;
+    
+    @PostConstruct
+    public void init() {
+        long minutes = DEFAULT_VALIDITY_MINUTES;
+        String configured = System.getProperty("SAS_URL_VALIDITY_MINUTES");
+        if (configured != null && !configured.isEmpty()) {
+            try {
+                minutes = Long.parseLong(configured.trim());
+            } catch (NumberFormatException e) {
+                LOGGER.warning("SAS_URL_VALIDITY_MINUTES inválido, se usa " + DEFAULT_VALIDITY_MINUTES + ": " + configured);
+            }
+        }
+        // La vigencia debe superar el margen de renovación para que el caché sirva de algo
+        this.validity = Duration.ofMinutes(Math.max(minutes, REFRESH_MARGIN.toMinutes() * 2));
+    }
+    
+    /**
+     * URL SAS de lectura para el blob, reutilizada mientras le quede vigencia suficiente
+     */
+    public String getDownloadUrl(String blobName) throws MultimediaException {
+        Instant now = Instant.now();
+        SignedUrl cached = cache.get(blobName);
+        if (cached != null && cached.isUsableAt(now)) {
+            return cached.url;
+        }
+        
+        Instant expiresAt = now.plus(validity);
+        String url = blobStore.sign(blobName, OffsetDateTime.ofInstant(expiresAt, ZoneOffset.UTC));
+        
+        if (cache.size() >= MAX_CACHED_URLS) {
+            cache.values().removeIf(entry -> !entry.isUsableAt(now));
+        }
+        cache.put(blobName, new SignedUrl(url, expiresAt));
+        return url;
+    }
+    
+    /**
+     * Firma las URLs de una página de archivos; devuelve un mapa por ID de MediaFile.
+     * Los archivos que no se pudieron firmar se omiten del resultado.
+     */
+    public Map<Long, String> getDownloadUrls(Collection<MediaFile> files) {
+        Map<Long, String> urls = new HashMap<>();
+        for (MediaFile file : files) {
+            if (file == null || file.getLocalUrl() == null || file.getLocalUrl().isEmpty()) {
+                continue;
+            }
+            try {
+                urls.put(file.getId(), getDownloadUrl(file.getLocalUrl()));
+            } catch (MultimediaException e) {
+                LOGGER.log(Level.WARNING, "No se pudo firmar la URL de: " + file.getLocalUrl(), e);
+            }
+        }
+        return urls;
+    }
+    
+    /**
+     * Descarta la URL cacheada de un blob (p. ej. al eliminarlo)
+     */
+    public void evict(String blobName) {
+        if (blobName != null) {
+            cache.remove(blobName);
+        }
+    }
+    
+    private static final class SignedUrl {
+        private final String url;
+        private final Instant expiresAt;
+        
+        SignedUrl(String url, Instant expiresAt) {
+            this.url = url;
+            this.expiresAt = expiresAt;
+        }
+        
+        boolean isUsableAt(Instant now) {
+            return now.plus(REFRESH_MARGIN).isBefore(expiresAt);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,195 @@
+package com.jaestrada.multimedia.services;
+
+import com.jaestrada.multimedia.exceptions.MultimediaException;
+import com.jaestrada.multimedia.models.MediaFile;
+import com.jaestrada.multimedia.models.MediaFileVariant;
+import com.jaestrada.multimedia.models.StoredBlob;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.LockModeType;
+import org.hibernate.query.NativeQuery;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+
+/**
+ * Conteo de referencias de los blobs direccionados por contenido (CONTENT_ADDRESSED_STORAGE).
+ * Subir un contenido ya almacenado solo suma una referencia; eliminar un MediaFile la resta
+ * y el blob se encola para eliminar cuando no queda ninguna. Los blobs anteriores a este modo
+ * no tienen fila y se eliminan directamente, como antes.
+ */
+@ApplicationScoped
+public class StoredBlobRegistry {
+    
+    private static final Logger LOGGER = Logger.getLogger(StoredBlobRegistry.class.getName());
+    
+    // Inserta con una referencia o suma una si otro upload ya registró el mismo contenido;
+    // devuelve el blob de la fila, que en el segundo caso es el del primero en registrarse
+    private static final String REGISTER_SQL =
+        "INSERT INTO stored_blobs (content_hash, blob_name, blob_url, etag, content_type, size_bytes, ref_count, created_at) " +
+        "VALUES (:hash, :blobName, :blobUrl, :etag, :contentType, :sizeBytes, 1, now()) " +
+        "ON CONFLICT (content_hash) DO UPDATE SET ref_count = stored_blobs.ref_count + 1 " +
+        "RETURNING blob_name, blob_url, etag";
+    
+    @Inject
+    private EntityManagerFactory emf;
+    
+    @Inject
+    private BlobStore blobStore;
+    
+    @Inject
+    private BlobDeletionQueue blobDeletionQueue;
+    
+    private boolean enabled;
+    
+    @PostConstruct
+    public void init() {
+        enabled = !"false".equalsIgnoreCase(System.getProperty("CONTENT_ADDRESSED_STORAGE"));
+        LOGGER.info("Almacenamiento direccionado por contenido: " + (enabled ? "activo" : "inactivo"));
+    }
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    /**
+     * Blob ya almacenado con ese hash, listo para reutilizar; null si no existe
+     */
+    public BlobUploadResult findByHash(String contentHash) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            List<StoredBlob> found = em.createQuery(
+                "SELECT sb FROM StoredBlob sb WHERE sb.contentHash = :hash", StoredBlob.class
+            ).setParameter("hash", contentHash).getResultList();
+            if (found.isEmpty()) {
+                return null;
+            }
+            
+            StoredBlob stored = found.get(0);
+            BlobUploadResult result = new BlobUploadResult();
+            result.setBlobName(stored.getBlobName());
+            result.setBlobUrl(stored.getBlobUrl());
+            result.setEtag(stored.getEtag());
+            result.setContentType(stored.getContentType());
+            result.setSizeBytes(stored.getSizeBytes());
+            result.setContentHash(contentHash);
+            result.setDeduplicated(true);
+            return result;
+        } finally {
+            em.close();
+        }
+    }
+    
+    /**
+     * Suma una referencia al blob subido (o lo registra); requiere una transacción activa.
+     * Devuelve el blob al que debe apuntar el MediaFile: el mismo resultado o, si otra subida
+     * concurrente del mismo contenido se registró antes con otro nombre, el de esa subida
+     * (el blob recién subido queda sin uso y lo tiene que encolar el llamador).
+     * El nombre es el mismo para el mismo contenido, así que pudo quedar en la cola de eliminación
+     * al soltarse su última referencia: se cancela y, si la cola alcanzó a borrarlo, se rechaza.
+     */
+    public BlobUploadResult register(EntityManager em, BlobUploadResult result) throws MultimediaException {
+        blobDeletionQueue.cancel(em, result.getBlobName());
+        Object[] row = (Object[]) em.createNativeQuery(REGISTER_SQL)
+            .unwrap(NativeQuery.class)
+            .addSynchronizedEntityClass(StoredBlob.class)
+            .setParameter("hash", result.getContentHash())
+            .setParameter("blobName", result.getBlobName())
+            .setParameter("blobUrl", result.getBlobUrl())
+            .setParameter("etag", result.getEtag())
+            .setParameter("contentType", result.getContentType())
+            .setParameter("sizeBytes", result.getSizeBytes())
+            .getSingleResult();
+        
+        String blobName = (String) row[0];
+        if (blobName.equals(result.getBlobName())) {
+            // Con el candado de cancel tomado, la cola ya no puede borrarlo antes del commit
+            if (!blobStore.exists(blobName)) {
+                throw new MultimediaException(
+                    MultimediaException.Type.STORAGE_ERROR,
+                    "El blob se eliminó mientras se registraba, vuelva a subir el archivo: " + blobName
+                );
+            }
+            return result;
+        }
+        BlobUploadResult registered = new BlobUploadResult();
+        registered.setBlobName(blobName);
+        registered.setBlobUrl((String) row[1]);
+        registered.setEtag((String) row[2]);
+        registered.setContentType(result.getContentType());
+        registered.setSizeBytes(result.getSizeBytes());
+        registered.setContentHash(result.getContentHash());
+        registered.setDeduplicated(true);
+        return registered;
+    }
+    
+    /**
+     * Resta las referencias de los archivos que se van a eliminar (dentro de la transacción del llamador)
+     * y devuelve los blobs que quedaron sin uso, junto con sus miniaturas, para encolarlos
+     */
+    public List<String> release(EntityManager em, Collection<MediaFile> files) {
+        List<String> unused = new ArrayList<>();
+        if (files.isEmpty()) {
+            return unused;
+        }
+        
+        Set<String> blobNames = new HashSet<>();
+        for (MediaFile file : files) {
+            blobNames.add(file.getLocalUrl());
+        }
+        // Bloqueo de las filas para que una subida concurrente no sume sobre un conteo que está por llegar a cero
+        Map<String, StoredBlob> stored = new HashMap<>();
+        for (StoredBlob blob : em.createQuery(
+                "SELECT sb FROM StoredBlob sb WHERE sb.blobName IN :names", StoredBlob.class)
+                .setParameter("names", blobNames)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .getResultList()) {
+            stored.put(blob.getBlobName(), blob);
+        }
+        
+        for (MediaFile file : files) {
+            StoredBlob blob = stored.get(file.getLocalUrl());
+            if (blob != null) {
+                blob.setRefCount(blob.getRefCount() - 1);
+                if (blob.getRefCount() > 0) {
+                    continue;
+                }
+                em.remove(blob);
+                stored.remove(file.getLocalUrl());
+            }
+            unused.add(file.getLocalUrl());
+            // Las miniaturas comparten el destino del blob original
+            for (MediaFileVariant variant : file.getVariants()) {
+                unused.add(variant.getBlobName());
+            }
+        }
+        return unused;
+    }
+    
+    /**
+     * De los nombres dados, los que todavía usa algún archivo o miniatura; la cola de eliminación
+     * los descarta (p. ej. un contenido que se volvió a subir antes de que se borrara su blob)
+     */
+    public Set<String> findReferenced(EntityManager em, Collection<String> blobNames) {
+        Set<String> referenced = new HashSet<>();
+        if (blobNames.isEmpty()) {
+            return referenced;
+        }
+        referenced.addAll(em.createQuery(
+            "SELECT mf.localUrl FROM MediaFile mf WHERE mf.localUrl IN :names", String.class
+        ).setParameter("names", blobNames).getResultList());
+        referenced.addAll(em.createQuery(
+            "SELECT v.blobName FROM MediaFileVariant v WHERE v.blobName IN :names", String.class
+        ).setParameter("names", blobNames).getResultList());
+        return referenced;
+    }
+}
\ No newline at end of file
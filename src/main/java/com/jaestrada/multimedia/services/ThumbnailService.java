@@ -0,0 +1,370 @@
+package com.jaestrada.multimedia.services;
+
+import com.jaestrada.multimedia.exceptions.MultimediaException;
+import com.jaestrada.multimedia.models.MediaFile;
+import com.jaestrada.multimedia.models.MediaFileVariant;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import jakarta.enterprise.concurrent.ManagedThreadFactory;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Genera miniaturas de los posters (64, 200 y 600 px de ancho) después de subirlos.
+ * El trabajo corre en un pool acotado propio, así decodificar imágenes no retrasa la subida;
+ * si la cola está llena la miniatura se omite y la tabla sigue usando el original.
+ */
+@ApplicationScoped
+public class ThumbnailService {
+    
+    private static final Logger LOGGER = Logger.getLogger(ThumbnailService.class.getName());
+    
+    // Anchos generados, de mayor a menor: cada uno se reduce a partir del anterior
+    public static final int[] VARIANT_WIDTHS = {600, 200, 64};
+    
+    private static final int DEFAULT_WORKERS = 2;
+    private static final int DEFAULT_QUEUE_SIZE = 100;
+    // Imágenes más grandes que esto no se decodifican (un poster de 2 MB no debería acercarse)
+    private static final long MAX_SOURCE_PIXELS = 40_000_000L;
+    private static final float JPEG_QUALITY = 0.85f;
+    
+    @Inject
+    private BlobStore blobStore;
+    
+    @Inject
+    private EntityManagerFactory emf;
+    
+    @Inject
+    private BlobDeletionQueue blobDeletionQueue;
+    
+    @Resource
+    private ManagedThreadFactory threadFactory;
+    
+    private ThreadPoolExecutor workers;
+    
+    @PostConstruct
+    public void init() {
+        int threads = (int) Math.max(1, readLong("THUMBNAIL_WORKERS", DEFAULT_WORKERS));
+        int queueSize = (int) Math.max(1, readLong("THUMBNAIL_QUEUE_SIZE", DEFAULT_QUEUE_SIZE));
+        
+        workers = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueSize), threadFactory);
+        workers.allowCoreThreadTimeOut(true);
+        
+        // Sin caché en disco para los streams de ImageIO: los posters son pequeños
+        ImageIO.setUseCache(false);
+        LOGGER.info("Miniaturas de posters: " + threads + " hilos, cola de " + queueSize);
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        if (workers != null) {
+            workers.shutdownNow();
+        }
+    }
+    
+    /**
+     * Encola la generación de miniaturas de un poster recién registrado; no bloquea
+     */
+    public void generateVariants(Long mediaFileId, String blobName) {
+        try {
+            workers.execute(() -> process(mediaFileId, blobName));
+        } catch (RejectedExecutionException e) {
+            LOGGER.warning("Cola de miniaturas llena, se omite el poster: " + blobName);
+        }
+    }
+    
+    /**
+     * Genera las miniaturas en el hilo que llama; para procesos que ya acotan su propia concurrencia
+     * (la carga masiva) y no deben perder miniaturas cuando la cola está llena
+     */
+    public void generateVariantsNow(Long mediaFileId, String blobName) {
+        process(mediaFileId, blobName);
+    }
+    
+    private void process(Long mediaFileId, String blobName) {
+        long start = System.nanoTime();
+        List<MediaFileVariant> variants = new ArrayList<>();
+        try {
+            // Con contenido deduplicado otro poster puede tener ya las miniaturas de este blob
+            if (copyExistingVariants(mediaFileId, blobName)) {
+                return;
+            }
+            
+            BufferedImage source = read(blobName);
+            if (source == null) {
+                return;
+            }
+            
+            boolean alpha = source.getColorModel().hasAlpha();
+            String extension = alpha ? ".png" : ".jpg";
+            String contentType = alpha ? "image/png" : "image/jpeg";
+            String baseName = stripExtension(blobName);
+            
+            BufferedImage current = source;
+            for (int width : VARIANT_WIDTHS) {
+                // No se amplían imágenes más pequeñas que la miniatura
+                if (width >= current.getWidth()) {
+                    continue;
+                }
+                current = scale(current, width, alpha);
+                byte[] content = encode(current, alpha);
+                
+                BlobUploadResult result = blobStore.put(baseName + "_w" + width + extension,
+                        new ByteArrayInputStream(content), content.length, contentType, Map.of());
+                
+                MediaFileVariant variant = new MediaFileVariant();
+                variant.setWidth(current.getWidth());
+                variant.setHeight(current.getHeight());
+                variant.setBlobName(result.getBlobName());
+                variant.setEtag(result.getEtag());
+                variant.setContentType(contentType);
+                variant.setSizeBytes(result.getSizeBytes());
+                variants.add(variant);
+            }
+            
+            if (!variants.isEmpty()) {
+                save(mediaFileId, variants);
+            }
+            LOGGER.info(String.format("Miniaturas generadas para %s: %d en %d ms",
+                    blobName, variants.size(), (System.nanoTime() - start) / 1_000_000));
+            
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "No se pudieron generar las miniaturas de: " + blobName, e);
+            discard(variants);
+        }
+    }
+    
+    /**
+     * Registra las miniaturas; si el poster se eliminó mientras tanto, se descartan sus blobs.
+     * Sus nombres salen del hash del original, así que pudieron quedar encolados al eliminarse
+     * otro poster con el mismo contenido: se cancelan y se rechaza si la cola alcanzó a borrarlos.
+     */
+    private void save(Long mediaFileId, List<MediaFileVariant> variants) throws MultimediaException {
+        EntityManager em = emf.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            MediaFile mediaFile = em.find(MediaFile.class, mediaFileId);
+            if (mediaFile == null) {
+                em.getTransaction().rollback();
+                LOGGER.info("El poster " + mediaFileId + " ya no existe, se descartan sus miniaturas");
+                discard(variants);
+                return;
+            }
+            for (MediaFileVariant variant : variants) {
+                blobDeletionQueue.cancel(em, variant.getBlobName());
+                if (!blobStore.exists(variant.getBlobName())) {
+                    throw new MultimediaException(
+                        MultimediaException.Type.STORAGE_ERROR,
+                        "La miniatura se eliminó mientras se registraba: " + variant.getBlobName()
+                    );
+                }
+                variant.setMediaFile(mediaFile);
+                em.persist(variant);
+            }
+            em.getTransaction().commit();
+        } catch (MultimediaException | RuntimeException e) {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            throw e;
+        } finally {
+            em.close();
+        }
+    }
+    
+    /**
+     * Copia las filas de miniaturas de otro archivo con el mismo blob; los blobs se comparten
+     */
+    private boolean copyExistingVariants(Long mediaFileId, String blobName) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            List<MediaFileVariant> existing = em.createQuery(
+                "SELECT v FROM MediaFileVariant v WHERE v.mediaFile.localUrl = :blobName AND v.mediaFile.id <> :fileId " +
+                "ORDER BY v.mediaFile.id, v.width", MediaFileVariant.class)
+                .setParameter("blobName", blobName)
+                .setParameter("fileId", mediaFileId)
+                .getResultList();
+            if (existing.isEmpty()) {
+                return false;
+            }
+            
+            em.getTransaction().begin();
+            MediaFile mediaFile = em.find(MediaFile.class, mediaFileId);
+            if (mediaFile == null) {
+                em.getTransaction().rollback();
+                return true;
+            }
+            Long sourceFileId = existing.get(0).getMediaFile().getId();
+            for (MediaFileVariant source : existing) {
+                if (!source.getMediaFile().getId().equals(sourceFileId)) {
+                    break;
+                }
+                MediaFileVariant copy = new MediaFileVariant();
+                copy.setMediaFile(mediaFile);
+                copy.setWidth(source.getWidth());
+                copy.setHeight(source.getHeight());
+                copy.setBlobName(source.getBlobName());
+                copy.setEtag(source.getEtag());
+                copy.setContentType(source.getContentType());
+                copy.setSizeBytes(source.getSizeBytes());
+                em.persist(copy);
+            }
+            em.getTransaction().commit();
+            LOGGER.info("Miniaturas reutilizadas para " + blobName + " desde el archivo " + sourceFileId);
+            return true;
+        } catch (RuntimeException e) {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            throw e;
+        } finally {
+            em.close();
+        }
+    }
+    
+    private BufferedImage read(String blobName) throws MultimediaException, IOException {
+        try (InputStream in = blobStore.get(blobName);
+             ImageInputStream imageInput = ImageIO.createImageInputStream(in)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(imageInput);
+            if (!readers.hasNext()) {
+                LOGGER.warning("Formato de imagen no soportado para miniaturas: " + blobName);
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(imageInput, true, true);
+                // Se revisan las dimensiones antes de reservar memoria para los píxeles
+                long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+                if (pixels > MAX_SOURCE_PIXELS) {
+                    LOGGER.warning("Imagen demasiado grande para miniaturas (" + pixels + " píxeles): " + blobName);
+                    return null;
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+    
+    /**
+     * Reduce a la mitad en pasos bilineales hasta llegar al ancho pedido; conserva la proporción
+     */
+    private static BufferedImage scale(BufferedImage source, int targetWidth, boolean alpha) {
+        int targetHeight = Math.max(1, Math.round(source.getHeight() * (float) targetWidth / source.getWidth()));
+        int type = alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        
+        BufferedImage current = source;
+        int width = source.getWidth();
+        int height = source.getHeight();
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            
+            BufferedImage next = new BufferedImage(width, height, type);
+            Graphics2D g = next.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                g.drawImage(current, 0, 0, width, height, null);
+            } finally {
+                g.dispose();
+            }
+            current = next;
+        } while (width != targetWidth || height != targetHeight);
+        return current;
+    }
+    
+    private static byte[] encode(BufferedImage image, boolean alpha) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        if (alpha) {
+            ImageIO.write(image, "png", out);
+            return out.toByteArray();
+        }
+        
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream imageOutput = ImageIO.createImageOutputStream(out)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(JPEG_QUALITY);
+            writer.setOutput(imageOutput);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+    
+    private static String stripExtension(String blobName) {
+        int slash = blobName.lastIndexOf('/');
+        int dot = blobName.lastIndexOf('.');
+        return dot > slash ? blobName.substring(0, dot) : blobName;
+    }
+    
+    /**
+     * Encola las miniaturas que no se registraron. Sus nombres salen del blob original, así que con
+     * posters deduplicados pueden ser las de otro archivo: la cola no borra las que siguen en uso.
+     */
+    private void discard(List<MediaFileVariant> variants) {
+        if (variants.isEmpty()) {
+            return;
+        }
+        List<String> blobNames = new ArrayList<>();
+        for (MediaFileVariant variant : variants) {
+            blobNames.add(variant.getBlobName());
+        }
+        EntityManager em = emf.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            blobDeletionQueue.enqueue(em, blobNames);
+            em.getTransaction().commit();
+        } catch (Exception e) {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            LOGGER.log(Level.WARNING, "No se pudieron encolar las miniaturas descartadas: " + blobNames, e);
+        } finally {
+            em.close();
+        }
+    }
+    
+    private static long readLong(String key, long defaultValue) {
+        String configured = System.getProperty(key);
+        if (configured != null && !configured.isEmpty()) {
+            try {
+                return Long.parseLong(configured.trim());
+            } catch (NumberFormatException e) {
+                LOGGER.warning(key + " inválido, se usa " + defaultValue + ": " + configured);
+            }
+        }
+        return defaultValue;
+    }
+}
\ No newline at end of file
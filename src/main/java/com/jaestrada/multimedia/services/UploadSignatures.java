@@ -0,0 +1,92 @@
+package com.jaestrada.multimedia.services;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.OffsetDateTime;
+import java.util.Base64;
+import java.util.logging.Logger;
+
+/**
+ * Firmas HMAC-SHA256 de las subidas directas: el token que devuelve DirectUploadService para
+ * confirmar la subida y, con almacenamiento local o en memoria, la URL de escritura que valida
+ * LocalBlobUploadServlet (el equivalente a un SAS de Azure). La clave es UPLOAD_SIGNING_KEY;
+ * sin ella se genera una al arrancar, válida solo para ese servidor y hasta que se reinicie.
+ */
+public final class UploadSignatures {
+    
+    private static final Logger LOGGER = Logger.getLogger(UploadSignatures.class.getName());
+    
+    private static final String ALGORITHM = "HmacSHA256";
+    // Ruta de LocalBlobUploadServlet, relativa a la página igual que las URLs de LocalDiskBlobStore
+    private static final String LOCAL_UPLOAD_PATH = "blob-uploads/";
+    
+    private UploadSignatures() {
+    }
+    
+    /**
+     * URL de escritura para el servlet local: solo admite ese blob, con ese tamaño y tipo, hasta expiresAt
+     */
+    public static String localUploadUrl(String blobName, long size, String contentType, OffsetDateTime expiresAt) {
+        long expires = expiresAt.toEpochSecond();
+        return LOCAL_UPLOAD_PATH + blobName
+            + "?size=" + size
+            + "&type=" + URLEncoder.encode(contentType, StandardCharsets.UTF_8)
+            + "&expires=" + expires
+            + "&sig=" + sign(uploadPayload(blobName, size, contentType, expires));
+    }
+    
+    public static boolean verifyLocalUpload(String blobName, long size, String contentType, long expires, String signature) {
+        return verify(uploadPayload(blobName, size, contentType, expires), signature);
+    }
+    
+    private static String uploadPayload(String blobName, long size, String contentType, long expires) {
+        return "PUT\n" + blobName + "\n" + size + "\n" + contentType + "\n" + expires;
+    }
+    
+    /**
+     * Firma en Base64 URL (sin relleno) del texto recibido
+     */
+    public static String sign(String payload) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(KeyHolder.KEY);
+            byte[] signature = mac.doFinal(payload.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(signature);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 no disponible", e);
+        }
+    }
+    
+    /**
+     * Compara en tiempo constante para no filtrar cuántos caracteres coinciden
+     */
+    public static boolean verify(String payload, String signature) {
+        if (signature == null) {
+            return false;
+        }
+        return MessageDigest.isEqual(
+            sign(payload).getBytes(StandardCharsets.US_ASCII),
+            signature.getBytes(StandardCharsets.US_ASCII));
+    }
+    
+    // Se crea en el primer uso, cuando EnvListener ya cargó la configuración
+    private static final class KeyHolder {
+        private static final SecretKeySpec KEY = loadKey();
+        
+        private static SecretKeySpec loadKey() {
+            String configured = System.getProperty("UPLOAD_SIGNING_KEY");
+            if (configured != null && !configured.isEmpty()) {
+                return new SecretKeySpec(configured.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+            }
+            LOGGER.warning("UPLOAD_SIGNING_KEY no configurada: se usa una clave aleatoria válida hasta reiniciar");
+            byte[] random = new byte[32];
+            new SecureRandom().nextBytes(random);
+            return new SecretKeySpec(random, ALGORITHM);
+        }
+    }
+}
\ No newline at end of file
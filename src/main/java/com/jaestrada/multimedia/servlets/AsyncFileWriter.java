@@ -0,0 +1,152 @@
+package com.jaestrada.multimedia.servlets;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Escribe el cuerpo de una descarga sin bloquear: solo lee el siguiente tramo del archivo cuando
+ * el socket acepta más datos, así un cliente lento no retiene un hilo del contenedor.
+ * Al terminar (bien, con error o por timeout) cierra el archivo y libera el cupo.
+ */
+class AsyncFileWriter implements WriteListener, AsyncListener {
+    
+    private static final Logger LOGGER = Logger.getLogger(AsyncFileWriter.class.getName());
+    
+    private final AsyncContext asyncContext;
+    private final ServletOutputStream out;
+    private final Closeable resource;
+    private final FileChannel channel;
+    private final List<MultimediaFileServlet.BodySegment> body;
+    private final byte[] buffer;
+    private final Semaphore permits;
+    private final AtomicBoolean released = new AtomicBoolean();
+    
+    private int segmentIndex;
+    private long segmentOffset;
+    
+    AsyncFileWriter(AsyncContext asyncContext, ServletOutputStream out, Closeable resource, FileChannel channel,
+                    List<MultimediaFileServlet.BodySegment> body, int bufferSize, Semaphore permits) {
+        this.asyncContext = asyncContext;
+        this.out = out;
+        this.resource = resource;
+        this.channel = channel;
+        this.body = body;
+        this.buffer = new byte[bufferSize];
+        this.permits = permits;
+    }
+    
+    void start() {
+        asyncContext.addListener(this);
+        // El contenedor llama a onWritePossible en cuanto el socket admite escritura
+        out.setWriteListener(this);
+    }
+    
+    @Override
+    public void onWritePossible() throws IOException {
+        while (out.isReady()) {
+            int filled = fill();
+            if (filled < 0) {
+                asyncContext.complete();
+                return;
+            }
+            out.write(buffer, 0, filled);
+        }
+    }
+    
+    @Override
+    public void onError(Throwable t) {
+        // Casi siempre es un cliente que cerró la conexión
+        LOGGER.log(Level.FINE, "Descarga interrumpida", t);
+        try {
+            asyncContext.complete();
+        } catch (IllegalStateException e) {
+            // Ya estaba completado
+        }
+        release();
+    }
+    
+    @Override
+    public void onComplete(AsyncEvent event) {
+        release();
+    }
+    
+    @Override
+    public void onTimeout(AsyncEvent event) {
+        LOGGER.warning("Descarga cancelada por timeout (cliente demasiado lento)");
+        try {
+            asyncContext.complete();
+        } catch (IllegalStateException e) {
+            // Ya estaba completado
+        }
+        release();
+    }
+    
+    @Override
+    public void onError(AsyncEvent event) {
+        LOGGER.log(Level.FINE, "Error en la descarga asíncrona", event.getThrowable());
+        release();
+    }
+    
+    @Override
+    public void onStartAsync(AsyncEvent event) {
+        // No se reinicia el modo asíncrono
+    }
+    
+    /**
+     * Llena el buffer con el siguiente tramo del cuerpo; devuelve -1 cuando ya no queda nada
+     */
+    private int fill() throws IOException {
+        int filled = 0;
+        while (filled < buffer.length && segmentIndex < body.size()) {
+            MultimediaFileServlet.BodySegment segment = body.get(segmentIndex);
+            long left = segment.getLength() - segmentOffset;
+            if (left == 0) {
+                segmentIndex++;
+                segmentOffset = 0;
+                continue;
+            }
+            
+            int count = (int) Math.min(left, buffer.length - filled);
+            if (segment.getBytes() != null) {
+                System.arraycopy(segment.getBytes(), (int) segmentOffset, buffer, filled, count);
+            } else {
+                ByteBuffer target = ByteBuffer.wrap(buffer, filled, count);
+                long position = segment.getPosition() + segmentOffset;
+                while (target.hasRemaining()) {
+                    int read = channel.read(target, position + (target.position() - filled));
+                    if (read < 0) {
+                        throw new EOFException("El archivo terminó antes de lo esperado");
+                    }
+                }
+            }
+            filled += count;
+            segmentOffset += count;
+        }
+        return filled == 0 ? -1 : filled;
+    }
+    
+    private void release() {
+        if (released.compareAndSet(false, true)) {
+            permits.release();
+            try {
+                resource.close();
+            } catch (IOException e) {
+                LOGGER.warning("No se pudo cerrar el archivo de la descarga: " + e.getMessage());
+            }
+        }
+    }
+}
\ No newline at end of file
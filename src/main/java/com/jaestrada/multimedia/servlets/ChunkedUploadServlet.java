@@ -0,0 +1,136 @@
+package com.jaestrada.multimedia.servlets;
+
+import com.jaestrada.multimedia.enums.FileType;
+import com.jaestrada.multimedia.exceptions.MultimediaException;
+import com.jaestrada.multimedia.models.MediaFile;
+import com.jaestrada.multimedia.models.UploadSession;
+import com.jaestrada.multimedia.services.ChunkedUploadService;
+import jakarta.inject.Inject;
+import jakarta.json.Json;
+import jakarta.json.JsonArrayBuilder;
+import jakarta.json.JsonObject;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.TreeSet;
+
+/**
+ * API de subidas por partes que usa el formulario de fichas técnicas:
+ * POST /uploads?titleId=&fileType=&fileName=&size= abre la subida,
+ * GET /uploads/{id} devuelve las partes recibidas (para retomar),
+ * PUT /uploads/{id}/chunks/{n} guarda una parte con el cuerpo crudo,
+ * POST /uploads/{id}/complete confirma y DELETE /uploads/{id} descarta.
+ */
+@WebServlet(urlPatterns = "/uploads/*")
+public class ChunkedUploadServlet extends HttpServlet {
+    
+    @Inject
+    private ChunkedUploadService chunkedUploadService;
+    
+    @Override
+    protected void doPost(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        String[] path = JsonResponses.pathSegments(request);
+        try {
+            if (path.length == 0) {
+                UploadSession session = chunkedUploadService.create(
+                    Long.valueOf(request.getParameter("titleId")),
+                    FileType.valueOf(request.getParameter("fileType")),
+                    request.getParameter("fileName"),
+                    Long.parseLong(request.getParameter("size")),
+                    JsonResponses.currentUser(request)
+                );
+                response.setStatus(HttpServletResponse.SC_CREATED);
+                JsonResponses.writeJson(response, toJson(session));
+            } else if (path.length == 2 && "complete".equals(path[1])) {
+                MediaFile mediaFile = chunkedUploadService.complete(path[0]);
+                JsonResponses.writeJson(response, Json.createObjectBuilder()
+                    .add("mediaFileId", mediaFile.getId())
+                    .add("blobName", mediaFile.getLocalUrl())
+                    .add("sizeBytes", mediaFile.getSizeBytes())
+                    .build());
+            } else {
+                response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            }
+        } catch (IllegalArgumentException | NullPointerException e) {
+            JsonResponses.sendError(response, HttpServletResponse.SC_BAD_REQUEST, "Parámetros inválidos: " + e.getMessage());
+        } catch (MultimediaException e) {
+            JsonResponses.sendError(response, e);
+        }
+    }
+    
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        String[] path = JsonResponses.pathSegments(request);
+        if (path.length != 1) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        try {
+            JsonResponses.writeJson(response, toJson(chunkedUploadService.getSession(path[0])));
+        } catch (MultimediaException e) {
+            JsonResponses.sendError(response, e);
+        }
+    }
+    
+    /**
+     * El cuerpo se pasa tal cual al almacenamiento; Content-Length es obligatorio para validar la parte
+     */
+    @Override
+    protected void doPut(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        String[] path = JsonResponses.pathSegments(request);
+        if (path.length != 3 || !"chunks".equals(path[1])) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        long length = request.getContentLengthLong();
+        if (length < 0) {
+            JsonResponses.sendError(response, HttpServletResponse.SC_LENGTH_REQUIRED, "Falta Content-Length");
+            return;
+        }
+        try (InputStream body = request.getInputStream()) {
+            chunkedUploadService.putChunk(path[0], Integer.parseInt(path[2]), body, length);
+            response.setStatus(HttpServletResponse.SC_NO_CONTENT);
+        } catch (NumberFormatException e) {
+            JsonResponses.sendError(response, HttpServletResponse.SC_BAD_REQUEST, "Número de parte inválido: " + path[2]);
+        } catch (MultimediaException e) {
+            JsonResponses.sendError(response, e);
+        }
+    }
+    
+    @Override
+    protected void doDelete(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        String[] path = JsonResponses.pathSegments(request);
+        if (path.length != 1) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        try {
+            chunkedUploadService.abort(path[0]);
+            response.setStatus(HttpServletResponse.SC_NO_CONTENT);
+        } catch (MultimediaException e) {
+            JsonResponses.sendError(response, e);
+        }
+    }
+    
+    private static JsonObject toJson(UploadSession session) {
+        JsonArrayBuilder completed = Json.createArrayBuilder();
+        new TreeSet<>(session.getCompletedChunks()).forEach(completed::add);
+        return Json.createObjectBuilder()
+            .add("uploadId", session.getId())
+            .add("blobName", session.getBlobName())
+            .add("totalSize", session.getTotalSize())
+            .add("chunkSize", session.getChunkSize())
+            .add("chunkCount", session.getChunkCount())
+            .add("completedChunks", completed)
+            .build();
+    }
+}
\ No newline at end of file
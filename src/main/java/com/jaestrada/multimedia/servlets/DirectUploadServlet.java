@@ -0,0 +1,68 @@
+package com.jaestrada.multimedia.servlets;
+
+import com.jaestrada.multimedia.enums.FileType;
+import com.jaestrada.multimedia.exceptions.MultimediaException;
+import com.jaestrada.multimedia.models.MediaFile;
+import com.jaestrada.multimedia.services.DirectUploadService;
+import com.jaestrada.multimedia.services.DirectUploadTicket;
+import jakarta.inject.Inject;
+import jakarta.json.Json;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+
+/**
+ * API de subidas directas al almacenamiento:
+ * POST /direct-uploads?titleId=&fileType=&fileName=&size=&contentType= devuelve la URL de escritura y el token,
+ * POST /direct-uploads/finalize?token=&etag= verifica el blob subido y crea el MediaFile.
+ */
+@WebServlet(urlPatterns = "/direct-uploads/*")
+public class DirectUploadServlet extends HttpServlet {
+    
+    @Inject
+    private DirectUploadService directUploadService;
+    
+    @Override
+    protected void doPost(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        String[] path = JsonResponses.pathSegments(request);
+        try {
+            if (path.length == 0) {
+                DirectUploadTicket ticket = directUploadService.issue(
+                    Long.valueOf(request.getParameter("titleId")),
+                    FileType.valueOf(request.getParameter("fileType")),
+                    request.getParameter("fileName"),
+                    Long.parseLong(request.getParameter("size")),
+                    request.getParameter("contentType"),
+                    JsonResponses.currentUser(request)
+                );
+                response.setStatus(HttpServletResponse.SC_CREATED);
+                JsonResponses.writeJson(response, Json.createObjectBuilder()
+                    .add("blobName", ticket.getBlobName())
+                    .add("uploadUrl", ticket.getUploadUrl())
+                    .add("contentType", ticket.getContentType())
+                    .add("token", ticket.getToken())
+                    .add("expiresAt", ticket.getExpiresAt().toString())
+                    .build());
+            } else if (path.length == 1 && "finalize".equals(path[0])) {
+                MediaFile mediaFile = directUploadService.finalizeUpload(
+                    request.getParameter("token"), request.getParameter("etag"));
+                JsonResponses.writeJson(response, Json.createObjectBuilder()
+                    .add("mediaFileId", mediaFile.getId())
+                    .add("blobName", mediaFile.getLocalUrl())
+                    .add("sizeBytes", mediaFile.getSizeBytes())
+                    .build());
+            } else {
+                response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            }
+        } catch (IllegalArgumentException | NullPointerException e) {
+            JsonResponses.sendError(response, HttpServletResponse.SC_BAD_REQUEST, "Parámetros inválidos: " + e.getMessage());
+        } catch (MultimediaException e) {
+            JsonResponses.sendError(response, e);
+        }
+    }
+}
\ No newline at end of file
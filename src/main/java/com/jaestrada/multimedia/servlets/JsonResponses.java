@@ -0,0 +1,66 @@
+package com.jaestrada.multimedia.servlets;
+
+import com.jaestrada.multimedia.exceptions.MultimediaException;
+import jakarta.json.Json;
+import jakarta.json.JsonObject;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Respuestas JSON y códigos de error comunes de las APIs de subida (ChunkedUploadServlet, DirectUploadServlet)
+ */
+final class JsonResponses {
+    
+    private static final Logger LOGGER = Logger.getLogger(JsonResponses.class.getName());
+    
+    private JsonResponses() {
+    }
+    
+    static String[] pathSegments(HttpServletRequest request) {
+        String pathInfo = request.getPathInfo();
+        if (pathInfo == null || pathInfo.length() <= 1) {
+            return new String[0];
+        }
+        return pathInfo.substring(1).split("/");
+    }
+    
+    static void writeJson(HttpServletResponse response, JsonObject json) throws IOException {
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader("Cache-Control", "no-store");
+        response.getWriter().write(json.toString());
+    }
+    
+    static void sendError(HttpServletResponse response, MultimediaException e) throws IOException {
+        int status;
+        switch (e.getType()) {
+            case FILE_NOT_FOUND:
+            case TITLE_NOT_FOUND:
+                status = HttpServletResponse.SC_NOT_FOUND;
+                break;
+            case FILE_TOO_LARGE:
+                status = HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE;
+                break;
+            case INVALID_FILE_TYPE:
+                status = HttpServletResponse.SC_BAD_REQUEST;
+                break;
+            default:
+                LOGGER.log(Level.SEVERE, "Error en subida de archivo", e);
+                status = HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+        }
+        sendError(response, status, e.getMessage());
+    }
+    
+    static void sendError(HttpServletResponse response, int status, String message) throws IOException {
+        response.setStatus(status);
+        writeJson(response, Json.createObjectBuilder().add("error", message).build());
+    }
+    
+    static String currentUser(HttpServletRequest request) {
+        return request.getRemoteUser() != null ? request.getRemoteUser() : "admin";
+    }
+}
\ No newline at end of file
@@ -0,0 +1,83 @@
+package com.jaestrada.multimedia.servlets;
+
+import com.jaestrada.multimedia.exceptions.MultimediaException;
+import com.jaestrada.multimedia.services.BlobStore;
+import com.jaestrada.multimedia.services.BlobUploadResult;
+import com.jaestrada.multimedia.services.UploadSignatures;
+import jakarta.inject.Inject;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Sustituto local del PUT con SAS de Azure (STORAGE_BACKEND=local o memory): acepta la escritura
+ * solo si la URL trae una firma válida y vigente para ese blob, tamaño y tipo, y responde el ETag
+ * igual que Azure. Como el SAS de solo creación, no sobrescribe un blob existente (409).
+ * Con Azure no se usa y responde 404.
+ */
+@WebServlet(urlPatterns = "/blob-uploads/*")
+public class LocalBlobUploadServlet extends HttpServlet {
+    
+    private static final Logger LOGGER = Logger.getLogger(LocalBlobUploadServlet.class.getName());
+    
+    @Inject
+    private BlobStore blobStore;
+    
+    @Override
+    protected void doPut(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        String pathInfo = request.getPathInfo();
+        if ("azure".equals(blobStore.getName()) || pathInfo == null || pathInfo.length() <= 1) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        String blobName = pathInfo.substring(1);
+        
+        long size;
+        long expires;
+        try {
+            size = Long.parseLong(request.getParameter("size"));
+            expires = Long.parseLong(request.getParameter("expires"));
+        } catch (NumberFormatException e) {
+            JsonResponses.sendError(response, HttpServletResponse.SC_FORBIDDEN, "Firma inválida");
+            return;
+        }
+        String contentType = request.getParameter("type");
+        if (contentType == null
+                || !UploadSignatures.verifyLocalUpload(blobName, size, contentType, expires, request.getParameter("sig"))) {
+            JsonResponses.sendError(response, HttpServletResponse.SC_FORBIDDEN, "Firma inválida");
+            return;
+        }
+        if (Instant.now().getEpochSecond() > expires) {
+            JsonResponses.sendError(response, HttpServletResponse.SC_FORBIDDEN, "La URL de subida expiró");
+            return;
+        }
+        if (request.getContentLengthLong() != size) {
+            JsonResponses.sendError(response, HttpServletResponse.SC_BAD_REQUEST,
+                "Se autorizaron " + size + " bytes y Content-Length es " + request.getContentLengthLong());
+            return;
+        }
+        
+        try (InputStream body = request.getInputStream()) {
+            // Lo ya subido pudo confirmarse y verificarse: la URL no sirve para reemplazarlo
+            if (blobStore.exists(blobName)) {
+                JsonResponses.sendError(response, HttpServletResponse.SC_CONFLICT, "El blob ya existe");
+                return;
+            }
+            BlobUploadResult result = blobStore.put(blobName, body, size, contentType, Map.of());
+            LOGGER.info("✅ Subida directa recibida: " + blobName);
+            response.setHeader("ETag", result.getEtag());
+            response.setStatus(HttpServletResponse.SC_CREATED);
+        } catch (MultimediaException e) {
+            JsonResponses.sendError(response, e);
+        }
+    }
+}
\ No newline at end of file
@@ -1,29 +1,105 @@
 package com.jaestrada.multimedia.servlets;
 
+import com.jaestrada.multimedia.config.BlobStoreProducer;
+import com.jaestrada.multimedia.exceptions.MultimediaException;
+import com.jaestrada.multimedia.services.BlobCache;
+import com.jaestrada.multimedia.services.BlobStore;
+import com.jaestrada.multimedia.services.FileStorageService;
+import com.jaestrada.multimedia.services.LocalDiskBlobStore;
+import jakarta.inject.Inject;
+import jakarta.servlet.AsyncContext;
 import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
 import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
-import java.io.File;
-import java.io.FileInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-@WebServlet("/multimedia/*")
+@WebServlet(urlPatterns = "/multimedia/*", asyncSupported = true)
 public class MultimediaFileServlet extends HttpServlet {
     
     private static final Logger LOGGER = Logger.getLogger(MultimediaFileServlet.class.getName());
-    private static final String UPLOAD_BASE_DIR = System.getProperty("jboss.server.data.dir", "/tmp") + "/multimedia/";
+    
+    // Más rangos que esto en una petición se ignoran y se responde el archivo completo
+    private static final int MAX_RANGES = 16;
+    private static final String DEFAULT_CACHE_CONTROL = "public, max-age=3600";
+    private static final int MAX_CACHED_CONTENT_TYPES = 10_000;
+    private static final String MULTIPART_BOUNDARY = "MULTIMEDIA_BYTERANGES";
+    
+    private static final int DEFAULT_BUFFER_KB = 64;
+    private static final int DEFAULT_MAX_ASYNC_DOWNLOADS = 200;
+    private static final long DEFAULT_ASYNC_TIMEOUT_SECONDS = 600;
+    
+    // transferFrom(FileChannel) del contenedor (Undertow en WildFly), que envía el archivo sin pasar por el heap
+    private static final ClassValue<Method> TRANSFER_FROM = new ClassValue<>() {
+        @Override
+        protected Method computeValue(Class<?> type) {
+            try {
+                return type.getMethod("transferFrom", FileChannel.class);
+            } catch (NoSuchMethodException e) {
+                return null;
+            }
+        }
+    };
+    
+    // Mismo directorio que usa LocalDiskBlobStore (STORAGE_BACKEND=local); se lee en init() porque
+    // EnvListener carga el .env después de que se cargan las clases
+    private Path uploadBaseDir;
+    
+    @Inject
+    private BlobStore blobStore;
+    
+    @Inject
+    private BlobCache blobCache;
+    
+    private final Map<String, String> contentTypes = new ConcurrentHashMap<>();
+    
+    // Modo asíncrono: las descargas más grandes que el buffer se escriben solo cuando el socket acepta datos
+    private boolean asyncEnabled;
+    private int bufferSize;
+    private int maxAsyncDownloads;
+    private long asyncTimeoutMillis;
+    private Semaphore asyncPermits;
+    
+    @Override
+    public void init() throws ServletException {
+        uploadBaseDir = BlobStoreProducer.localStorageRoot();
+        
+        asyncEnabled = !"false".equalsIgnoreCase(System.getProperty("FILE_SERVING_ASYNC_ENABLED"));
+        bufferSize = (int) Math.max(1, longProperty("FILE_SERVING_BUFFER_KB", DEFAULT_BUFFER_KB)) * 1024;
+        maxAsyncDownloads = (int) Math.max(1, longProperty("FILE_SERVING_MAX_ASYNC_DOWNLOADS", DEFAULT_MAX_ASYNC_DOWNLOADS));
+        asyncTimeoutMillis = longProperty("FILE_SERVING_ASYNC_TIMEOUT_SECONDS", DEFAULT_ASYNC_TIMEOUT_SECONDS) * 1000;
+        asyncPermits = new Semaphore(maxAsyncDownloads);
+        
+        LOGGER.info(String.format("Descarga de archivos: modo %s, buffer %d KB, máx. %d descargas asíncronas",
+                asyncEnabled ? "asíncrono" : "bloqueante", bufferSize / 1024, maxAsyncDownloads));
+    }
     
     @Override
-    protected void doGet(HttpServletRequest request, HttpServletResponse response) 
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException {
         
         String pathInfo = request.getPathInfo();
@@ -35,12 +111,17 @@ public class MultimediaFileServlet extends HttpServlet {
         // Remover el "/" inicial
         String relativePath = pathInfo.substring(1);
         
+        // Con Azure (o memoria) el archivo no está en este disco: se sirve desde el caché local de blobs
+        if (!"local".equals(blobStore.getName())) {
+            serveFromBlobStore(request, response, relativePath);
+            return;
+        }
+        
         // Construir la ruta completa del archivo
-        Path filePath = Paths.get(UPLOAD_BASE_DIR, relativePath);
-        File file = filePath.toFile();
+        Path filePath = uploadBaseDir.resolve(relativePath);
         
         // Verificar que el archivo existe y está dentro del directorio permitido
-        if (!file.exists() || !file.isFile()) {
+        if (!Files.isRegularFile(filePath)) {
             LOGGER.warning("Archivo no encontrado: " + filePath);
             response.sendError(HttpServletResponse.SC_NOT_FOUND);
             return;
@@ -48,7 +129,7 @@ public class MultimediaFileServlet extends HttpServlet {
         
         // Verificar que el archivo está dentro del directorio base (seguridad)
         try {
-            Path basePath = Paths.get(UPLOAD_BASE_DIR).toRealPath();
+            Path basePath = uploadBaseDir.toRealPath();
             Path requestedPath = filePath.toRealPath();
             if (!requestedPath.startsWith(basePath)) {
                 LOGGER.warning("Intento de acceso fuera del directorio permitido: " + requestedPath);
@@ -61,48 +142,381 @@ public class MultimediaFileServlet extends HttpServlet {
             return;
         }
         
+        FileChannel channel = null;
+        boolean handedOff = false;
         try {
-            // Determinar el tipo de contenido
-            String contentType = Files.probeContentType(filePath);
-            if (contentType == null) {
-                contentType = getServletContext().getMimeType(file.getName());
+            channel = FileChannel.open(filePath, StandardOpenOption.READ);
+            long size = channel.size();
+            long lastModified = Files.getLastModifiedTime(filePath).toMillis();
+            // Los archivos se publican con un rename y no se modifican en sitio: tamaño + fecha basta como ETag fuerte
+            String etag = LocalDiskBlobStore.etagOf(size, lastModified);
+            
+            handedOff = serve(request, response, channel, channel, size, etag, lastModified,
+                    getContentType(relativePath, filePath), cacheControlFor(relativePath));
+            LOGGER.fine("Archivo servido exitosamente: " + relativePath);
+            
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Error al servir archivo: " + relativePath, e);
+            if (!response.isCommitted()) {
+                response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            }
+        } finally {
+            // En modo asíncrono el canal lo cierra AsyncFileWriter al terminar
+            if (channel != null && !handedOff) {
+                channel.close();
             }
-            if (contentType == null) {
-                contentType = "application/octet-stream";
+        }
+    }
+    
+    /**
+     * Sirve un blob por su nombre. El parámetro "v" (ETag que conoce la página) solo es una pista para
+     * encontrarlo en el caché; el ETag que se responde es siempre el del contenido que se sirve.
+     */
+    private void serveFromBlobStore(HttpServletRequest request, HttpServletResponse response, String blobName)
+            throws IOException {
+        String contentType = getContentType(blobName, null);
+        
+        try {
+            if (!blobCache.isEnabled()) {
+                try (InputStream in = blobStore.get(blobName)) {
+                    response.setContentType(contentType);
+                    response.setHeader("Cache-Control", cacheControlFor(blobName));
+                    in.transferTo(response.getOutputStream());
+                }
+                return;
             }
             
-            // Configurar la respuesta
+            BlobCache.CachedBlob blob = blobCache.open(blobName, request.getParameter("v"));
+            boolean handedOff = false;
+            try {
+                handedOff = serve(request, response, blob, blob.getChannel(), blob.getSize(), blob.getEtag(), -1, contentType,
+                        cacheControlFor(blobName));
+            } finally {
+                if (!handedOff) {
+                    blob.close();
+                }
+            }
+            LOGGER.fine("Blob servido: " + blobName);
+            
+        } catch (MultimediaException e) {
+            if (e.getType() == MultimediaException.Type.FILE_NOT_FOUND) {
+                LOGGER.warning("Blob no encontrado: " + blobName);
+                response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            } else {
+                LOGGER.log(Level.SEVERE, "Error al servir blob: " + blobName, e);
+                response.sendError(HttpServletResponse.SC_BAD_GATEWAY);
+            }
+        }
+    }
+    
+    /**
+     * Responde el contenido del canal atendiendo If-None-Match / If-Modified-Since y Range (uno o varios rangos).
+     * Devuelve true si la respuesta siguió en modo asíncrono; en ese caso resource se cierra al terminar.
+     */
+    private boolean serve(HttpServletRequest request, HttpServletResponse response, Closeable resource,
+                          FileChannel channel, long size, String etag, long lastModified, String contentType,
+                          String cacheControl) throws IOException {
+        response.setHeader("Accept-Ranges", "bytes");
+        response.setHeader("ETag", etag);
+        response.setHeader("Cache-Control", cacheControl);
+        if (lastModified > 0) {
+            response.setDateHeader("Last-Modified", lastModified);
+        }
+        
+        if (isNotModified(request, etag, lastModified)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return false;
+        }
+        
+        List<long[]> ranges = parseRanges(request, size, etag, lastModified);
+        List<BodySegment> body = new ArrayList<>();
+        
+        if (ranges == null) {
             response.setContentType(contentType);
-            response.setContentLengthLong(file.length());
+            body.add(BodySegment.ofFile(0, size));
             
-            // Configurar headers para cache (opcional)
-            response.setHeader("Cache-Control", "public, max-age=3600");
-            response.setDateHeader("Last-Modified", file.lastModified());
+        } else if (ranges.isEmpty()) {
+            response.setHeader("Content-Range", "bytes */" + size);
+            response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            return false;
             
-            // Verificar If-Modified-Since para cache
-            long ifModifiedSince = request.getDateHeader("If-Modified-Since");
-            if (ifModifiedSince != -1 && ifModifiedSince >= file.lastModified()) {
-                response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
-                return;
-            }
+        } else if (ranges.size() == 1) {
+            long[] range = ranges.get(0);
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setContentType(contentType);
+            response.setHeader("Content-Range", "bytes " + range[0] + "-" + range[1] + "/" + size);
+            body.add(BodySegment.ofFile(range[0], range[1] - range[0] + 1));
             
-            // Enviar el archivo
-            try (FileInputStream fis = new FileInputStream(file);
-                 OutputStream os = response.getOutputStream()) {
-                
-                byte[] buffer = new byte[8192];
-                int bytesRead;
-                while ((bytesRead = fis.read(buffer)) != -1) {
-                    os.write(buffer, 0, bytesRead);
-                }
-                os.flush();
+        } else {
+            // multipart/byteranges: se calcula el largo exacto para no depender de chunked
+            for (long[] range : ranges) {
+                body.add(BodySegment.ofBytes(("\r\n--" + MULTIPART_BOUNDARY + "\r\n"
+                        + "Content-Type: " + contentType + "\r\n"
+                        + "Content-Range: bytes " + range[0] + "-" + range[1] + "/" + size + "\r\n\r\n")
+                        .getBytes(StandardCharsets.ISO_8859_1)));
+                body.add(BodySegment.ofFile(range[0], range[1] - range[0] + 1));
             }
+            body.add(BodySegment.ofBytes(("\r\n--" + MULTIPART_BOUNDARY + "--\r\n").getBytes(StandardCharsets.ISO_8859_1)));
             
-            LOGGER.fine("Archivo servido exitosamente: " + relativePath);
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setContentType("multipart/byteranges; boundary=" + MULTIPART_BOUNDARY);
+        }
+        
+        long length = 0;
+        for (BodySegment segment : body) {
+            length += segment.getLength();
+        }
+        return send(request, response, resource, channel, size, body, length);
+    }
+    
+    /**
+     * Escribe el cuerpo. Si cabe en el buffer, es un HEAD o el modo asíncrono está apagado se escribe en
+     * este hilo; si no, se pasa a AsyncFileWriter y el hilo vuelve al contenedor.
+     */
+    private boolean send(HttpServletRequest request, HttpServletResponse response, Closeable resource,
+                         FileChannel channel, long size, List<BodySegment> body, long length) throws IOException {
+        if (asyncEnabled && length > bufferSize && request.isAsyncSupported() && !"HEAD".equals(request.getMethod())) {
+            if (!asyncPermits.tryAcquire()) {
+                LOGGER.warning("Límite de descargas asíncronas alcanzado (" + maxAsyncDownloads + ")");
+                response.setHeader("Retry-After", "5");
+                response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+                return false;
+            }
             
-        } catch (IOException e) {
-            LOGGER.log(Level.SEVERE, "Error al servir archivo: " + relativePath, e);
-            response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            response.setContentLengthLong(length);
+            AsyncContext asyncContext = request.startAsync();
+            asyncContext.setTimeout(asyncTimeoutMillis);
+            new AsyncFileWriter(asyncContext, response.getOutputStream(), resource, channel, body, bufferSize,
+                    asyncPermits).start();
+            return true;
+        }
+        
+        response.setContentLengthLong(length);
+        ServletOutputStream out = response.getOutputStream();
+        if (body.size() == 1 && body.get(0).getPosition() == 0 && body.get(0).getLength() == size) {
+            sendWhole(channel, size, out);
+            return false;
+        }
+        for (BodySegment segment : body) {
+            if (segment.getBytes() != null) {
+                out.write(segment.getBytes());
+            } else {
+                sendRange(channel, segment.getPosition(), segment.getLength(), out);
+            }
         }
+        return false;
+    }
+    
+    private static boolean isNotModified(HttpServletRequest request, String etag, long lastModified) {
+        String ifNoneMatch = request.getHeader("If-None-Match");
+        if (ifNoneMatch != null) {
+            // If-None-Match tiene precedencia; la comparación débil es la que corresponde aquí
+            for (String candidate : ifNoneMatch.split(",")) {
+                String tag = candidate.trim();
+                if (tag.equals("*") || tag.equals(etag) || tag.equals("W/" + etag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        long ifModifiedSince = request.getDateHeader("If-Modified-Since");
+        return lastModified > 0 && ifModifiedSince != -1 && ifModifiedSince / 1000 >= lastModified / 1000;
+    }
+    
+    /**
+     * Rangos pedidos, ordenados y unidos si se solapan. Devuelve null si no hay Range válido (o If-Range no
+     * coincide) y se debe responder completo, o una lista vacía si ningún rango es satisfacible.
+     */
+    private static List<long[]> parseRanges(HttpServletRequest request, long size, String etag, long lastModified) {
+        String header = request.getHeader("Range");
+        if (header == null || !header.startsWith("bytes=")) {
+            return null;
+        }
+        
+        String ifRange = request.getHeader("If-Range");
+        if (ifRange != null) {
+            if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+                // If-Range exige comparación fuerte
+                if (!ifRange.equals(etag)) {
+                    return null;
+                }
+            } else {
+                long date;
+                try {
+                    date = request.getDateHeader("If-Range");
+                } catch (IllegalArgumentException e) {
+                    return null;
+                }
+                if (lastModified <= 0 || date / 1000 != lastModified / 1000) {
+                    return null;
+                }
+            }
+        }
+        
+        List<long[]> ranges = new ArrayList<>();
+        for (String part : header.substring("bytes=".length()).split(",")) {
+            String spec = part.trim();
+            int dash = spec.indexOf('-');
+            if (dash < 0) {
+                return null;
+            }
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            try {
+                long start;
+                long end;
+                if (first.isEmpty()) {
+                    // Sufijo: los últimos N bytes
+                    long suffix = Long.parseLong(last);
+                    if (suffix <= 0 || size == 0) {
+                        continue;
+                    }
+                    start = Math.max(0, size - suffix);
+                    end = size - 1;
+                } else {
+                    start = Long.parseLong(first);
+                    end = last.isEmpty() ? size - 1 : Long.parseLong(last);
+                    if (end < start) {
+                        return null;
+                    }
+                    if (start >= size) {
+                        continue;
+                    }
+                    end = Math.min(end, size - 1);
+                }
+                ranges.add(new long[] { start, end });
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        
+        if (ranges.size() > MAX_RANGES) {
+            return null;
+        }
+        
+        ranges.sort(Comparator.comparingLong(range -> range[0]));
+        List<long[]> merged = new ArrayList<>(ranges.size());
+        for (long[] range : ranges) {
+            long[] previous = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            if (previous != null && range[0] <= previous[1] + 1) {
+                previous[1] = Math.max(previous[1], range[1]);
+            } else {
+                merged.add(range);
+            }
+        }
+        return merged;
+    }
+    
+    /**
+     * Envía el archivo completo; usa el transferFrom del contenedor cuando existe
+     */
+    private static void sendWhole(FileChannel channel, long size, OutputStream out) throws IOException {
+        Method transferFrom = TRANSFER_FROM.get(out.getClass());
+        if (transferFrom != null) {
+            try {
+                channel.position(0);
+                transferFrom.invoke(out, channel);
+                return;
+            } catch (InvocationTargetException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw new IOException(e.getCause());
+            } catch (IllegalAccessException e) {
+                LOGGER.fine("transferFrom no accesible, se usa FileChannel.transferTo");
+            }
+        }
+        sendRange(channel, 0, size, out);
+    }
+    
+    private static void sendRange(FileChannel channel, long position, long count, OutputStream out) throws IOException {
+        WritableByteChannel target = Channels.newChannel(out);
+        long sent = 0;
+        while (sent < count) {
+            long transferred = channel.transferTo(position + sent, count - sent, target);
+            if (transferred <= 0) {
+                throw new EOFException("El archivo terminó antes de lo esperado");
+            }
+            sent += transferred;
+        }
+    }
+    
+    /**
+     * Tipo de contenido por ruta, calculado una sola vez
+     */
+    private String getContentType(String relativePath, Path filePath) {
+        String cached = contentTypes.get(relativePath);
+        if (cached != null) {
+            return cached;
+        }
+        
+        String contentType = null;
+        if (filePath != null) {
+            try {
+                contentType = Files.probeContentType(filePath);
+            } catch (IOException e) {
+                LOGGER.fine("No se pudo determinar el tipo de " + filePath);
+            }
+        }
+        if (contentType == null) {
+            contentType = getServletContext().getMimeType(relativePath);
+        }
+        if (contentType == null) {
+            contentType = "application/octet-stream";
+        }
+        
+        if (contentTypes.size() >= MAX_CACHED_CONTENT_TYPES) {
+            contentTypes.clear();
+        }
+        contentTypes.put(relativePath, contentType);
+        return contentType;
+    }
+    
+    /**
+     * Los nombres con el hash del contenido no cambian nunca: el navegador no necesita revalidarlos
+     */
+    private static String cacheControlFor(String blobName) {
+        return FileStorageService.isFingerprinted(blobName)
+            ? FileStorageService.IMMUTABLE_CACHE_CONTROL : DEFAULT_CACHE_CONTROL;
+    }
+    
+    private static long longProperty(String key, long defaultValue) {
+        String value = System.getProperty(key);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            LOGGER.warning(key + " inválido, se usa " + defaultValue + ": " + value);
+            return defaultValue;
+        }
+    }
+    
+    /**
+     * Parte del cuerpo de la respuesta: bytes fijos (cabeceras multipart) o un tramo del archivo
+     */
+    static final class BodySegment {
+        private final byte[] bytes;
+        private final long position;
+        private final long length;
+        
+        private BodySegment(byte[] bytes, long position, long length) {
+            this.bytes = bytes;
+            this.position = position;
+            this.length = length;
+        }
+        
+        static BodySegment ofBytes(byte[] bytes) {
+            return new BodySegment(bytes, -1, bytes.length);
+        }
+        
+        static BodySegment ofFile(long position, long length) {
+            return new BodySegment(null, position, length);
+        }
+        
+        byte[] getBytes() { return bytes; }
+        long getPosition() { return position; }
+        long getLength() { return length; }
     }
 }
\ No newline at end of file
@@ -0,0 +1,210 @@
+package com.jaestrada.multimedia.services;
+
+import com.jaestrada.multimedia.enums.FileType;
+import com.jaestrada.multimedia.exceptions.MultimediaException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Archivos armados byte a byte: firmas, encabezados PNG/JPEG y límites de tamaño y dimensiones
+ */
+class FileContentInspectorTest {
+    
+    private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A};
+    
+    // ==================== Formatos aceptados ====================
+    
+    @Test
+    void detectsPngPoster() throws Exception {
+        Assertions.assertEquals("image/png", inspect(png(800, 1200), "poster.png", FileType.POSTER));
+    }
+    
+    @Test
+    void detectsJpegPoster() throws Exception {
+        Assertions.assertEquals("image/jpeg", inspect(jpeg(new byte[0], 800, 1200), "poster.jpg", FileType.POSTER));
+    }
+    
+    @Test
+    void readsJpegSizeAfterExifSegment() throws Exception {
+        // APP1 (Exif) de 40 KB antes del SOF, como en las fotos de cámara
+        byte[] exif = new byte[40 * 1024];
+        byte[] content = jpeg(segment(0xE1, exif), 600, 900);
+        Assertions.assertEquals("image/jpeg", inspect(content, "foto.jpg", FileType.POSTER));
+    }
+    
+    @Test
+    void rejectsJpegLargerThanLimitAfterExifSegment() {
+        byte[] content = jpeg(segment(0xE1, new byte[1024]), 7000, 7000);
+        assertType(MultimediaException.Type.FILE_TOO_LARGE, content, "enorme.jpg", FileType.POSTER);
+    }
+    
+    @Test
+    void leavesStreamAtFirstByte() throws Exception {
+        byte[] content = jpeg(segment(0xE1, new byte[2048]), 600, 900);
+        BufferedInputStream in = new BufferedInputStream(new ByteArrayInputStream(content));
+        FileContentInspector.inspect(in, content.length, "foto.jpg", FileType.POSTER);
+        Assertions.assertArrayEquals(content, in.readAllBytes());
+    }
+    
+    @Test
+    void acceptsPdfWithLeadingJunk() throws Exception {
+        byte[] content = concat(new byte[200], "%PDF-1.7\n%âãÏÓ\n".getBytes(StandardCharsets.ISO_8859_1));
+        Assertions.assertEquals("application/pdf", inspect(content, "ficha.pdf", FileType.TECHNICAL_SHEET));
+    }
+    
+    @Test
+    void rejectsPdfSignatureBeyondSearchWindow() {
+        byte[] content = concat(new byte[4096], "%PDF-1.7\n".getBytes(StandardCharsets.US_ASCII));
+        assertType(MultimediaException.Type.INVALID_FILE_TYPE, content, "ficha.pdf", FileType.TECHNICAL_SHEET);
+    }
+    
+    // ==================== Archivos incompletos o con otro formato ====================
+    
+    @Test
+    void rejectsPngWithoutHeader() {
+        assertType(MultimediaException.Type.INVALID_FILE_TYPE, PNG_SIGNATURE, "corto.png", FileType.POSTER);
+    }
+    
+    @Test
+    void rejectsTruncatedJpeg() {
+        byte[] complete = jpeg(segment(0xE1, new byte[512]), 600, 900);
+        byte[] truncated = Arrays.copyOf(complete, 300);
+        assertType(MultimediaException.Type.INVALID_FILE_TYPE, truncated, "cortado.jpg", FileType.POSTER);
+    }
+    
+    @Test
+    void rejectsJpegWithoutFrameHeader() {
+        // SOI, un APP0 y directamente el inicio de los datos (SOS)
+        byte[] content = concat(new byte[] {(byte) 0xFF, (byte) 0xD8}, segment(0xE0, new byte[14]),
+            segment(0xDA, new byte[10]));
+        assertType(MultimediaException.Type.INVALID_FILE_TYPE, content, "raro.jpg", FileType.POSTER);
+    }
+    
+    @Test
+    void rejectsPngNamedAsPdf() {
+        assertType(MultimediaException.Type.INVALID_FILE_TYPE, png(800, 1200), "ficha.pdf", FileType.TECHNICAL_SHEET);
+    }
+    
+    @Test
+    void rejectsPdfNamedAsImage() {
+        byte[] content = "%PDF-1.4\n".getBytes(StandardCharsets.US_ASCII);
+        assertType(MultimediaException.Type.INVALID_FILE_TYPE, content, "poster.jpg", FileType.POSTER);
+    }
+    
+    @Test
+    void rejectsTextNamedAsImage() {
+        byte[] content = "<html><body>no es una imagen</body></html>".getBytes(StandardCharsets.US_ASCII);
+        assertType(MultimediaException.Type.INVALID_FILE_TYPE, content, "poster.png", FileType.POSTER);
+    }
+    
+    // ==================== Límites ====================
+    
+    @Test
+    void rejectsPngWiderThanLimit() {
+        assertType(MultimediaException.Type.FILE_TOO_LARGE, png(9000, 100), "ancho.png", FileType.POSTER);
+    }
+    
+    @Test
+    void rejectsPngWithTooManyPixels() {
+        assertType(MultimediaException.Type.FILE_TOO_LARGE, png(7000, 7000), "grande.png", FileType.POSTER);
+    }
+    
+    @Test
+    void rejectsPngWithZeroDimensions() {
+        assertType(MultimediaException.Type.INVALID_FILE_TYPE, png(0, 100), "vacio.png", FileType.POSTER);
+    }
+    
+    @Test
+    void rejectsPosterOverSizeLimit() {
+        byte[] content = png(800, 1200);
+        MultimediaException e = Assertions.assertThrows(MultimediaException.class, () -> FileContentInspector.inspect(
+            new BufferedInputStream(new ByteArrayInputStream(content)), 3L * 1024 * 1024, "pesado.png", FileType.POSTER));
+        Assertions.assertEquals(MultimediaException.Type.FILE_TOO_LARGE, e.getType());
+    }
+    
+    @Test
+    void rejectsEmptyFile() {
+        MultimediaException e = Assertions.assertThrows(MultimediaException.class,
+            () -> FileContentInspector.checkSize(FileType.TECHNICAL_SHEET, 0));
+        Assertions.assertEquals(MultimediaException.Type.INVALID_FILE_TYPE, e.getType());
+    }
+    
+    @Test
+    void checksDeclaredContentType() throws Exception {
+        FileContentInspector.checkContentType(FileType.POSTER, "image/png");
+        MultimediaException e = Assertions.assertThrows(MultimediaException.class,
+            () -> FileContentInspector.checkContentType(FileType.POSTER, "image/gif"));
+        Assertions.assertEquals(MultimediaException.Type.INVALID_FILE_TYPE, e.getType());
+    }
+    
+    // ==================== Utilidades ====================
+    
+    private static String inspect(byte[] content, String fileName, FileType fileType) throws MultimediaException {
+        return FileContentInspector.inspect(
+            new BufferedInputStream(new ByteArrayInputStream(content)), content.length, fileName, fileType);
+    }
+    
+    private static void assertType(MultimediaException.Type expected, byte[] content, String fileName, FileType fileType) {
+        MultimediaException e = Assertions.assertThrows(MultimediaException.class, () -> inspect(content, fileName, fileType));
+        Assertions.assertEquals(expected, e.getType(), e.getMessage());
+    }
+    
+    // Firma e IHDR; el resto del archivo no se lee
+    private static byte[] png(int width, int height) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.writeBytes(PNG_SIGNATURE);
+        writeInt(out, 13);
+        out.writeBytes("IHDR".getBytes(StandardCharsets.US_ASCII));
+        writeInt(out, width);
+        writeInt(out, height);
+        out.writeBytes(new byte[] {8, 2, 0, 0, 0});
+        writeInt(out, 0); // CRC
+        out.writeBytes(new byte[64]);
+        return out.toByteArray();
+    }
+    
+    // SOI, los segmentos recibidos, un SOF0 con las dimensiones y el inicio de los datos
+    private static byte[] jpeg(byte[] segmentsBeforeFrame, int width, int height) {
+        ByteArrayOutputStream frame = new ByteArrayOutputStream();
+        frame.write(8);
+        writeShort(frame, height);
+        writeShort(frame, width);
+        frame.write(3);
+        frame.writeBytes(new byte[9]);
+        return concat(new byte[] {(byte) 0xFF, (byte) 0xD8}, segmentsBeforeFrame,
+            segment(0xC0, frame.toByteArray()), segment(0xDA, new byte[10]), new byte[128]);
+    }
+    
+    private static byte[] segment(int marker, byte[] payload) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(0xFF);
+        out.write(marker);
+        writeShort(out, payload.length + 2);
+        out.writeBytes(payload);
+        return out.toByteArray();
+    }
+    
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            out.writeBytes(part);
+        }
+        return out.toByteArray();
+    }
+    
+    private static void writeInt(ByteArrayOutputStream out, int value) {
+        writeShort(out, value >>> 16);
+        writeShort(out, value & 0xFFFF);
+    }
+    
+    private static void writeShort(ByteArrayOutputStream out, int value) {
+        out.write((value >>> 8) & 0xFF);
+        out.write(value & 0xFF);
+    }
+}
\ No newline at end of file